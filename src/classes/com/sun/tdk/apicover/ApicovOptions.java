@@ -56,6 +56,8 @@ public class ApicovOptions extends Options {
             Option.DETAIL,
             Option.FORMAT,
             Option.REPORT,
+            Option.THREADS,
+            Option.CLASS_CACHE_DIR,
             Option.EXCLUDE_LIST,
             Option.FILTERMAP,
             Option.FILTERSIG,
@@ -28,33 +28,49 @@ import com.sun.tdk.signaturetest.Version;
 import com.sun.tdk.signaturetest.core.context.Option;
 import com.sun.tdk.signaturetest.util.*;
 
-import java.io.File;
-import java.io.FileOutputStream;
-import java.io.IOException;
+import java.io.*;
 import java.util.*;
 import javax.xml.XMLConstants;
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.transform.*;
-import javax.xml.transform.dom.DOMSource;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.transform.OutputKeys;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerException;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.sax.SAXTransformerFactory;
+import javax.xml.transform.sax.TransformerHandler;
 import javax.xml.transform.stream.StreamResult;
-import javax.xml.xpath.*;
 
-import org.w3c.dom.*;
 import org.xml.sax.SAXException;
-
+import org.xml.sax.helpers.AttributesImpl;
+
+/**
+ * Merges coverage reports in the XML format. Every report is read once as
+ * a stream, the classes and members are aggregated in maps, and the merged
+ * report is written as a stream too, so only one copy of the merged data
+ * is kept in memory. The merged report is the same as the one built from
+ * the documents of all the reports before: members, attributes and their
+ * order, counters, the head and the formatting.
+ */
 public class CMerge {
 
     private final static I18NResourceBundle i18n = I18NResourceBundle.getBundleForClass(CMerge.class);
     String oFile;
     String[] iFiles;
     boolean strict = false;
-    CovDocument[] docs;
     public static final String STRICT_OPTION = "-Strict";
-    Document result;
-    Element resultReport;
-    final XPathFactory xPathfactory = XPathFactory.newInstance();
+    private static final Option[] CONFIG_KEYS = {Option.EXCLUDE_LIST,
+            Option.EXCLUDE_INTERFACES,
+            Option.EXCLUDE_ABSTRACT_CLASSES,
+            Option.EXCLUDE_ABSTRACT_METHODS,
+            Option.EXCLUDE_FIELDS,
+            Option.INCLUDE_CONSTANT_FIELDS,
+            Option.MODE};
+    private final XMLInputFactory inputFactory = XMLInputFactory.newInstance();
+    private final Map<String, String> confs = new HashMap<>();
+    private final Map<String, MergedClass> classes = new HashMap<>();
 
     public static void main(String[] args) {
         new CMerge().perform(args);
@@ -72,18 +88,13 @@ public class CMerge {
     }
 
     private void perform() {
-        docs = new CovDocument[iFiles.length];
+        inputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+        inputFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
         try {
-
-            for (int i = 0; i < iFiles.length; i++) {
-                docs[i] = new CovDocument(iFiles[i]);
-            }
-
-            if (checkAndMerge(docs, strict)) {
-                saveToXml(result, oFile);
+            if (checkAndMerge(iFiles, strict)) {
+                saveToXml(oFile);
             }
-
-        } catch (SAXException | TransformerException | XPathExpressionException | ParserConfigurationException | IOException ex) {
+        } catch (XMLStreamException | TransformerException | SAXException | IOException ex) {
             SwissKnife.reportThrowable(ex);
         }
     }
@@ -179,25 +190,20 @@ public class CMerge {
         }
     }
 
-    private boolean checkAndMerge(CovDocument[] docs, boolean strict) throws XPathExpressionException, ParserConfigurationException {
+    private boolean checkAndMerge(String[] files, boolean strict) throws XMLStreamException, IOException {
         // check configuration
-        Option[] keys = {Option.EXCLUDE_LIST,
-                Option.EXCLUDE_INTERFACES,
-                Option.EXCLUDE_ABSTRACT_CLASSES,
-                Option.EXCLUDE_ABSTRACT_METHODS,
-                Option.EXCLUDE_FIELDS,
-                Option.INCLUDE_CONSTANT_FIELDS,
-                Option.MODE};
-
-        HashMap<String, String> confs = new HashMap<>();
-        for (Option opt : keys) {
+        for (Option opt : CONFIG_KEYS) {
             confs.put(opt.getKey(), "NA");
         }
 
-        for (CovDocument d : docs) {
-            for (Option opt : keys) {
+        for (String file : files) {
+            Map<String, String> head = readHead(file);
+            for (Option opt : CONFIG_KEYS) {
                 String key = opt.getKey();
-                String m = d.getConfigValue(key, "no");
+                String m = head.get(key);
+                if (m == null || m.isEmpty()) {
+                    m = "no";
+                }
                 String o = confs.get(key);
                 if (!o.equals(m)) {
                     if (o.equals("NA")) {
@@ -210,136 +216,205 @@ public class CMerge {
             }
         }
 
-        // create a result document
-        result = DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument();
-        resultReport = result.createElement(XC.REPORT);
-        result.appendChild(resultReport);
-        Element eHead = result.createElement(XC.HEAD);
-        resultReport.appendChild(eHead);
-        for (Map.Entry<String, String> en : confs.entrySet()) {
-            if (en.getValue().equals("NA")) {
-                continue;
-            }
-            Element e = result.createElement(XC.HEAD_PROPERTY);
-            e.setAttribute(XC.HEAD_PROPERTY_NAME, en.getKey());
-            e.setAttribute(XC.HEAD_PROPERTY_VALUE, en.getValue());
-            eHead.appendChild(e);
+        // prepare data for merging
+        for (String file : files) {
+            readClasses(file, strict);
         }
 
         // check for different versions of the same class
-        // and prepare data for merging
-        Map<String, Element[]> allClasses = new HashMap<>();
-        for (int i = 0; i < docs.length; i++) {
-            CovDocument d = docs[i];
-            for (Element cl : d.getClasses()) {
-                String qName = CovDocument.getQname(cl);
-                if (!allClasses.containsKey(qName)) {
-                    allClasses.put(qName, new Element[docs.length]);
+        for (MergedClass cl : classes.values()) {
+            String[] problem = cl.attributesProblem != null ? cl.attributesProblem : cl.membersProblem;
+            if (problem != null) {
+                for (String line : problem) {
+                    System.err.println(line);
                 }
-                allClasses.get(qName)[i] = cl;
+                return false;
             }
         }
+        return true;
+    }
 
-        // check and merge
-        for (Map.Entry<String, Element[]> en : allClasses.entrySet()) {
-            String qName = en.getKey();
-            Element[] similarClasses = en.getValue();
-            Set<String> atsG = null;
-            NamedNodeMap classAttributes = null;
-
-            for (Element c : similarClasses) {
-                if (c != null) {
-                    classAttributes = c.getAttributes();
-                    HashSet<String> atsL = new HashSet<>();
-                    for (int i = 0; i < classAttributes.getLength(); i++) {
-                        String aName = classAttributes.item(i).getNodeName();
-                        String aVal = classAttributes.item(i).getNodeValue();
-
-                        // ignore some known attributes
-                        if (!aName.equals(XC.CLASS_NAME)
-                                && !aName.equals(XC.CLASS_MEMBERS)
-                                && !aName.equals(XC.CLASS_TESTED)
-                                && !aName.equals(XC.CLASS_TYPEARGS)) {
-                            atsL.add(aName);
+    private XMLStreamReader createReader(InputStream in) throws XMLStreamException {
+        return inputFactory.createXMLStreamReader(in);
+    }
+
+    /**
+     * Returns the properties of the report head, the first value of each
+     * property is taken. Only the head is read.
+     */
+    private Map<String, String> readHead(String file) throws XMLStreamException, IOException {
+        Map<String, String> head = new HashMap<>();
+        try (InputStream in = new BufferedInputStream(new FileInputStream(file))) {
+            XMLStreamReader r = createReader(in);
+            int depth = 0;
+            boolean inHead = false;
+            while (r.hasNext()) {
+                int event = r.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    depth++;
+                    String name = r.getLocalName();
+                    if (depth == 2 && name.equals(XC.HEAD)) {
+                        inHead = true;
+                    } else if (depth == 2) {
+                        // the head precedes the packages
+                        break;
+                    } else if (inHead && depth == 3 && name.equals(XC.HEAD_PROPERTY)) {
+                        String key = r.getAttributeValue(null, XC.HEAD_PROPERTY_NAME);
+                        if (key != null && !head.containsKey(key)) {
+                            String value = r.getAttributeValue(null, XC.HEAD_PROPERTY_VALUE);
+                            head.put(key, value == null ? "" : value);
                         }
                     }
-                    if (atsG == null) {
-                        atsG = atsL;
-                    } else { // compare modifiers
-                        String m1 = atsG.toString();
-                        String m2 = atsL.toString();
-                        if (!m1.equals(m2)) {
-                            System.err.println("Incompatible attributes for class " + qName + ":");
-                            System.err.println(m1 + " and " + m2);
-                            return false;
-                        }
+                } else if (event == XMLStreamConstants.END_ELEMENT) {
+                    if (depth == 2 && inHead) {
+                        break;
                     }
+                    depth--;
                 }
             }
-            // check members
-            HashMap<String, Element> members = new HashMap<>();
-            boolean firstTime = true;
-            for (Element classElement : similarClasses) {
-                if (classElement != null) {
-                    NodeList memberList = classElement.getChildNodes();
-                    for (int i = 0; i < memberList.getLength(); i++) {
-                        Node n = memberList.item(i);
-                        if (n instanceof Element) {
-                            Element member = (Element) n;
-                            String memberID = member.getNodeName() + " "
-                                    + member.getAttribute(XC.MEMBER_NAME) + " "
-                                    + member.getAttribute(XC.MEMBER_SIG);
-
-                            // collect member's attributes
-                            String myAttrsToCheck = getMemberModifsAsString(member);
-                            boolean isCov = Integer.parseInt(member.getAttribute(XC.MEMBER_TESTED)) > 0;
-
-                            if (firstTime) {
-                                members.put(memberID, member);
-                                if (i == memberList.getLength() - 1) {
-                                    // last member
-                                    firstTime = false;
-                                }
-                            } else {
-                                if (strict && !members.containsKey(memberID)) {
-                                    System.err.println("Different members in class class " + qName);
-                                    System.err.println("Member " + memberID);
-                                    return false;
-                                }
-                                if (!members.containsKey(memberID)) {
-                                    // add member
-                                    members.put(memberID, member);
-                                } else {
-                                    String m1 = getMemberModifsAsString(members.get(memberID));
-                                    if (!m1.equals(myAttrsToCheck)) {
-                                        System.err.println("Incompatible member attributes in class " + qName);
-                                        System.err.println("member " + memberID);
-                                        System.err.println(m1 + " and " + myAttrsToCheck);
-                                        return false;
-                                    }
-                                    // update coverage
-                                    if (isCov) {
-                                        Element stored = members.get(memberID);
-                                        stored.setAttribute(XC.MEMBER_TESTED, "1");
-                                    }
-                                }
+            r.close();
+        }
+        return head;
+    }
+
+    /**
+     * Reads the classes of a report and merges them with the classes read
+     * before. Problems are remembered by the classes.
+     */
+    private void readClasses(String file, boolean strict) throws XMLStreamException, IOException {
+        try (InputStream in = new BufferedInputStream(new FileInputStream(file))) {
+            XMLStreamReader r = createReader(in);
+            List<String> packages = new ArrayList<>();
+            MergedClass current = null;
+            int classDepth = 0;
+            // tells if the last child node of the class is a member
+            boolean lastIsMember = false;
+            while (r.hasNext()) {
+                int event = r.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    String name = r.getLocalName();
+                    if (current != null) {
+                        classDepth++;
+                        lastIsMember = false;
+                        if (classDepth == 1) {
+                            mergeMember(r, current, strict);
+                        }
+                    } else if (name.equals(XC.PACKAGE)) {
+                        String pName = r.getAttributeValue(null, XC.PACKAGE_NAME);
+                        packages.add(pName == null ? "" : pName);
+                    } else if (name.equals(XC.CLASS)) {
+                        String qName = getQname(packages, r.getAttributeValue(null, XC.CLASS_NAME));
+                        current = classes.get(qName);
+                        if (current == null) {
+                            current = new MergedClass(qName);
+                            classes.put(qName, current);
+                        }
+                        current.setAttributes(r);
+                        classDepth = 0;
+                        lastIsMember = false;
+                    }
+                } else if (event == XMLStreamConstants.END_ELEMENT) {
+                    if (current != null) {
+                        if (classDepth == 0) {
+                            // members are merged from the first report whose
+                            // class doesn't end with a text node
+                            if (lastIsMember) {
+                                current.firstTime = false;
                             }
+                            current = null;
+                        } else {
+                            classDepth--;
+                            lastIsMember = classDepth == 0;
                         }
+                    } else if (r.getLocalName().equals(XC.PACKAGE)) {
+                        packages.remove(packages.size() - 1);
                     }
+                } else if (current != null && classDepth == 0) {
+                    // text, comment or processing instruction
+                    lastIsMember = false;
                 }
             }
-            /// write a class data
-            addClass(qName, classAttributes, members.values());
+            r.close();
         }
-        return true;
     }
 
-    private static String getMemberModifsAsString(Element member) {
+    private static void mergeMember(XMLStreamReader r, MergedClass cl, boolean strict) {
+        if (cl.membersProblem != null) {
+            return;
+        }
+        String memberID = r.getLocalName() + " "
+                + nonNull(r.getAttributeValue(null, XC.MEMBER_NAME)) + " "
+                + nonNull(r.getAttributeValue(null, XC.MEMBER_SIG));
+
         // collect member's attributes
-        HashSet<String> modifS = new HashSet<>();
-        NamedNodeMap attrs = member.getAttributes();
-        for (int j = 0; j < attrs.getLength(); j++) {
-            String aName = attrs.item(j).getNodeName();
+        Map<String, String> attributes = getAttributes(r);
+        String myAttrsToCheck = getMemberModifsAsString(attributes);
+        boolean isCov = Integer.parseInt(nonNull(attributes.get(XC.MEMBER_TESTED))) > 0;
+
+        if (cl.firstTime) {
+            cl.members.put(memberID, new MergedMember(r.getLocalName(), attributes));
+            return;
+        }
+        MergedMember member = cl.members.get(memberID);
+        if (strict && member == null) {
+            cl.membersProblem = new String[]{"Different members in class class " + cl.qName,
+                    "Member " + memberID};
+            return;
+        }
+        if (member == null) {
+            // add member
+            cl.members.put(memberID, new MergedMember(r.getLocalName(), attributes));
+            return;
+        }
+        String m1 = getMemberModifsAsString(member.attributes);
+        if (!m1.equals(myAttrsToCheck)) {
+            cl.membersProblem = new String[]{"Incompatible member attributes in class " + cl.qName,
+                    "member " + memberID,
+                    m1 + " and " + myAttrsToCheck};
+            return;
+        }
+        // update coverage
+        if (isCov) {
+            member.attributes.put(XC.MEMBER_TESTED, "1");
+        }
+    }
+
+    private static String nonNull(String s) {
+        return s == null ? "" : s;
+    }
+
+    /**
+     * Returns the attributes of the current element sorted by name, which is
+     * the order of the attributes of a document node.
+     */
+    private static Map<String, String> getAttributes(XMLStreamReader r) {
+        Map<String, String> attributes = new TreeMap<>();
+        for (int i = 0; i < r.getAttributeCount(); i++) {
+            attributes.put(r.getAttributeLocalName(i), r.getAttributeValue(i));
+        }
+        return attributes;
+    }
+
+    /**
+     * Returns the qualified name of a class, the enclosing packages are
+     * named up to the unnamed one.
+     */
+    private static String getQname(List<String> packages, String name) {
+        StringBuilder qName = new StringBuilder(nonNull(name));
+        for (int i = packages.size() - 1; i >= 0; i--) {
+            String pName = packages.get(i);
+            if (pName.isEmpty()) {
+                break;
+            }
+            qName.insert(0, pName + ".");
+        }
+        return qName.toString();
+    }
+
+    private static String getMemberModifsAsString(Map<String, String> attributes) {
+        // collect member's attributes
+        Set<String> modifS = new HashSet<>();
+        for (String aName : attributes.keySet()) {
 
             // ignore some known attributes
             if (!aName.equals(XC.MEMBER_NAME)
@@ -353,164 +428,203 @@ public class CMerge {
         return modifS.toString();
     }
 
-    private static void saveToXml(Document d, String oFile) throws TransformerException {
-        TransformerFactory transformerFactory = TransformerFactory.newInstance();
+    private void saveToXml(String oFile) throws TransformerException, SAXException, IOException {
+        // packages and classes are added in the order of the classes, the
+        // counters are needed before the classes are written
+        MergedPackage top = null;
+        for (MergedClass cl : classes.values()) {
+            if (top == null) {
+                top = new MergedPackage("");
+            }
+            MergedPackage pck = top;
+            StringTokenizer st = new StringTokenizer(cl.qName, ".");
+            int parts = st.countTokens();
+            for (int pn = 1; pn < parts; pn++) {
+                pck = pck.getPackage(st.nextToken().trim());
+            }
+            pck.children.add(cl);
+            int memberCount = cl.members.size();
+            int testedCount = cl.getTestedCount();
+            for (MergedPackage p = pck; p != null; p = p.parent) {
+                p.memberCount += memberCount;
+                p.testedCount += testedCount;
+            }
+        }
+
+        SAXTransformerFactory transformerFactory = (SAXTransformerFactory) TransformerFactory.newInstance();
         transformerFactory.setAttribute(XMLConstants.ACCESS_EXTERNAL_DTD, "");
         transformerFactory.setAttribute(XMLConstants.ACCESS_EXTERNAL_STYLESHEET, "");
 
-        Transformer transformer = transformerFactory.newTransformer();
+        TransformerHandler handler = transformerFactory.newTransformerHandler();
+        Transformer transformer = handler.getTransformer();
         transformer.setOutputProperty(OutputKeys.INDENT, "yes");
+        transformer.setOutputProperty(OutputKeys.STANDALONE, "no");
         transformer.setOutputProperty("{http://xml.apache.org/xslt}indent-amount", "2");
 
-        DOMSource source = new DOMSource(d);
-        StreamResult sresult = new StreamResult(new File(oFile));
-        transformer.transform(source, sresult);
-    }
-
-    private void addClass(String qName, NamedNodeMap classAttributes, Collection<Element> members) {
-        try {
-            Element pck = createPackagesFor(qName);
-            Element cl = result.createElement(XC.CLASS);
-            for (int i = 0; i < classAttributes.getLength(); i++) {
-                String aName = classAttributes.item(i).getNodeName();
-                String aVal = classAttributes.item(i).getNodeValue();
-                cl.setAttribute(aName, aVal);
-            }
-            int memberCount = 0;
-            int testedCount = 0;
-            for (Element member : members) {
-                Element newM = result.createElement(member.getNodeName());
-                NamedNodeMap membAttributes = member.getAttributes();
-                for (int i = 0; i < membAttributes.getLength(); i++) {
-                    String aName = membAttributes.item(i).getNodeName();
-                    String aVal = membAttributes.item(i).getNodeValue();
-                    newM.setAttribute(aName, aVal);
-                    if (aName.equals(XC.MEMBER_TESTED) && aVal.equals("1")) {
-                        testedCount++;
-                    }
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(oFile))) {
+            handler.setResult(new StreamResult(out));
+            handler.startDocument();
+            startElement(handler, XC.REPORT, Collections.<String, String>emptyMap());
+            startElement(handler, XC.HEAD, Collections.<String, String>emptyMap());
+            for (Map.Entry<String, String> en : confs.entrySet()) {
+                if (en.getValue().equals("NA")) {
+                    continue;
                 }
-                cl.appendChild(newM);
-                memberCount++;
-                cl.setAttribute(XC.CLASS_MEMBERS, String.valueOf(memberCount));
-                cl.setAttribute(XC.CLASS_TESTED, String.valueOf(testedCount));
+                Map<String, String> attributes = new TreeMap<>();
+                attributes.put(XC.HEAD_PROPERTY_NAME, en.getKey());
+                attributes.put(XC.HEAD_PROPERTY_VALUE, en.getValue());
+                startElement(handler, XC.HEAD_PROPERTY, attributes);
+                endElement(handler, XC.HEAD_PROPERTY);
             }
-            pck.appendChild(cl);
-            updateCounters(pck, memberCount, testedCount);
-        } catch (XPathExpressionException ex) {
-            SwissKnife.reportThrowable(ex);
+            endElement(handler, XC.HEAD);
+            if (top != null) {
+                writePackage(handler, top);
+            }
+            endElement(handler, XC.REPORT);
+            handler.endDocument();
         }
     }
 
-    private Element createPackagesFor(String qName) throws XPathExpressionException {
-        StringTokenizer st = new StringTokenizer(qName, ".");
-        int parts = st.countTokens();
-        int pn = 1;
-        String path = "/" + XC.REPORT + "/" + XC.PACKAGE + "[@" + XC.PACKAGE_NAME + "='']";
-        Element packageE = checkForPackage(path, "", resultReport);
-        while (st.hasMoreTokens() && pn < parts) {
-            String pnm = st.nextToken().trim();
-            // /report/package[@name='']/package[@name='java']/package[@name='lang']  ...
-            path = path + "/" + XC.PACKAGE + "[@" + XC.PACKAGE_NAME + "='" + pnm + "']";
-            packageE = checkForPackage(path, pnm, packageE);
-            pn++;
-        }
-        return packageE;
+    private static void writePackage(TransformerHandler handler, MergedPackage pck) throws SAXException {
+        Map<String, String> attributes = new TreeMap<>();
+        attributes.put(XC.PACKAGE_NAME, pck.name);
+        attributes.put(XC.PACKAGE_MEMBERS, String.valueOf(pck.memberCount));
+        attributes.put(XC.PACKAGE_TESTED, String.valueOf(pck.testedCount));
+        startElement(handler, XC.PACKAGE, attributes);
+        for (Object child : pck.children) {
+            if (child instanceof MergedPackage) {
+                writePackage(handler, (MergedPackage) child);
+            } else {
+                writeClass(handler, (MergedClass) child);
+            }
+        }
+        endElement(handler, XC.PACKAGE);
     }
 
-    private Element checkForPackage(String path, String name, Element parentPkg) throws XPathExpressionException {
-        XPath xpath = xPathfactory.newXPath();
-        XPathExpression expr = xpath.compile(path);
-        Element par = (Element) expr.evaluate(result, XPathConstants.NODE);
-        if (par == null) {
-            par = result.createElement(XC.PACKAGE);
-            par.setAttribute(XC.PACKAGE_NAME, name);
-            par.setAttribute(XC.PACKAGE_MEMBERS, "0");
-            par.setAttribute(XC.PACKAGE_TESTED, "0");
-            parentPkg.appendChild(par);
-        }
-        return par;
+    private static void writeClass(TransformerHandler handler, MergedClass cl) throws SAXException {
+        Map<String, String> attributes = new TreeMap<>(cl.attributes);
+        if (!cl.members.isEmpty()) {
+            attributes.put(XC.CLASS_MEMBERS, String.valueOf(cl.members.size()));
+            attributes.put(XC.CLASS_TESTED, String.valueOf(cl.getTestedCount()));
+        }
+        startElement(handler, XC.CLASS, attributes);
+        for (MergedMember member : cl.members.values()) {
+            startElement(handler, member.kind, member.attributes);
+            endElement(handler, member.kind);
+        }
+        endElement(handler, XC.CLASS);
     }
 
-    private static void updateCounters(Element pck, int memberCount, int testedCount) {
-        Element p = pck;
-        while (p.getNodeName().equals(XC.PACKAGE)) {
-            int count = Integer.parseInt(p.getAttribute(XC.PACKAGE_MEMBERS)) + memberCount;
-            int tested = Integer.parseInt(p.getAttribute(XC.PACKAGE_TESTED)) + testedCount;
-            p.setAttribute(XC.PACKAGE_MEMBERS, String.valueOf(count));
-            p.setAttribute(XC.PACKAGE_TESTED, String.valueOf(tested));
-            p = (Element) p.getParentNode();
+    private static void startElement(TransformerHandler handler, String name, Map<String, String> attributes) throws SAXException {
+        AttributesImpl atts = new AttributesImpl();
+        for (Map.Entry<String, String> a : attributes.entrySet()) {
+            atts.addAttribute("", "", a.getKey(), "", a.getValue());
         }
+        handler.startElement("", "", name, atts);
     }
 
-    private static class CovDocument {
-
-        DocumentBuilder builder;
-        Document doc;
-        final XPathFactory xPathfactory = XPathFactory.newInstance();
-        String fileName;
-
-        public CovDocument(String fileName) throws ParserConfigurationException, SAXException, IOException {
-            builder = DocumentBuilderFactory.newInstance().newDocumentBuilder();
-            doc = builder.parse(fileName);
-            this.fileName = fileName;
-        }
-
-        public String getConfigValue(String key, String def) throws XPathExpressionException {
-            XPath xpath = xPathfactory.newXPath();
-            XPathExpression expr = xpath.compile("/" + XC.REPORT
-                    + "/" + XC.HEAD
-                    + "/" + XC.HEAD_PROPERTY);
-            NodeList nl = (NodeList) expr.evaluate(doc, XPathConstants.NODESET);
-            for (int i = 0; i < nl.getLength(); i++) {
-                Element h = (Element) nl.item(i);
-                if (h.getAttribute(XC.HEAD_PROPERTY_NAME).equals(key)) {
-                    String v = h.getAttribute(XC.HEAD_PROPERTY_VALUE);
-                    if (v == null || v.isEmpty()) {
-                        return def;
-                    } else {
-                        return v;
-                    }
-                }
-            }
-            return def;
+    private static void endElement(TransformerHandler handler, String name) throws SAXException {
+        handler.endElement("", "", name);
+    }
+
+    /**
+     * A package of the merged report. Classes and subpackages are kept in
+     * the order they were added.
+     */
+    private static class MergedPackage {
+
+        final String name;
+        final MergedPackage parent;
+        final List<Object> children = new ArrayList<>();
+        final Map<String, MergedPackage> packages = new HashMap<>();
+        int memberCount;
+        int testedCount;
+
+        MergedPackage(String name) {
+            this(name, null);
         }
 
-        private Set<Element> getClasses() throws XPathExpressionException {
-            return getElementsByKind(XC.CLASS);
+        private MergedPackage(String name, MergedPackage parent) {
+            this.name = name;
+            this.parent = parent;
         }
 
-        private Set<Element> getElementsByKind(String name) throws XPathExpressionException {
-            Set<Element> result = new HashSet<>();
-            XPath xpath = xPathfactory.newXPath();
-            XPathExpression expr = xpath.compile("//" + name);
-            NodeList nl = (NodeList) expr.evaluate(doc, XPathConstants.NODESET);
-            for (int i = 0; i < nl.getLength(); i++) {
-                result.add((Element) nl.item(i));
+        MergedPackage getPackage(String name) {
+            MergedPackage sub = packages.get(name);
+            if (sub == null) {
+                sub = new MergedPackage(name, this);
+                packages.put(name, sub);
+                children.add(sub);
             }
-            return result;
+            return sub;
         }
+    }
 
-        private static String getQname(Element e) {
-            StringBuilder qName = new StringBuilder(e.getAttribute(XC.PACKAGE_NAME));
-            Node parentNode;
-            Node currNode = e;
-            while ((parentNode = currNode.getParentNode()) != null) {
-                if (!(parentNode instanceof Element)) {
-                    break;
-                }
-                Element p = (Element) parentNode;
-                if (!p.getNodeName().equals(XC.PACKAGE)
-                        && !p.getNodeName().equals(XC.CLASS)) {
-                    break;
+    /**
+     * A class merged from several reports. The attributes are taken from
+     * the last report. Until a report is found whose class element ends with
+     * a member rather than a text node, members of every report replace the
+     * ones read before. After that, members are added only if they are new,
+     * and coverage is added up.
+     */
+    private static class MergedClass {
+
+        final String qName;
+        Map<String, String> attributes;
+        String modifiers;
+        boolean firstTime = true;
+        final Map<String, MergedMember> members = new HashMap<>();
+        String[] attributesProblem;
+        String[] membersProblem;
+
+        MergedClass(String qName) {
+            this.qName = qName;
+        }
+
+        void setAttributes(XMLStreamReader r) {
+            Map<String, String> ats = getAttributes(r);
+            Set<String> atsL = new HashSet<>();
+            for (String aName : ats.keySet()) {
+
+                // ignore some known attributes
+                if (!aName.equals(XC.CLASS_NAME)
+                        && !aName.equals(XC.CLASS_MEMBERS)
+                        && !aName.equals(XC.CLASS_TESTED)
+                        && !aName.equals(XC.CLASS_TYPEARGS)) {
+                    atsL.add(aName);
                 }
-                String pName = p.getAttribute(XC.PACKAGE_NAME);
-                if (pName != null && pName.isEmpty()) {
-                    break;
+            }
+            if (modifiers == null) {
+                modifiers = atsL.toString();
+            } else if (attributesProblem == null && !modifiers.equals(atsL.toString())) { // compare modifiers
+                attributesProblem = new String[]{"Incompatible attributes for class " + qName + ":",
+                        modifiers + " and " + atsL};
+            }
+            attributes = ats;
+        }
+
+        int getTestedCount() {
+            int testedCount = 0;
+            for (MergedMember member : members.values()) {
+                if ("1".equals(member.attributes.get(XC.MEMBER_TESTED))) {
+                    testedCount++;
                 }
-                qName.insert(0, pName + ".");
-                currNode = p;
             }
-            return qName.toString();
+            return testedCount;
+        }
+    }
+
+    /**
+     * A member merged from several reports.
+     */
+    private static class MergedMember {
+
+        final String kind;
+        final Map<String, String> attributes;
+
+        MergedMember(String kind, Map<String, String> attributes) {
+            this.kind = kind;
+            this.attributes = attributes;
         }
     }
 }
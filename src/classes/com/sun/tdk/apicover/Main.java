@@ -29,6 +29,7 @@ import com.sun.tdk.signaturetest.classpath.ClasspathImpl;
 import com.sun.tdk.signaturetest.core.*;
 import com.sun.tdk.signaturetest.core.context.Option;
 import com.sun.tdk.signaturetest.loaders.BinaryClassDescrLoader;
+import com.sun.tdk.signaturetest.loaders.PersistentClassCache;
 import com.sun.tdk.signaturetest.model.ClassDescription;
 import com.sun.tdk.signaturetest.model.MemberDescription;
 import com.sun.tdk.signaturetest.sigfile.Format;
@@ -43,6 +44,7 @@ import com.sun.tdk.signaturetest.sigfile.FileManager;
 import java.io.*;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
 
 public class Main implements Log {
 
@@ -59,7 +61,9 @@ public class Main implements Log {
     static protected boolean debug = false;
     public final static int DefaultCacheSize = 4096;
     private boolean isWorstCaseMode = true; // worst case is default
+    private int threads = 1;
     protected ClasspathImpl classpath;
+    private PersistentClassCache persistentCache;
 
     /**
      * URL pointing to signature file.
@@ -249,6 +253,27 @@ public class Main implements Log {
             }
         }
 
+        {
+            String threadsValue = ao.getValue(Option.THREADS);
+            if (threadsValue != null) {
+                try {
+                    threads = Integer.parseInt(threadsValue);
+                    if (threads <= 0) {
+                        throw new NumberFormatException();
+                    }
+                } catch (NumberFormatException e) {
+                    error(i18n.getString("Main.error.arg.invalid", Option.THREADS.getKey()));
+                }
+            }
+        }
+
+        {
+            String cacheDir = ao.getValue(Option.CLASS_CACHE_DIR);
+            if (cacheDir != null && classpath != null) {
+                persistentCache = new PersistentClassCache(new File(cacheDir), classpath);
+            }
+        }
+
         {
             String report = ao.getValue(Option.REPORT);
             if (report != null) {
@@ -324,6 +349,8 @@ public class Main implements Log {
                 nl + i18n.getString("Main.usage.detail", Option.DETAIL) +
                 nl + i18n.getString("Main.usage.format", Option.FORMAT) +
                 nl + i18n.getString("Main.usage.report", Option.REPORT) +
+                nl + i18n.getString("Main.usage.threads", Option.THREADS) +
+                nl + i18n.getString("Main.usage.classCacheDir", Option.CLASS_CACHE_DIR) +
                 nl + i18n.getString("Main.usage.debug", Option.DEBUG) +
                 nl + i18n.getString("Main.usage.help", Option.HELP) +
                 nl + i18n.getString("Main.usage.version", Option.VERSION) +
@@ -372,42 +399,19 @@ public class Main implements Log {
             /*
              * Read TS and send each call to reporter.
              */
-            BinaryClassDescrLoader tsLoader = new BinaryClassDescrLoader(classpath,
-                    DefaultCacheSize);
-
-            tsLoader.setLog(log);
-            tsLoader.setIgnoreAnnotations(true);
-            ClassHierarchy tsHierarchy = new ClassHierarchyImpl(tsLoader,
-                    ClassHierarchy.ALL_PUBLIC);
-            int size = 0;
-            List<MemberDescription> calls = new ArrayList<>();
-            while (classpath.hasNext()) {
-                String name = classpath.nextClassName();
-                if (!isTSMember(name)) {
-                    continue;
-                }
-
+            int size;
+            if (threads > 1) {
+                size = scanParallel();
+            } else {
+                size = scan();
+            }
+            if (persistentCache != null) {
                 try {
-                    ClassDescription tsClass = tsHierarchy.load(name);
-                    refCounter.addTSClass(tsClass, false);
-                    List<MemberDescription> fCalls = tsLoader.loadCalls(name);
-                    fCalls = callFilter.filterCalls(fCalls, name);
-                    calls.addAll(fCalls);
-                } catch (ClassNotFoundException | ClassFormatError e) {
-                    if (debug) {
-                        log.println(i18n.getString("Main.warning.class.invalid", name));
-                    }
+                    persistentCache.save();
+                } catch (IOException e) {
                     debug(e);
-                } catch (Throwable t) {
-                    debug(t);
-                    error(i18n.getString("Main.error.check", t.getMessage()));
+                    log.println(i18n.getString("Main.warning.classcache", ao.getValue(Option.CLASS_CACHE_DIR)));
                 }
-
-            }
-            //classpath.close();
-            for (MemberDescription md : calls) {
-                size++;
-                refCounter.addRef(md);
             }
 
             if (!searachOnly()) {
@@ -424,6 +428,196 @@ public class Main implements Log {
         }
     }
 
+    private BinaryClassDescrLoader createTSLoader() {
+        BinaryClassDescrLoader tsLoader = new BinaryClassDescrLoader(classpath,
+                DefaultCacheSize);
+
+        tsLoader.setLog(log);
+        tsLoader.setIgnoreAnnotations(true);
+        tsLoader.setPersistentCache(persistentCache);
+        return tsLoader;
+    }
+
+    /**
+     * Reads TS classes and their calls one by one. Calls are counted after
+     * all the TS classes are known.
+     *
+     * @return number of counted calls
+     */
+    private int scan() {
+        BinaryClassDescrLoader tsLoader = createTSLoader();
+        ClassHierarchy tsHierarchy = new ClassHierarchyImpl(tsLoader,
+                ClassHierarchy.ALL_PUBLIC);
+        int size = 0;
+        List<MemberDescription> calls = new ArrayList<>();
+        while (classpath.hasNext()) {
+            String name = classpath.nextClassName();
+            if (!isTSMember(name)) {
+                continue;
+            }
+
+            try {
+                List<MemberDescription> fCalls = new ArrayList<>();
+                // parses the class once, the hierarchy gets it from the cache
+                tsLoader.loadWithCalls(name, fCalls);
+                ClassDescription tsClass = tsHierarchy.load(name);
+                refCounter.addTSClass(tsClass, false);
+                fCalls = callFilter.filterCalls(fCalls, name);
+                calls.addAll(fCalls);
+            } catch (ClassNotFoundException | ClassFormatError e) {
+                if (debug) {
+                    log.println(i18n.getString("Main.warning.class.invalid", name));
+                }
+                debug(e);
+            } catch (Throwable t) {
+                debug(t);
+                error(i18n.getString("Main.error.check", t.getMessage()));
+            }
+
+        }
+        //classpath.close();
+        for (MemberDescription md : calls) {
+            size++;
+            refCounter.addRef(md);
+        }
+        return size;
+    }
+
+    /**
+     * Parses TS classes on a pool of worker threads. The 1st pass loads the
+     * classes, the 2nd one reads the calls from their constant pools only.
+     * Results of both passes are consumed in the class path order, so calls
+     * are counted as they come and never buffered for the whole test suite.
+     *
+     * @return number of counted calls
+     */
+    private int scanParallel() throws IOException {
+        List<String> names = new ArrayList<>();
+        while (classpath.hasNext()) {
+            String name = classpath.nextClassName();
+            if (isTSMember(name)) {
+                names.add(name);
+            }
+        }
+
+        final ThreadLocal<TSWorker> worker = new ThreadLocal<TSWorker>() {
+            @Override
+            protected TSWorker initialValue() {
+                return new TSWorker(createTSLoader());
+            }
+        };
+
+        final List<String> loaded = new ArrayList<>();
+        OrderedExecutor<TSClass> executor = new OrderedExecutor<>(threads, "apicover-load", new OrderedExecutor.Sink<TSClass>() {
+            public void accept(TSClass c) {
+                try {
+                    if (c.problem != null) {
+                        throw c.problem;
+                    }
+                    refCounter.addTSClass(c.description, false);
+                    loaded.add(c.name);
+                } catch (Throwable t) {
+                    reportProblem(c.name, t);
+                }
+            }
+        });
+        try {
+            for (final String name : names) {
+                executor.submit(new Callable<TSClass>() {
+                    public TSClass call() {
+                        TSClass c = new TSClass(name);
+                        try {
+                            c.description = worker.get().hierarchy.load(name);
+                        } catch (Throwable t) {
+                            c.problem = t;
+                        }
+                        return c;
+                    }
+                });
+            }
+            executor.finish();
+        } finally {
+            executor.shutdown();
+        }
+
+        final int[] size = {0};
+        executor = new OrderedExecutor<>(threads, "apicover-calls", new OrderedExecutor.Sink<TSClass>() {
+            public void accept(TSClass c) {
+                try {
+                    if (c.problem != null) {
+                        throw c.problem;
+                    }
+                    for (MemberDescription md : callFilter.filterCalls(c.calls, c.name)) {
+                        size[0]++;
+                        refCounter.addRef(md);
+                    }
+                } catch (Throwable t) {
+                    reportProblem(c.name, t);
+                }
+            }
+        });
+        try {
+            for (final String name : loaded) {
+                executor.submit(new Callable<TSClass>() {
+                    public TSClass call() {
+                        TSClass c = new TSClass(name);
+                        try {
+                            c.calls = worker.get().loader.loadCalls(name);
+                        } catch (Throwable t) {
+                            c.problem = t;
+                        }
+                        return c;
+                    }
+                });
+            }
+            executor.finish();
+        } finally {
+            executor.shutdown();
+        }
+        return size[0];
+    }
+
+    private void reportProblem(String name, Throwable t) {
+        if (t instanceof ClassNotFoundException || t instanceof ClassFormatError) {
+            if (debug) {
+                log.println(i18n.getString("Main.warning.class.invalid", name));
+            }
+            debug(t);
+        } else {
+            debug(t);
+            error(i18n.getString("Main.error.check", t.getMessage()));
+        }
+    }
+
+    /**
+     * Loader and hierarchy used by a single worker thread.
+     */
+    private static class TSWorker {
+
+        final BinaryClassDescrLoader loader;
+        final ClassHierarchy hierarchy;
+
+        TSWorker(BinaryClassDescrLoader loader) {
+            this.loader = loader;
+            this.hierarchy = new ClassHierarchyImpl(loader, ClassHierarchy.ALL_PUBLIC);
+        }
+    }
+
+    /**
+     * Outcome of a worker task for a single TS class.
+     */
+    private static class TSClass {
+
+        final String name;
+        ClassDescription description;
+        List<MemberDescription> calls;
+        Throwable problem;
+
+        TSClass(String name) {
+            this.name = name;
+        }
+    }
+
     private boolean searachOnly() {
         return ao.getValue(Option.API) == null;
     }
@@ -31,6 +31,7 @@ import com.sun.tdk.signaturetest.model.MemberDescription;
 import com.sun.tdk.signaturetest.util.SwissKnife;
 
 import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class RefCounter {
 
@@ -44,7 +45,9 @@ public class RefCounter {
     private MODE mode = MODE.WORST;
     private final Erasurator erasurator = new Erasurator();
     private final Map<String, ClassDescription> ts = new HashMap<>();
-    final Map<String, Integer> results = new HashMap<>();
+    final Map<String, AtomicInteger> results = new HashMap<>();
+    // erased members of API classes mapped to the counters of the original members
+    private final Map<String, Map<MemberDescription, List<AtomicInteger>>> erasedMembers = new HashMap<>();
 
     public RefCounter() {
         super();
@@ -108,25 +111,56 @@ public class RefCounter {
         }
 
         for (String calledCl : calledClasses) {
-            ClassDescription apiClass = api.get(calledCl);
-            if (apiClass != null) {
-                erasurator.parseTypeParameters(apiClass);
-                for (Iterator<MemberDescription> j = apiClass.getMembersIterator(); j.hasNext(); ) {
-                    MemberDescription orig = j.next();
-                    MemberDescription erased = erasurator.processMember(orig);
-                    if (erased.equals(call)) {
-                        Integer count = results.get(orig.toString());
-                        if (count == null) {
-                            count = 0;
-                        }
-                        count++;
-                        results.put(orig.toString(), count);
+            Map<MemberDescription, List<AtomicInteger>> members = getErasedMembers(calledCl);
+            if (members != null) {
+                List<AtomicInteger> counters = members.get(call);
+                if (counters != null) {
+                    for (AtomicInteger count : counters) {
+                        count.incrementAndGet();
                     }
                 }
             }
         }
     }
 
+    /**
+     * Returns erased members of the given API class. Members are erased once,
+     * when the class is referenced the first time, and several members
+     * erased to the same signature share the key.
+     */
+    private Map<MemberDescription, List<AtomicInteger>> getErasedMembers(String className) {
+        Map<MemberDescription, List<AtomicInteger>> members = erasedMembers.get(className);
+        if (members == null) {
+            ClassDescription apiClass = api.get(className);
+            if (apiClass == null) {
+                return null;
+            }
+            members = new HashMap<>();
+            erasurator.parseTypeParameters(apiClass);
+            for (Iterator<MemberDescription> j = apiClass.getMembersIterator(); j.hasNext(); ) {
+                MemberDescription orig = j.next();
+                MemberDescription erased = erasurator.processMember(orig);
+                List<AtomicInteger> counters = members.get(erased);
+                if (counters == null) {
+                    counters = new ArrayList<>(1);
+                    members.put(erased, counters);
+                }
+                counters.add(getCounter(orig.toString()));
+            }
+            erasedMembers.put(className, members);
+        }
+        return members;
+    }
+
+    private AtomicInteger getCounter(String member) {
+        AtomicInteger count = results.get(member);
+        if (count == null) {
+            count = new AtomicInteger();
+            results.put(member, count);
+        }
+        return count;
+    }
+
     private Set<String> findDecl(ClassDescription tsClass, MemberDescription md) {
         boolean foundSuper = true;
         Set<String> result = new TreeSet<>();
@@ -178,15 +212,15 @@ public class RefCounter {
     }
 
     boolean isCovered(MemberDescription md) {
-        return results.get(md.toString()) != null;
+        return getCoverCount(md) > 0;
     }
 
     int getCoverCount(MemberDescription md) {
-        Integer res = results.get(md.toString());
+        AtomicInteger res = results.get(md.toString());
         if (res == null) {
             return 0;
         } else {
-            return res;
+            return res.get();
         }
     }
 
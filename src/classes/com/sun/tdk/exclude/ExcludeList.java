@@ -28,20 +28,64 @@ import com.sun.tdk.signaturetest.core.Exclude;
 import com.sun.tdk.signaturetest.core.ExcludeException;
 import com.sun.tdk.signaturetest.model.ClassDescription;
 import com.sun.tdk.signaturetest.model.MemberDescription;
+import com.sun.tdk.signaturetest.util.ConcurrentCache;
 
 import java.util.*;
-import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
 
 /**
  * This is a sample realization of Exclude extension.
+ * <p>
+ * Exclusions without wildcards are kept in a hash table and cost a single
+ * lookup per member. Other exclusions are grouped by the literal prefix every
+ * matching signature must start with, so only the patterns which can match a
+ * member are tried.
  *
  * @author Leonid Mesnik
  */
 public class ExcludeList implements Exclude {
 
+    /**
+     * Characters which have a special meaning in a regular expression.
+     */
+    private static final String META_CHARS = "\\.[]{}()*+?^$|";
+
+    /**
+     * An exclusion with its position in the list, so the first one of
+     * several matching exclusions is reported.
+     */
+    private static class Entry {
+
+        final int index;
+        final Pattern pattern;
+
+        Entry(int index, Pattern pattern) {
+            this.index = index;
+            this.pattern = pattern;
+        }
+    }
+
     private final List<Pattern> excludeList;
+    /**
+     * Exclusions without wildcards by the signature they match.
+     */
+    private final Map<String, Entry> literals = new HashMap<>();
+    /**
+     * Other exclusions by their literal prefix.
+     */
+    private final Map<String, List<Entry>> wildcards = new HashMap<>();
+    /**
+     * Lengths of the prefixes in {@code wildcards}, in ascending order.
+     */
+    private int[] prefixLengths = new int[0];
+    private static final int STRIPPED_CACHE_SIZE = 1024;
+    /**
+     * Recently used signatures with type arguments stripped, by the original
+     * signature. Members of a class and its subclasses share most of them.
+     */
+    private final ConcurrentCache<String, String> stripped =
+            new ConcurrentCache<>(STRIPPED_CACHE_SIZE, ConcurrentCache.Policy.LRU);
 
     public ExcludeList() {
         excludeList = new ArrayList<>();
@@ -55,10 +99,86 @@ public class ExcludeList implements Exclude {
         // escape .(){}{}%$
         String regpack1 = name.replaceAll("(\\.|\\(|\\)|\\{|\\}|\\[|\\]|\\%|\\$)", "\\\\$1");
         String regpack = regpack1.replaceAll("\\\\\\\\", "");
+        Pattern p;
         try {
-            excludeList.add(Pattern.compile(regpack));
+            p = Pattern.compile(regpack);
         } catch (PatternSyntaxException e) {
             System.err.println("Error in -ExcludeSig: " + e.getMessage());
+            return;
+        }
+
+        Entry entry = new Entry(excludeList.size(), p);
+        excludeList.add(p);
+
+        StringBuilder prefix = new StringBuilder();
+        if (isLiteral(regpack, prefix)) {
+            if (!literals.containsKey(prefix.toString())) {
+                literals.put(prefix.toString(), entry);
+            }
+        } else {
+            List<Entry> entries = wildcards.get(prefix.toString());
+            if (entries == null) {
+                entries = new ArrayList<>();
+                wildcards.put(prefix.toString(), entries);
+                addPrefixLength(prefix.length());
+            }
+            entries.add(entry);
+        }
+    }
+
+    /**
+     * Unescapes the given regular expression into {@code literal} up to its
+     * first special construct.
+     *
+     * @return {@code true} if the whole expression matches just the
+     * {@code literal} string, otherwise {@code literal} is a prefix of every
+     * string the expression matches
+     */
+    private static boolean isLiteral(String regex, StringBuilder literal) {
+        if (regex.indexOf('|') >= 0) {
+            // alternatives may have nothing in common
+            return false;
+        }
+        for (int i = 0; i < regex.length(); i++) {
+            char c = regex.charAt(i);
+            if (c == '\\' && i + 1 < regex.length() && !Character.isLetterOrDigit(regex.charAt(i + 1))) {
+                c = regex.charAt(++i);
+                if (isQuantifier(regex, i + 1)) {
+                    return false;
+                }
+                literal.append(c);
+            } else if (META_CHARS.indexOf(c) >= 0) {
+                return false;
+            } else if (isQuantifier(regex, i + 1)) {
+                return false;
+            } else {
+                literal.append(c);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks whether the character at the given position makes the preceding
+     * one optional or repeated.
+     */
+    private static boolean isQuantifier(String regex, int pos) {
+        if (pos >= regex.length()) {
+            return false;
+        }
+        char c = regex.charAt(pos);
+        return c == '*' || c == '?' || c == '+' || c == '{';
+    }
+
+    private void addPrefixLength(int length) {
+        int pos = Arrays.binarySearch(prefixLengths, length);
+        if (pos < 0) {
+            pos = -pos - 1;
+            int[] lengths = new int[prefixLengths.length + 1];
+            System.arraycopy(prefixLengths, 0, lengths, 0, pos);
+            lengths[pos] = length;
+            System.arraycopy(prefixLengths, pos, lengths, pos + 1, prefixLengths.length - pos);
+            prefixLengths = lengths;
         }
     }
 
@@ -66,19 +186,71 @@ public class ExcludeList implements Exclude {
      * @see com.sun.tdk.exclude.Exclude#excluded(java.lang.String)
      */
     public void check(ClassDescription testedClass, MemberDescription name) throws ExcludeException {
-        String signature = name.getQualifiedName().replaceAll("<[^<>]+>", "");
+        if (excludeList.isEmpty()) {
+            return;
+        }
+
+        String signature = stripTypeArguments(name.getQualifiedName());
         if (name.isMethod() || name.isConstructor()) {
-            signature += '(';
-            signature += name.getArgs().replaceAll("<[^<>]+>", "");
-            signature += ')';
+            signature += '(' + stripTypeArguments(name.getArgs()) + ')';
+        }
+
+        Entry found = literals.get(signature);
+        for (int length : prefixLengths) {
+            if (length > signature.length()) {
+                break;
+            }
+            List<Entry> entries = wildcards.get(signature.substring(0, length));
+            if (entries == null) {
+                continue;
+            }
+            for (Entry entry : entries) {
+                if (found != null && entry.index > found.index) {
+                    break;
+                }
+                if (entry.pattern.matcher(signature).matches()) {
+                    found = entry;
+                    break;
+                }
+            }
+        }
+
+        if (found != null) {
+            throw new ExcludeException(found.pattern.pattern());
+        }
+    }
+
+    /**
+     * Removes innermost type argument lists from the given signature, like
+     * {@code s.replaceAll("<[^<>]+>", "")} does.
+     */
+    private String stripTypeArguments(String s) {
+        if (s.indexOf('<') < 0) {
+            return s;
         }
-        for (Object o : excludeList) {
-            Pattern p = (Pattern) o;
-            Matcher m = p.matcher(signature);
-            if (m.matches()) {
-                throw new ExcludeException(p.pattern());
+        String result = stripped.get(s);
+        if (result == null) {
+            StringBuilder sb = new StringBuilder(s.length());
+            int i = 0;
+            while (i < s.length()) {
+                char c = s.charAt(i);
+                if (c == '<') {
+                    int j = i + 1;
+                    while (j < s.length() && s.charAt(j) != '<' && s.charAt(j) != '>') {
+                        j++;
+                    }
+                    if (j > i + 1 && j < s.length() && s.charAt(j) == '>') {
+                        i = j + 1;
+                        continue;
+                    }
+                }
+                sb.append(c);
+                i++;
             }
+            result = sb.toString();
+            stripped.putIfAbsent(s, result);
         }
+        return result;
     }
 
     public String[] parseParameters(String[] args) {
@@ -24,19 +24,32 @@
  */
 package com.sun.tdk.signaturetest;
 
+import com.sun.tdk.signaturetest.core.ClassHierarchy;
+import com.sun.tdk.signaturetest.core.ClassHierarchyImpl;
+import com.sun.tdk.signaturetest.core.MemberCollectionBuilder;
+import com.sun.tdk.signaturetest.loaders.VirtualClassDescriptionLoader;
+import com.sun.tdk.signaturetest.sigfile.bin.BinaryFormat;
+import com.sun.tdk.signaturetest.sigfile.bin.BinaryReader;
+import com.sun.tdk.signaturetest.sigfile.bin.BinaryWriter;
 import com.sun.tdk.signaturetest.sigfile.f40.F40Format;
 import com.sun.tdk.signaturetest.sigfile.f21.F21Format;
 import com.sun.tdk.signaturetest.model.ClassDescription;
 import com.sun.tdk.signaturetest.sigfile.*;
 import com.sun.tdk.signaturetest.sigfile.Reader;
 import com.sun.tdk.signaturetest.sigfile.Writer;
+import com.sun.tdk.signaturetest.sigfile.f43.F43Format;
+import com.sun.tdk.signaturetest.sigfile.f43.F43Reader;
+import com.sun.tdk.signaturetest.toyxml.Elem;
 import com.sun.tdk.signaturetest.util.CommandLineParser;
 import com.sun.tdk.signaturetest.util.CommandLineParserException;
 import com.sun.tdk.signaturetest.util.I18NResourceBundle;
 import com.sun.tdk.signaturetest.util.OptionInfo;
 
 import java.io.*;
+import java.net.URL;
 import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.List;
 
 /**
  * @author Roman Makarchuk
@@ -47,11 +60,13 @@ public class Converter extends Result {
 
     private String oldFileName;
     private String newFileName;
+    private boolean binary = false;
 
     public static final I18NResourceBundle i18n = I18NResourceBundle.getBundleForClass(Converter.class);
 
     private static final String OLDFILE_OPTION = "-OldFile";
     private static final String NEWFILE_OPTION = "-NewFile";
+    private static final String BINARY_OPTION = "-Binary";
     private static final String HELP_OPTION = "-Help";
     private static final String QUESTIONMARK = "-?";
 
@@ -70,6 +85,17 @@ public class Converter extends Result {
 
     private void run() throws IOException {
 
+        URL oldFileURL = new File(oldFileName).toURI().toURL();
+        Reader in = new FileManager().getReader(oldFileURL);
+        if (binary || in instanceof BinaryReader) {
+            if (in == null) {
+                log.println(i18n.getString("Converter.error.sigfile.invalid", oldFileName));
+                return;
+            }
+            convert(in, oldFileURL, binary ? new BinaryFormat() : new F43Format());
+            return;
+        }
+
         Format oldFormat = new F21Format();
         Format newFormat = new F40Format();
 
@@ -101,6 +127,75 @@ public class Converter extends Result {
         System.err.println(i18n.getString("Converter.message.success_conversion"));
     }
 
+    /**
+     * Converts a v4.3 signature file to the binary format or back. Member
+     * lists are not stored in the signature file model directly, so they are
+     * rebuilt the same way Merge does before writing.
+     */
+    private void convert(Reader reader, URL oldFileURL, Format newFormat) throws IOException {
+
+        if (!reader.readSignatureFile(oldFileURL)) {
+            log.println(i18n.getString("Converter.error.sigfile.invalid", oldFileName));
+            return;
+        }
+
+        VirtualClassDescriptionLoader classes = new VirtualClassDescriptionLoader();
+        ClassDescription currentClass;
+        while ((currentClass = reader.readNextClass()) != null) {
+            try {
+                classes.load(currentClass.getQualifiedName());
+            } catch (ClassNotFoundException e) {
+                classes.add(currentClass);
+            }
+        }
+        List<Elem> modules = reader.getElems();
+        reader.close();
+
+        ClassHierarchy ch = new ClassHierarchyImpl(classes, ClassHierarchy.ALL_PUBLIC);
+        MemberCollectionBuilder builder = new MemberCollectionBuilder(new Merge.SilentLog());
+        for (Iterator<ClassDescription> i = classes.getClassIterator(); i.hasNext(); ) {
+            ClassDescription c = i.next();
+            c.setHierarchy(ch);
+            try {
+                builder.createMembers(c, false, true, false);
+            } catch (ClassNotFoundException e) {
+                log.println(i18n.getString("Converter.warning.classnotfound", e.getMessage()));
+            }
+        }
+
+        try (OutputStream os = new FileOutputStream(newFileName);
+             Writer writer = newFormat.getWriter()) {
+            if (writer instanceof BinaryWriter) {
+                ((BinaryWriter) writer).init(os);
+            } else {
+                writer.init(new PrintWriter(new OutputStreamWriter(os, StandardCharsets.UTF_8)));
+            }
+
+            writer.setApiVersion(reader.getApiVersion());
+
+            if (reader.hasFeature(FeaturesHolder.ConstInfo)) {
+                writer.addFeature(FeaturesHolder.ConstInfo);
+            }
+            if (reader.hasFeature(FeaturesHolder.TigerInfo)) {
+                writer.addFeature(FeaturesHolder.TigerInfo);
+            }
+            if (!modules.isEmpty()) {
+                writer.addFeature(FeaturesHolder.ModuleInfo);
+            }
+
+            writer.writeHeader();
+
+            for (Elem m : modules) {
+                ((ModWriter) writer).write(F43Reader.fromTDom(m));
+            }
+            for (Iterator<ClassDescription> i = classes.getClassIterator(); i.hasNext(); ) {
+                writer.write(i.next());
+            }
+        }
+
+        System.err.println(i18n.getString("Converter.message.success_conversion"));
+    }
+
     private boolean parseParameters(String[] args) {
 
         CommandLineParser parser = new CommandLineParser(this, "-");
@@ -115,6 +210,7 @@ public class Converter extends Result {
 
         parser.addOption(OLDFILE_OPTION, OptionInfo.requiredOption(1), optionsDecoder);
         parser.addOption(NEWFILE_OPTION, OptionInfo.requiredOption(1), optionsDecoder);
+        parser.addOption(BINARY_OPTION, OptionInfo.optionalFlag(), optionsDecoder);
 
         try {
             parser.processArgs(args);
@@ -132,6 +228,8 @@ public class Converter extends Result {
             oldFileName = args[0];
         } else if (optionName.equalsIgnoreCase(NEWFILE_OPTION)) {
             newFileName = args[0];
+        } else if (optionName.equalsIgnoreCase(BINARY_OPTION)) {
+            binary = true;
         }
     }
 
@@ -140,7 +238,8 @@ public class Converter extends Result {
 
         String sb = i18n.getString("Converter.usage.start") +
                 nl + i18n.getString("Converter.usage.oldfilename", OLDFILE_OPTION) +
-                nl + i18n.getString("Converter.usage.newfilename", NEWFILE_OPTION);
+                nl + i18n.getString("Converter.usage.newfilename", NEWFILE_OPTION) +
+                nl + i18n.getString("Converter.usage.binary", BINARY_OPTION);
         System.err.println(sb);
     }
 
@@ -100,6 +100,16 @@ public class Merge extends SigTest {
             if (mo.getValue(Option.WRITE) != null) {
                 checkValidWriteFile();
             }
+            if (mo.getValue(Option.THREADS) != null) {
+                try {
+                    threads = Integer.parseInt(mo.getValue(Option.THREADS));
+                } catch (NumberFormatException e) {
+                    threads = 0;
+                }
+                if (threads <= 0) {
+                    throw new CommandLineParserException(i18n.getString("SigTest.error.arg.invalid", Option.THREADS.getKey()));
+                }
+            }
         } catch (CommandLineParserException e) {
             getLog().println(e.getMessage());
             return failed(e.getMessage());
@@ -185,7 +195,7 @@ public class Merge extends SigTest {
             }
         }
 
-        JSR68Merger merger = new JSR68Merger(this, this, fh);
+        JSR68Merger merger = new JSR68Merger(this, this, fh, threads);
         VirtualClassDescriptionLoader result = merger.merge(files);
 
         if (!isPassed()) {
@@ -281,6 +291,7 @@ public class Merge extends SigTest {
                 nl + i18n.getString("Merge.usage.files", Option.FILES.getKey()) +
                 nl + i18n.getString("Merge.usage.write", Option.WRITE.getKey()) +
                 nl + i18n.getString("Merge.usage.binary", Option.BINARY.getKey()) +
+                nl + i18n.getString("Merge.usage.threads", Option.THREADS.getKey()) +
                 nl + i18n.getString("Sigtest.usage.delimiter") +
                 nl + i18n.getString("SetupAndTest.helpusage.version", Option.VERSION.getKey()) +
                 nl + i18n.getString("Setup.usage.help", Option.HELP.getKey()) +
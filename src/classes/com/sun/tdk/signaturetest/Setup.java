@@ -29,6 +29,7 @@ import com.sun.tdk.signaturetest.classpath.ClasspathImpl;
 import com.sun.tdk.signaturetest.core.*;
 import com.sun.tdk.signaturetest.core.context.BaseOptions;
 import com.sun.tdk.signaturetest.core.context.Option;
+import com.sun.tdk.signaturetest.loaders.BinaryClassDescrLoader;
 import com.sun.tdk.signaturetest.model.ClassDescription;
 import com.sun.tdk.signaturetest.model.MemberDescription;
 import com.sun.tdk.signaturetest.model.MemberType;
@@ -42,13 +43,19 @@ import com.sun.tdk.signaturetest.util.CommandLineParser;
 import com.sun.tdk.signaturetest.util.CommandLineParserException;
 import com.sun.tdk.signaturetest.util.I18NResourceBundle;
 import com.sun.tdk.signaturetest.util.OptionInfo;
+import com.sun.tdk.signaturetest.util.OrderedExecutor;
 import com.sun.tdk.signaturetest.util.SwissKnife;
 
 import java.io.*;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * This class creates signature file. The classes in the signature file are
@@ -82,13 +89,17 @@ import java.util.*;
  * <dt><code><b>-Version</b></code> &lt;version&gt; <dd> Specify API version. If
  * this parameter is not specified, API version is assumed to be that reported
  * by {@code getProperty("java.version")}.
+ * <dt><code><b>-Incremental</b></code> &lt;file&gt; <dd> Signature file
+ * created by a previous run with this option and the same settings. Classes
+ * which didn't change since then are copied from the file instead of being
+ * processed again, see {@link SetupManifest}.
  * <dt><code><b>-Verbose</b></code> <dd> Print names of ignored classes. </dl>
  *
  * @author Maxim Sokolnikov
  * @author Serguei Ivashin
  * @author Mikhail Ershov
  */
-public class Setup extends SigTest {
+public class Setup extends SigTest implements Cloneable {
 
     // Setup specific options
     public static final String CLOSEDFILE_OPTION = "-ClosedFile";
@@ -102,6 +113,7 @@ public class Setup extends SigTest {
     // This option is used only for debugging purposes. It's not recommended
     // to use it to create signature files for production!
     public static final String XREFLECTION_OPTION = "-Xreflection";
+    public static final String INCREMENTAL_OPTION = "-Incremental";
     /**
      * contains signature file.
      */
@@ -111,6 +123,17 @@ public class Setup extends SigTest {
     private Boolean explicitlyGenConsts = null;
     private boolean keepSigFile = false;
     private String copyrightStr = null;
+    private Erasurator erasurator = new Erasurator();
+    private File previousSigFile = null;
+    /**
+     * Names of all the classes requested from the loaders in the incremental
+     * mode, or {@code null}.
+     */
+    private Set<String> requestedClasses = null;
+    /**
+     * Log of the workers preparing classes in parallel, or {@code null}.
+     */
+    private WorkerLog workerLog = null;
 
     /**
      * runs test in from command line.
@@ -138,6 +161,7 @@ public class Setup extends SigTest {
         if (parseParameters(args)) {
             afterParseParameters();
             create(signatureFile);
+            savePersistentCache();
             getLog().flush();
         } else if (args.length > 0 && Option.VERSION.accept(args[0])) {
             pw.println(Version.getVersionInfo());
@@ -165,6 +189,8 @@ public class Setup extends SigTest {
 
         parser.addOption(APIVERSION_OPTION, OptionInfo.option(1), optionsDecoder);
         parser.addOption(CLASSCACHESIZE_OPTION, OptionInfo.option(1), optionsDecoder);
+        parser.addOption(THREADS_OPTION, OptionInfo.option(1), optionsDecoder);
+        parser.addOption(CLASSCACHEDIR_OPTION, OptionInfo.option(1), optionsDecoder);
         parser.addOption(XNOTIGER_OPTION, OptionInfo.optionalFlag(), optionsDecoder);
         parser.addOption(XVERBOSE_OPTION, OptionInfo.optionalFlag(), optionsDecoder);
         parser.addOption(SigTest.VERBOSE_OPTION, OptionInfo.optionVariableParams(0, 1), optionsDecoder);
@@ -177,6 +203,7 @@ public class Setup extends SigTest {
         parser.addOption(PLUGIN_OPTION, OptionInfo.option(1), optionsDecoder);
         parser.addOption(ERRORALL_OPTION, OptionInfo.optionalFlag(), optionsDecoder);
         parser.addOption(COPYRIGHT_OPTION, OptionInfo.option(1), optionsDecoder);
+        parser.addOption(INCREMENTAL_OPTION, OptionInfo.option(1), optionsDecoder);
 
         parser.addOptions(bo.getOptions(), optionsDecoder);
 
@@ -258,6 +285,8 @@ public class Setup extends SigTest {
             }
         } else if (optionName.equalsIgnoreCase(COPYRIGHT_OPTION)) {
             copyrightStr = args[0];
+        } else if (optionName.equalsIgnoreCase(INCREMENTAL_OPTION)) {
+            previousSigFile = new File(args[0]);
         } else {
             super.decodeCommonOptions(optionName, args);
         }
@@ -290,6 +319,9 @@ public class Setup extends SigTest {
                 nl + i18n.getString("Setup.usage.exclude", Option.EXCLUDE) +
                 nl + i18n.getString("Setup.usage.nonclosedfile", NONCLOSEDFILE_OPTION) +
                 nl + i18n.getString("Setup.usage.apiversion", APIVERSION_OPTION) +
+                nl + i18n.getString("Setup.usage.threads", THREADS_OPTION) +
+                nl + i18n.getString("Setup.usage.classcachedir", CLASSCACHEDIR_OPTION) +
+                nl + i18n.getString("Setup.usage.incremental", INCREMENTAL_OPTION) +
                 nl + i18n.getString("Sigtest.usage.delimiter") +
                 nl + i18n.getString("Setup.usage.verbose", new Object[]{VERBOSE_OPTION, NOWARN}) +
                 nl + i18n.getString("Setup.usage.debug", Option.DEBUG) +
@@ -351,6 +383,14 @@ public class Setup extends SigTest {
             cp.setListToBegin();
 
             ClassDescriptionLoader testableLoader = getClassDescrLoader();
+            if (previousSigFile != null) {
+                if (testableLoader instanceof BinaryClassDescrLoader && pluginClass == null) {
+                    requestedClasses = ConcurrentHashMap.newKeySet();
+                    ((BinaryClassDescrLoader) testableLoader).setRequestedClasses(requestedClasses);
+                } else {
+                    getLog().println(i18n.getString("Setup.log.incremental.unsupported"));
+                }
+            }
             testableHierarchy = new ClassHierarchyImpl(testableLoader);
             testableMCBuilder = new MemberCollectionBuilder(this, "source:setup");
 
@@ -365,7 +405,24 @@ public class Setup extends SigTest {
             Collection<String> packageClasses = getPackageClasses(allClasses);
 
             if (isClosedFile) {
-                ClassSet closedSetOfClasses = new ClassSet(testableHierarchy, true);
+                ClassDependencies dependencies = new ClassDependencies(testableHierarchy);
+                if (isParallelModeSupported()) {
+                    try {
+                        dependencies.loadAll(packageClasses, threads, new ThreadLocal<ClassHierarchy>() {
+                            @Override
+                            protected ClassHierarchy initialValue() {
+                                return new ClassHierarchyImpl(createWorkerLoader());
+                            }
+                        });
+                    } catch (IOException e) {
+                        if (bo.isSet(Option.DEBUG)) {
+                            SwissKnife.reportThrowable(e);
+                        }
+                        getLog().println(e);
+                        return error(i18n.getString("Setup.error.message.cantcreatesigfile"));
+                    }
+                }
+                ClassSet closedSetOfClasses = new ClassSet(dependencies, true);
 
                 // add all classes including non-accessible
                 for (String name : packageClasses) {
@@ -376,9 +433,7 @@ public class Setup extends SigTest {
                 Set<String> invisibleClasses = new HashSet<>();
                 Set<String> classes = closedSetOfClasses.getClasses();
                 for (String name : classes) {
-                    ClassDescription c = load(name);
-
-                    if (!testableHierarchy.isAccessible(c)) {
+                    if (!dependencies.isAccessible(name)) {
                         invisibleClasses.add(name);
                     }
                 }
@@ -392,12 +447,32 @@ public class Setup extends SigTest {
                 sortedClasses = sortClasses(packageClasses);
             }
 
+            // classes copied from the previous signature file
+            Map<String, List<String>> copiedClasses = Collections.emptyMap();
+            SetupManifest manifest = null;
+            MessageDigest sigFileDigest = null;
+            LineCounter lineCounter = null;
+            if (requestedClasses != null) {
+                manifest = new SetupManifest();
+                manifest.settings = SetupManifest.digest(getIncrementalSettings());
+                copiedClasses = readPreviousFile(manifest, sortedClasses);
+                sigFileDigest = SetupManifest.newDigest();
+            }
+
             try (Writer writer = getFileManager().getDefaultFormat().getWriter();
                  FileOutputStream fos = new FileOutputStream(sigFile.getFile());
-                 OutputStreamWriter osw = new OutputStreamWriter(fos, StandardCharsets.UTF_8)) {
+                 OutputStreamWriter osw = new OutputStreamWriter(sigFileDigest == null ? fos
+                         : new DigestOutputStream(fos, sigFileDigest), StandardCharsets.UTF_8)) {
                 //write header to the signature file
 
-                writer.init(new PrintWriter(osw));
+                PrintWriter out;
+                if (manifest != null) {
+                    lineCounter = new LineCounter(osw);
+                    out = new PrintWriter(lineCounter);
+                } else {
+                    out = new PrintWriter(osw);
+                }
+                writer.init(out);
 
                 writer.setApiVersion(apiVersion);
                 if (isConstantValuesTracked()) {
@@ -414,57 +489,45 @@ public class Setup extends SigTest {
                 }
 
                 writer.writeHeader();
+                if (manifest != null) {
+                    manifest.headerLines = lineCounter.lines;
+                }
 
-                Erasurator erasurator = new Erasurator();
                 // scan class and writes definition to the signature file
 
                 // 1st analyze all the classes
-                for (String name : sortedClasses) {
-                    ClassDescription c = load(name);
-
-                    if (!testableHierarchy.isAccessible(c)) {
-                        continue;
-                    }
-
-                    // do not write excluded classes
-                    if (excludedPackages.checkName(name) || apiExcl.checkName(name)) {
-                        excludedClasses.add(name);
-                        continue;
-                    }
-
-                    if (name.indexOf('$') < 0) {
-                        outerClassesNumber++;
-                    } else {
-                        innerClassesNumber++;
-                    }
-
+                ClassWriter classWriter = new ClassWriter(writer, out, excludedClasses, manifest, lineCounter);
+                if (isParallelModeSupported()) {
+                    OrderedExecutor<SetupClass> executor = new OrderedExecutor<>(threads, "sigtest-setup", classWriter);
+                    workerLog = new WorkerLog(this);
                     try {
-                        testableMCBuilder.createMembers(c, addInherited(), true, false);
-                        normalizer.normThrows(c, true);
-                        removeUndocumentedAnnotations(c, testableHierarchy);
-                    } catch (ClassNotFoundException e) {
-                        if (bo.isSet(Option.DEBUG)) {
-                            SwissKnife.reportThrowable(e);
-                        }
-                        setupProblem(i18n.getString("Setup.error.message.classnotfound", e.getMessage()));
-                    }
-
-                    if (useErasurator()) {
-                        c = erasurator.erasure(c);
-                    }
-
-                    Transformer t = PluginAPI.BEFORE_WRITE.getTransformer();
-                    if (t != null) {
-                        try {
-                            c = t.transform(c);
-                        } catch (ClassNotFoundException ex) {
-                            // nothing
+                        final ThreadLocal<Setup> worker = new ThreadLocal<Setup>() {
+                            @Override
+                            protected Setup initialValue() {
+                                return createWorker();
+                            }
+                        };
+                        for (final String name : sortedClasses) {
+                            final List<String> lines = copiedClasses.get(name);
+                            executor.submit(new Callable<SetupClass>() {
+                                public SetupClass call() {
+                                    if (lines != null) {
+                                        return new SetupClass(name, lines);
+                                    }
+                                    SetupClass c = worker.get().prepareClass(name);
+                                    c.warnings = workerLog.takeWarnings();
+                                    return c;
+                                }
+                            });
                         }
+                        executor.finish();
+                    } finally {
+                        executor.shutdown();
                     }
-
-                    Filter f = PluginAPI.BEFORE_WRITE.getFilter();
-                    if (f == null || f.accept(c)) {
-                        writer.write(c);
+                } else {
+                    for (String name : sortedClasses) {
+                        List<String> lines = copiedClasses.get(name);
+                        classWriter.accept(lines != null ? new SetupClass(name, lines) : prepareClass(name));
                     }
                 }
 
@@ -476,6 +539,10 @@ public class Setup extends SigTest {
                 getLog().println(e);
                 return error(i18n.getString("Setup.error.message.cantcreatesigfile"));
             }
+
+            if (manifest != null) {
+                writeManifest(manifest, sigFileDigest, new File(sigFile.getFile()));
+            }
         } // cp t-w-r
 
         printErrors();
@@ -540,6 +607,384 @@ public class Setup extends SigTest {
         return failed(i18n.getString("Setup.report.message.numerrors", Integer.toString(errors)));
     }
 
+    /**
+     * Loads the given class and builds its description to be written to the
+     * signature file. This method doesn't change the state shared by
+     * {@code this} instance, so it can be called by a worker thread.
+     */
+    private SetupClass prepareClass(String name) {
+        SetupClass result = new SetupClass(name);
+        ClassDescription c = load(name);
+
+        if (!testableHierarchy.isAccessible(c)) {
+            return result;
+        }
+
+        // do not write excluded classes
+        if (excludedPackages.checkName(name) || apiExcl.checkName(name)) {
+            result.excluded = true;
+            return result;
+        }
+
+        result.accepted = true;
+        try {
+            testableMCBuilder.createMembers(c, addInherited(), true, false);
+            normalizer.normThrows(c, true);
+            removeUndocumentedAnnotations(c, testableHierarchy);
+        } catch (ClassNotFoundException e) {
+            BaseOptions bo = AppContext.getContext().getBean(BaseOptions.class);
+            if (bo.isSet(Option.DEBUG)) {
+                SwissKnife.reportThrowable(e);
+            }
+            result.problem = i18n.getString("Setup.error.message.classnotfound", e.getMessage());
+        }
+
+        if (useErasurator()) {
+            c = erasurator.erasure(c);
+        }
+
+        Transformer t = PluginAPI.BEFORE_WRITE.getTransformer();
+        if (t != null) {
+            try {
+                c = t.transform(c);
+            } catch (ClassNotFoundException ex) {
+                // nothing
+            }
+        }
+
+        Filter f = PluginAPI.BEFORE_WRITE.getFilter();
+        if (f == null || f.accept(c)) {
+            result.description = c;
+        }
+        return result;
+    }
+
+    /**
+     * Creates a copy of {@code this} instance which prepares classes on a
+     * worker thread with its own loader, hierarchy and other stateful helpers.
+     */
+    private Setup createWorker() {
+        Setup worker;
+        try {
+            worker = (Setup) clone();
+        } catch (CloneNotSupportedException e) {
+            throw new AssertionError(e);
+        }
+
+        ClassDescriptionLoader workerLoader = createWorkerLoader();
+        worker.setClassDescrLoader(workerLoader);
+        worker.testableHierarchy = new ClassHierarchyImpl(workerLoader);
+        worker.testableMCBuilder = new MemberCollectionBuilder(workerLog, "source:setup");
+        worker.normalizer = new ThrowsNormalizer();
+        worker.erasurator = new Erasurator();
+        return worker;
+    }
+
+    @Override
+    protected BinaryClassDescrLoader createWorkerLoader() {
+        BinaryClassDescrLoader workerLoader = super.createWorkerLoader();
+        workerLoader.setRequestedClasses(requestedClasses);
+        return workerLoader;
+    }
+
+    /**
+     * Returns the settings which affect contents of the signature file,
+     * except the classpath. The incremental mode doesn't use a signature
+     * file created with other settings.
+     */
+    private String getIncrementalSettings() {
+        BaseOptions bo = AppContext.getContext().getBean(BaseOptions.class);
+        StringBuilder sb = new StringBuilder(Version.Number);
+        sb.append(' ').append(getComponentName());
+        for (Option o : new Option[]{Option.PACKAGE, Option.PURE_PACKAGE, Option.EXCLUDE,
+                Option.API_INCLUDE, Option.API_EXCLUDE, Option.MODULES}) {
+            sb.append(' ').append(o.getKey()).append('=').append(bo.getValues(o));
+        }
+        sb.append(" allPublic=").append(bo.isSet(Option.ALL_PUBLIC));
+        sb.append(" closed=").append(isClosedFile);
+        sb.append(" constants=").append(isConstantValuesTracked());
+        sb.append(" tiger=").append(isTigerFeaturesTracked);
+        sb.append(" apiVersion=").append(apiVersion);
+        sb.append(" copyright=").append(copyrightStr);
+        return sb.toString();
+    }
+
+    /**
+     * Finds the classes which can be copied from the previous signature file,
+     * those are the classes which don't depend on the changed classes through
+     * inheritance or nesting. Nothing is copied if an annotation, an exception
+     * or an inaccessible class has changed. Digests of the classes listed by
+     * the previous manifest are added to the given one.
+     *
+     * @return lines of the classes which can be copied, mapped by class names
+     */
+    private Map<String, List<String>> readPreviousFile(SetupManifest manifest, List<String> sortedClasses) {
+        BaseOptions bo = AppContext.getContext().getBean(BaseOptions.class);
+        File manifestFile = SetupManifest.getFile(previousSigFile);
+        try {
+            SetupManifest previous = SetupManifest.read(manifestFile);
+            if (previous == null) {
+                getLog().println(i18n.getString("Setup.log.incremental.nomanifest", manifestFile));
+                return Collections.emptyMap();
+            }
+            byte[] bytes = Files.readAllBytes(previousSigFile.toPath());
+            if (!manifest.settings.equals(previous.settings)
+                    || !SetupManifest.toString(SetupManifest.newDigest().digest(bytes)).equals(previous.sigFileDigest)) {
+                getLog().println(i18n.getString("Setup.log.incremental.outdated", manifestFile));
+                return Collections.emptyMap();
+            }
+
+            Set<String> changed = new HashSet<>();
+            for (Map.Entry<String, SetupManifest.Digest> e : previous.digests.entrySet()) {
+                String name = e.getKey();
+                SetupManifest.Digest digest = e.getValue();
+                String value = SetupManifest.digest(getClasspath(), name);
+                if (!value.equals(digest.value)) {
+                    // classes using annotations and exceptions don't extend them,
+                    // classes using inaccessible ones refer to their supertypes
+                    SetupManifest.Digest current = getDigest(name, value);
+                    if (digest.kind != SetupManifest.CLASS || current.kind != SetupManifest.CLASS) {
+                        getLog().println(i18n.getString("Setup.log.incremental.changedtype", name));
+                        return Collections.emptyMap();
+                    }
+                    changed.add(name);
+                    digest = current;
+                }
+                manifest.digests.put(name, digest);
+            }
+
+            // nested classes depend on their declaring classes
+            NavigableSet<String> names = new TreeSet<>(sortedClasses);
+            names.addAll(previous.digests.keySet());
+            Set<String> affected = new HashSet<>(changed);
+            for (String name : changed) {
+                String prefix = name + '$';
+                for (String nested : names.tailSet(prefix, true)) {
+                    if (!nested.startsWith(prefix)) {
+                        break;
+                    }
+                    affected.add(nested);
+                }
+            }
+
+            // subclasses inherit members
+            if (!affected.isEmpty()) {
+                testableHierarchy.buildIndex(sortedClasses);
+                for (String name : new ArrayList<>(affected)) {
+                    affected.addAll(Arrays.asList(testableHierarchy.getAllSubclasses(name)));
+                }
+            }
+
+            List<String> lines = new ArrayList<>();
+            try (BufferedReader in = new BufferedReader(new InputStreamReader(new ByteArrayInputStream(bytes), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = in.readLine()) != null) {
+                    lines.add(line);
+                }
+            }
+            Map<String, List<String>> result = new HashMap<>();
+            int pos = previous.headerLines;
+            for (Map.Entry<String, Integer> e : previous.blocks.entrySet()) {
+                int end = pos + e.getValue();
+                if (end > lines.size()) {
+                    getLog().println(i18n.getString("Setup.log.incremental.outdated", manifestFile));
+                    return Collections.emptyMap();
+                }
+                if (!affected.contains(e.getKey())) {
+                    result.put(e.getKey(), lines.subList(pos, end));
+                }
+                pos = end;
+            }
+
+            int copied = 0;
+            for (String name : sortedClasses) {
+                if (result.containsKey(name)) {
+                    copied++;
+                }
+            }
+            getLog().println(i18n.getString("Setup.log.incremental.copied",
+                    new Object[]{Integer.toString(changed.size()), Integer.toString(copied), previousSigFile}));
+            return result;
+        } catch (IOException e) {
+            if (bo.isSet(Option.DEBUG)) {
+                SwissKnife.reportThrowable(e);
+            }
+            getLog().println(i18n.getString("Setup.log.incremental.cantread", new Object[]{previousSigFile, e}));
+            return Collections.emptyMap();
+        }
+    }
+
+    /**
+     * Writes the manifest of the created signature file, or removes the
+     * outdated one if the file has errors.
+     */
+    private void writeManifest(SetupManifest manifest, MessageDigest sigFileDigest, File file) {
+        BaseOptions bo = AppContext.getContext().getBean(BaseOptions.class);
+        File manifestFile = SetupManifest.getFile(file);
+        try {
+            if (errors == 0) {
+                manifest.sigFileDigest = SetupManifest.toString(sigFileDigest.digest());
+                for (String name : new TreeSet<>(requestedClasses)) {
+                    if (!manifest.digests.containsKey(name)) {
+                        manifest.digests.put(name, getDigest(name, SetupManifest.digest(getClasspath(), name)));
+                    }
+                }
+                manifest.write(manifestFile);
+                return;
+            }
+        } catch (IOException e) {
+            if (bo.isSet(Option.DEBUG)) {
+                SwissKnife.reportThrowable(e);
+            }
+            getLog().println(i18n.getString("Setup.log.incremental.cantwrite", new Object[]{manifestFile, e}));
+        }
+        manifestFile.delete();
+    }
+
+    private SetupManifest.Digest getDigest(String name, String value) {
+        char kind = SetupManifest.CLASS;
+        if (!SetupManifest.MISSING.equals(value)) {
+            try {
+                if (testableHierarchy.isAnnotation(name)) {
+                    kind = SetupManifest.ANNOTATION;
+                } else if (testableHierarchy.isSubclass(name, "java.lang.Throwable")) {
+                    kind = SetupManifest.THROWABLE;
+                } else if (!testableHierarchy.isAccessible(name)) {
+                    kind = SetupManifest.HIDDEN;
+                }
+            } catch (ClassNotFoundException e) {
+                // can't be used by other classes
+            }
+        }
+        return new SetupManifest.Digest(value, kind);
+    }
+
+    /**
+     * Outcome of {@link #prepareClass(String)} for a single class.
+     */
+    private static class SetupClass {
+
+        final String name;
+        boolean accepted;
+        boolean excluded;
+        String problem;
+        ClassDescription description;
+        List<String> lines;
+        List<WorkerLog.Warning> warnings;
+
+        SetupClass(String name) {
+            this.name = name;
+        }
+
+        /**
+         * Creates an accepted class copied from the previous signature file.
+         */
+        SetupClass(String name, List<String> lines) {
+            this.name = name;
+            this.lines = lines;
+            accepted = true;
+        }
+    }
+
+    /**
+     * Writes prepared classes to the signature file and updates the
+     * statistics. Classes must be passed in the sorted order.
+     */
+    private class ClassWriter implements OrderedExecutor.Sink<SetupClass> {
+
+        private final Writer writer;
+        private final PrintWriter out;
+        private final SortedSet<String> excludedClasses;
+        private final SetupManifest manifest;
+        private final LineCounter lineCounter;
+
+        ClassWriter(Writer writer, PrintWriter out, SortedSet<String> excludedClasses,
+                    SetupManifest manifest, LineCounter lineCounter) {
+            this.writer = writer;
+            this.out = out;
+            this.excludedClasses = excludedClasses;
+            this.manifest = manifest;
+            this.lineCounter = lineCounter;
+        }
+
+        public void accept(SetupClass c) {
+            if (workerLog != null) {
+                workerLog.replay(c.warnings);
+            }
+            if (c.excluded) {
+                excludedClasses.add(c.name);
+            }
+            if (!c.accepted) {
+                return;
+            }
+
+            if (c.name.indexOf('$') < 0) {
+                outerClassesNumber++;
+            } else {
+                innerClassesNumber++;
+            }
+
+            if (c.problem != null) {
+                setupProblem(c.problem);
+            }
+
+            if (c.description == null && c.lines == null) {
+                return;
+            }
+            int start = lineCounter == null ? 0 : lineCounter.lines;
+            if (c.lines != null) {
+                for (String line : c.lines) {
+                    out.println(line);
+                }
+            } else {
+                writer.write(c.description);
+            }
+            if (manifest != null) {
+                manifest.blocks.put(c.name, lineCounter.lines - start);
+            }
+        }
+    }
+
+    /**
+     * Counts lines written to the signature file.
+     */
+    private static class LineCounter extends FilterWriter {
+
+        int lines;
+
+        LineCounter(java.io.Writer out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int c) throws IOException {
+            if (c == '\n') {
+                lines++;
+            }
+            super.write(c);
+        }
+
+        @Override
+        public void write(char[] cbuf, int off, int len) throws IOException {
+            for (int i = off; i < off + len; i++) {
+                if (cbuf[i] == '\n') {
+                    lines++;
+                }
+            }
+            super.write(cbuf, off, len);
+        }
+
+        @Override
+        public void write(String str, int off, int len) throws IOException {
+            for (int i = off; i < off + len; i++) {
+                if (str.charAt(i) == '\n') {
+                    lines++;
+                }
+            }
+            super.write(str, off, len);
+        }
+    }
+
     private void removeUndocumentedAnnotations(ClassDescription c, ClassHierarchy classHierarchy) {
         c.setAnnoList(removeUndocumentedAnnotations(c.getAnnoList(), classHierarchy));
         for (Iterator<MemberDescription> e = c.getMembersIterator(); e.hasNext(); ) {
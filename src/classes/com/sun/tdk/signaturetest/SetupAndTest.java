@@ -88,6 +88,7 @@ public class SetupAndTest extends Result {
         parser.addOption(SigTest.OUT_OPTION, OptionInfo.option(1), optionsDecoder);
 
         parser.addOption(SigTest.CLASSCACHESIZE_OPTION, OptionInfo.option(1), optionsDecoder);
+        parser.addOption(SigTest.CLASSCACHEDIR_OPTION, OptionInfo.option(1), optionsDecoder);
 
         parser.addOption(SignatureTest.CHECKVALUE_OPTION, OptionInfo.optionalFlag(), optionsDecoder);
         parser.addOption(SignatureTest.NOCHECKVALUE_OPTION, OptionInfo.optionalFlag(), optionsDecoder);
@@ -179,6 +180,7 @@ public class SetupAndTest extends Result {
                 || optionName.equalsIgnoreCase(Option.EXCLUDE.getKey())
                 || optionName.equalsIgnoreCase(SigTest.APIVERSION_OPTION)
                 || optionName.equalsIgnoreCase(SigTest.CLASSCACHESIZE_OPTION)
+                || optionName.equalsIgnoreCase(SigTest.CLASSCACHEDIR_OPTION)
                 || optionName.equalsIgnoreCase(Option.API_INCLUDE.getKey())
                 || optionName.equalsIgnoreCase(Option.API_EXCLUDE.getKey())) {
 
@@ -235,6 +237,7 @@ public class SetupAndTest extends Result {
                 nl + i18n.getString("SignatureTest.usage.mode", SignatureTest.MODE_OPTION) +
                 nl + i18n.getString("SetupAndTest.usage.formatplain", Option.FORMATPLAIN) +
                 nl + i18n.getString("SetupAndTest.usage.classcachesize", new Object[]{SigTest.CLASSCACHESIZE_OPTION, SigTest.DefaultCacheSize}) +
+                nl + i18n.getString("SetupAndTest.usage.classcachedir", SigTest.CLASSCACHEDIR_OPTION) +
                 nl + i18n.getString("Sigtest.usage.delimiter") +
                 nl + i18n.getString("SetupAndTest.helpusage.version", Option.VERSION) +
                 nl + i18n.getString("SetupAndTest.usage.help", Option.HELP) +
@@ -0,0 +1,211 @@
+/*
+ * Copyright (c) 2026, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.sun.tdk.signaturetest;
+
+import com.sun.tdk.signaturetest.classpath.Classpath;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Manifest of a signature file created by {@link Setup} in the incremental
+ * mode. The manifest is kept next to the signature file, its name has the
+ * {@code .manifest} suffix.
+ * <p>
+ * The manifest lists the classes written to the signature file with the
+ * number of lines each of them takes, so the next run can copy the
+ * unchanged classes from the file. It also keeps digests of the class files
+ * of all the classes read while the signature file was created, including
+ * the classes which were not found, so the next run can find the changed
+ * classes.
+ */
+class SetupManifest {
+
+    static final String SUFFIX = ".manifest";
+    /**
+     * Digest of a class which is not found.
+     */
+    static final String MISSING = "-";
+    static final char CLASS = 'C';
+    static final char ANNOTATION = 'A';
+    static final char THROWABLE = 'T';
+    /**
+     * A class which is not accessible. Other classes refer to its accessible
+     * supertypes instead, see {@code ClassCorrector}.
+     */
+    static final char HIDDEN = 'H';
+
+    private static final String MAGIC = "#SigTest setup manifest v1.0";
+    private static final String SETTINGS = "settings";
+    private static final String SIGFILE = "sigfile";
+    private static final String HEADER = "header";
+    private static final String BLOCK = "class";
+    private static final String DIGEST = "digest";
+
+    /**
+     * Digest of the settings the signature file was created with.
+     */
+    String settings;
+    /**
+     * Digest of the signature file.
+     */
+    String sigFileDigest;
+    /**
+     * Number of lines of the signature file header.
+     */
+    int headerLines;
+    /**
+     * Classes in the order they are written, mapped to their number of lines.
+     */
+    final Map<String, Integer> blocks = new LinkedHashMap<>();
+    final Map<String, Digest> digests = new TreeMap<>();
+
+    /**
+     * Digest of a class file and the kind of the class.
+     */
+    static class Digest {
+
+        final String value;
+        final char kind;
+
+        Digest(String value, char kind) {
+            this.value = value;
+            this.kind = kind;
+        }
+    }
+
+    /**
+     * Returns the manifest file of the given signature file.
+     */
+    static File getFile(File sigFile) {
+        return new File(sigFile.getPath() + SUFFIX);
+    }
+
+    /**
+     * Reads the manifest, returns {@code null} if there is no such file.
+     *
+     * @throws IOException if the file can't be read or it is not a manifest
+     */
+    static SetupManifest read(File file) throws IOException {
+        SetupManifest manifest = new SetupManifest();
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+            if (!MAGIC.equals(in.readLine())) {
+                throw new IOException(file.getPath());
+            }
+            String line;
+            while ((line = in.readLine()) != null) {
+                String[] s = line.split(" ", 4);
+                if (s[0].equals(SETTINGS) && s.length == 2) {
+                    manifest.settings = s[1];
+                } else if (s[0].equals(SIGFILE) && s.length == 2) {
+                    manifest.sigFileDigest = s[1];
+                } else if (s[0].equals(HEADER) && s.length == 2) {
+                    manifest.headerLines = Integer.parseInt(s[1]);
+                } else if (s[0].equals(BLOCK) && s.length == 3) {
+                    manifest.blocks.put(s[2], Integer.valueOf(s[1]));
+                } else if (s[0].equals(DIGEST) && s.length == 4 && s[1].length() == 1) {
+                    manifest.digests.put(s[3], new Digest(s[2], s[1].charAt(0)));
+                } else {
+                    throw new IOException(file.getPath() + ": " + line);
+                }
+            }
+        } catch (FileNotFoundException e) {
+            return null;
+        } catch (NumberFormatException e) {
+            throw new IOException(file.getPath(), e);
+        }
+        return manifest;
+    }
+
+    void write(File file) throws IOException {
+        try (PrintWriter out = new PrintWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8))) {
+            out.println(MAGIC);
+            out.println(SETTINGS + ' ' + settings);
+            out.println(SIGFILE + ' ' + sigFileDigest);
+            out.println(HEADER + ' ' + headerLines);
+            for (Map.Entry<String, Integer> e : blocks.entrySet()) {
+                out.println(BLOCK + ' ' + e.getValue() + ' ' + e.getKey());
+            }
+            for (Map.Entry<String, Digest> e : digests.entrySet()) {
+                out.println(DIGEST + ' ' + e.getValue().kind + ' ' + e.getValue().value + ' ' + e.getKey());
+            }
+            if (out.checkError()) {
+                throw new IOException(file.getPath());
+            }
+        }
+    }
+
+    /**
+     * Returns digest of the class file found by the classpath, or
+     * {@link #MISSING} if there is no such class.
+     */
+    static String digest(Classpath classpath, String className) throws IOException {
+        MessageDigest md = newDigest();
+        try (InputStream in = classpath.findClass(className)) {
+            byte[] buf = new byte[8192];
+            int n;
+            while ((n = in.read(buf)) > 0) {
+                md.update(buf, 0, n);
+            }
+        } catch (ClassNotFoundException e) {
+            return MISSING;
+        }
+        return toString(md.digest());
+    }
+
+    static String digest(String s) {
+        return toString(newDigest().digest(s.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    static String toString(byte[] digest) {
+        StringBuilder sb = new StringBuilder(digest.length * 2);
+        for (byte b : digest) {
+            sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return sb.toString();
+    }
+}
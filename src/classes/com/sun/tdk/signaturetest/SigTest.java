@@ -29,6 +29,8 @@ import com.sun.tdk.signaturetest.core.*;
 import com.sun.tdk.signaturetest.core.context.BaseOptions;
 import com.sun.tdk.signaturetest.core.context.Option;
 import com.sun.tdk.signaturetest.errors.ErrorFormatter;
+import com.sun.tdk.signaturetest.loaders.BinaryClassDescrLoader;
+import com.sun.tdk.signaturetest.loaders.PersistentClassCache;
 import com.sun.tdk.signaturetest.model.AnnotationItem;
 import com.sun.tdk.signaturetest.model.AnnotationItem.Member;
 import com.sun.tdk.signaturetest.model.ClassDescription;
@@ -41,10 +43,13 @@ import com.sun.tdk.signaturetest.util.I18NResourceBundle;
 import com.sun.tdk.signaturetest.util.Logger;
 import com.sun.tdk.signaturetest.util.SwissKnife;
 
+import java.io.File;
+import java.io.IOException;
 import java.io.PrintWriter;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -60,7 +65,8 @@ import java.util.Set;
  * <dt>{@code -Exclude} &lt;package_or_class_name&gt;
  * <dt>{@code -Classpath} &lt;path&gt; <dt>{@code -APIversion}
  * &lt;version&gt; <dt>{@code -static} <dt>{@code -ClassCacheSize}
- * &lt;number&gt; <dt>{@code -AllPublic} </dl>
+ * &lt;number&gt; <dt>{@code -ClassCacheDir} &lt;directory&gt;
+ * <dt>{@code -AllPublic} </dl>
  *
  * @author Maxim Sokolnikov
  * @author Serguei Ivashin
@@ -71,6 +77,8 @@ public abstract class SigTest extends Result implements PluginAPI, Log {
     // Command line options
     public static final String APIVERSION_OPTION = "-ApiVersion";
     public static final String CLASSCACHESIZE_OPTION = "-ClassCacheSize";
+    public static final String CLASSCACHEDIR_OPTION = "-ClassCacheDir";
+    public static final String THREADS_OPTION = "-Threads";
     public static final String VERBOSE_OPTION = "-Verbose";
     public static final String XVERBOSE_OPTION = "-Xverbose";
     public static final String XNOTIGER_OPTION = "-XnoTiger";
@@ -120,7 +128,7 @@ public abstract class SigTest extends Result implements PluginAPI, Log {
      * Either static or reflections-based class descriptions finder.
      */
     protected MemberCollectionBuilder testableMCBuilder;
-    protected final ThrowsNormalizer normalizer = new ThrowsNormalizer();
+    protected ThrowsNormalizer normalizer = new ThrowsNormalizer();
     //protected boolean isStatic = false;
     protected boolean nowarnings = false;
     protected boolean noerrors = false;
@@ -134,6 +142,17 @@ public abstract class SigTest extends Result implements PluginAPI, Log {
      * classes being loaded.
      */
     protected int cacheSize = DefaultCacheSize;
+    /**
+     * Number of worker threads used to check classes. The value {@code 1}
+     * means that all the classes are checked by the main thread.
+     */
+    protected int threads = 1;
+    /**
+     * Directory keeping classes parsed by <b>BinaryClassDescrLoader</b>
+     * between runs, or {@code null}.
+     */
+    protected File classCacheDir = null;
+    private PersistentClassCache persistentCache;
 
     public static boolean isTigerFeaturesTracked = false;
     private static boolean isJava8 = false;
@@ -170,7 +189,7 @@ public abstract class SigTest extends Result implements PluginAPI, Log {
     protected boolean isVerbose = false;
     static boolean Xverbose = false;
     protected ClassHierarchy testableHierarchy;
-    protected final Set<String> errorMessages = new HashSet<>();
+    protected final Set<String> errorMessages = Collections.synchronizedSet(new HashSet<String>());
     private ClassDescriptionLoader loader;
     protected boolean reportWarningAsError = false;
 
@@ -271,6 +290,22 @@ public abstract class SigTest extends Result implements PluginAPI, Log {
                 throw new CommandLineParserException(i18n.getString("SigTest.error.arg.invalid", optionName));
             }
 
+        } else if (optionName.equalsIgnoreCase(THREADS_OPTION)) {
+            threads = 0;
+            try {
+                threads = Integer.parseInt(args[0]);
+            } catch (NumberFormatException ex) {
+                if (bo.isSet(Option.DEBUG)) {
+                    SwissKnife.reportThrowable(ex);
+                }
+                threads = 0;
+            }
+            if (threads <= 0) {
+                throw new CommandLineParserException(i18n.getString("SigTest.error.arg.invalid", optionName));
+            }
+
+        } else if (optionName.equalsIgnoreCase(CLASSCACHEDIR_OPTION)) {
+            classCacheDir = new File(args[0]);
         } else if (optionName.equalsIgnoreCase(ERRORALL_OPTION)) {
             reportWarningAsError = true;
         } else if (optionName.equalsIgnoreCase(XNOTIGER_OPTION)) {
@@ -371,6 +406,9 @@ public abstract class SigTest extends Result implements PluginAPI, Log {
             if (loader == null) {
                 throw new LinkageError(i18n.getString("SigTest.error.mgr.linkerr.loadstatic"));
             }
+            if (loader instanceof BinaryClassDescrLoader) {
+                ((BinaryClassDescrLoader) loader).setPersistentCache(getPersistentCache());
+            }
         } else {
             //  reflection mode
 
@@ -401,6 +439,54 @@ public abstract class SigTest extends Result implements PluginAPI, Log {
         return loader;
     }
 
+    /**
+     * Classes can be processed by several threads only in static mode, when
+     * every worker can read classes with its own <b>BinaryClassDescrLoader</b>.
+     */
+    protected boolean isParallelModeSupported() {
+        return threads > 1 && getClassDescrLoader() instanceof BinaryClassDescrLoader;
+    }
+
+    /**
+     * Creates a loader for a worker thread. Workers never share loaders
+     * because class descriptions returned by a loader are modified while they
+     * are processed.
+     */
+    protected BinaryClassDescrLoader createWorkerLoader() {
+        BinaryClassDescrLoader workerLoader = new BinaryClassDescrLoader(getClasspath(), cacheSize);
+        workerLoader.setPersistentCache(getPersistentCache());
+        return workerLoader;
+    }
+
+    /**
+     * Returns the cache shared by all the <b>BinaryClassDescrLoader</b>s, or
+     * {@code null} if classes are not kept between runs.
+     */
+    private synchronized PersistentClassCache getPersistentCache() {
+        if (persistentCache == null && classCacheDir != null) {
+            persistentCache = new PersistentClassCache(classCacheDir, getClasspath());
+        }
+        return persistentCache;
+    }
+
+    /**
+     * Writes the classes parsed by this run to the class cache directory.
+     */
+    protected void savePersistentCache() {
+        if (persistentCache != null) {
+            try {
+                persistentCache.save();
+            } catch (IOException e) {
+                BaseOptions bo = AppContext.getContext().getBean(BaseOptions.class);
+                if (bo.isSet(Option.DEBUG)) {
+                    SwissKnife.reportThrowable(e);
+                }
+                getLog().println(i18n.getString("SigTest.warning", i18n.getString("SigTest.error.classcache.save", classCacheDir)));
+            }
+            persistentCache = null;
+        }
+    }
+
     protected ClassDescription load(String name) {
         BaseOptions bo = AppContext.getContext().getBean(BaseOptions.class);
         try {
@@ -31,6 +31,8 @@ import com.sun.tdk.signaturetest.core.context.BaseOptions;
 import com.sun.tdk.signaturetest.core.context.Option;
 import com.sun.tdk.signaturetest.core.context.TestOptions;
 import com.sun.tdk.signaturetest.errors.*;
+import com.sun.tdk.signaturetest.loaders.BatchLoading;
+import com.sun.tdk.signaturetest.loaders.BinaryClassDescrLoader;
 import com.sun.tdk.signaturetest.loaders.LoadingHints;
 import com.sun.tdk.signaturetest.model.*;
 import com.sun.tdk.signaturetest.plugin.Filter;
@@ -46,6 +48,7 @@ import java.io.FileWriter;
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.util.*;
+import java.util.concurrent.Callable;
 
 /**
  * <b>SignatureTest</b> is the main class of signature test.
@@ -135,7 +138,7 @@ import java.util.*;
  * @author Serguei Ivashin
  * @author Mikhail Ershov
  */
-public class SignatureTest extends SigTest {
+public class SignatureTest extends SigTest implements Cloneable {
 
     // Test specific options
     public static final String CHECKVALUE_OPTION = "-CheckValue";
@@ -147,6 +150,7 @@ public class SignatureTest extends SigTest {
     public static final String WRITE_OPTION = "-Write";
     public static final String UPDATE_FILE_OPTION = "-Update";
     public static final String SECURE_PACKAGES_OPTION = "-Secure";
+    public static final String STREAM_SIGFILE_OPTION = "-StreamSigFile";
     private String logName = null;
     private String outFormat = null;
     private boolean extensibleInterfaces = false;
@@ -183,9 +187,13 @@ public class SignatureTest extends SigTest {
     private boolean isSupersettingEnabled = false;
     private boolean isThrowsRemoved = false;
     private ClassHierarchy signatureClassesHierarchy;
-    private final Erasurator erasurator = new Erasurator();
+    private Erasurator erasurator = new Erasurator();
     protected Exclude exclude;
     private int readMode = MultipleFileReader.MERGE_MODE;
+    /**
+     * Don't keep the signature files in memory.
+     */
+    private boolean streamSigFile = false;
     protected final PackageGroup secure = new PackageGroup(true);
 
     /**
@@ -227,6 +235,7 @@ public class SignatureTest extends SigTest {
 
         if (parseParameters(args)) {
             check();
+            savePersistentCache();
             if (logFile) {
                 getLog().println(toString());
             }
@@ -276,6 +285,8 @@ public class SignatureTest extends SigTest {
         parser.addOption(APIVERSION_OPTION, OptionInfo.option(1), optionsDecoder);
         parser.addOption(OUT_OPTION, OptionInfo.option(1), optionsDecoder);
         parser.addOption(CLASSCACHESIZE_OPTION, OptionInfo.option(1), optionsDecoder);
+        parser.addOption(THREADS_OPTION, OptionInfo.option(1), optionsDecoder);
+        parser.addOption(CLASSCACHEDIR_OPTION, OptionInfo.option(1), optionsDecoder);
         parser.addOption(EXTENSIBLE_INTERFACES_OPTION, OptionInfo.optionalFlag(), optionsDecoder);
         parser.addOption(XNOTIGER_OPTION, OptionInfo.optionalFlag(), optionsDecoder);
         parser.addOption(XVERBOSE_OPTION, OptionInfo.optionalFlag(), optionsDecoder);
@@ -291,6 +302,7 @@ public class SignatureTest extends SigTest {
         parser.addOption(ERRORALL_OPTION, OptionInfo.optionalFlag(), optionsDecoder);
         parser.addOption(ORDANN_OPTION, OptionInfo.optionVariableParams(1, OptionInfo.UNLIMITED), optionsDecoder);
         parser.addOption(SECURE_PACKAGES_OPTION, OptionInfo.optionVariableParams(1, OptionInfo.UNLIMITED), optionsDecoder);
+        parser.addOption(STREAM_SIGFILE_OPTION, OptionInfo.optionalFlag(), optionsDecoder);
 
         parser.addOptions(bo.getOptions(), optionsDecoder);
         parser.addOptions(to.getOptions(), optionsDecoder);
@@ -437,6 +449,8 @@ public class SignatureTest extends SigTest {
             orderImportant.addAll(Arrays.asList(CommandLineParser.parseListOption(args)));
         } else if (optionName.equalsIgnoreCase(SECURE_PACKAGES_OPTION)) {
             secure.addPackages(CommandLineParser.parseListOption(args));
+        } else if (optionName.equalsIgnoreCase(STREAM_SIGFILE_OPTION)) {
+            streamSigFile = true;
         } else {
             super.decodeCommonOptions(optionName, args);
         }
@@ -474,6 +488,9 @@ public class SignatureTest extends SigTest {
                 nl + i18nSt.getString("SignatureTest.usage.extinterfaces", EXTENSIBLE_INTERFACES_OPTION) +
                 nl + i18nSt.getString("Sigtest.usage.delimiter") +
                 nl + i18nSt.getString("SignatureTest.usage.classcachesize", new Object[]{CLASSCACHESIZE_OPTION, DefaultCacheSize}) +
+                nl + i18nSt.getString("SignatureTest.usage.threads", THREADS_OPTION) +
+                nl + i18nSt.getString("SignatureTest.usage.classcachedir", CLASSCACHEDIR_OPTION) +
+                nl + i18nSt.getString("SignatureTest.usage.streamsigfile", STREAM_SIGFILE_OPTION) +
                 nl + i18nSt.getString("SignatureTest.usage.verbose", new Object[]{VERBOSE_OPTION, NOWARN}) +
                 nl + i18nSt.getString("SignatureTest.usage.debug", Option.DEBUG.getKey()) +
                 nl + i18nSt.getString("SignatureTest.usage.error_all", ERRORALL_OPTION) +
@@ -579,6 +596,7 @@ public class SignatureTest extends SigTest {
         }
 
         MultipleFileReader in = new MultipleFileReader(log, readMode, getFileManager());
+        in.setStreamingMode(streamSigFile);
         String linesep = System.getProperty("line.separator");
         boolean result;
 
@@ -601,9 +619,12 @@ public class SignatureTest extends SigTest {
 
         //  Reading the sigfile: main loop.
         boolean buildMembers = in.isFeatureSupported(FeaturesHolder.BuildMembers);
+        boolean parallel = isParallelModeSupported() && !to.isSet(Option.CHECK_EXCESS_CLASSES_ONLY) && !isAPICheckMode();
+        // warnings are passed to the log in the order of the classes
+        WorkerLog workerLog = parallel ? new WorkerLog(this) : null;
         MemberCollectionBuilder sigfileMCBuilder = null;
         if (buildMembers) {
-            sigfileMCBuilder = new MemberCollectionBuilder(this, "source:sigfile");
+            sigfileMCBuilder = new MemberCollectionBuilder(parallel ? workerLog : this, "source:sigfile");
         }
 
         Erasurator localErasurator = new Erasurator();
@@ -616,8 +637,11 @@ public class SignatureTest extends SigTest {
             ClassSet closedSet = new ClassSet(signatureClassesHierarchy, true);
 
             in.rewind();
-            while ((currentClass = in.nextClass()) != null) {
-                closedSet.addClass(currentClass.getQualifiedName());
+            String className;
+            List<String> classNames = new ArrayList<>();
+            while ((className = in.nextClassName()) != null) {
+                closedSet.addClass(className);
+                classNames.add(className);
             }
 
             Set<String> missingClasses = closedSet.getMissingClasses();
@@ -637,56 +661,79 @@ public class SignatureTest extends SigTest {
                 return error(i18nSt.getString("SignatureTest.error.non_transitively_closed_set"));
             }
 
+            // all classes of the signature file are loaded by now
+            signatureClassesHierarchy.buildIndex(classNames);
+
+            // classes are checked in the order of the signature file
+            ClassDescriptionLoader loader = getClassDescrLoader();
+            if (loader instanceof BatchLoading && !to.isSet(Option.CHECK_EXCESS_CLASSES_ONLY)) {
+                ((BatchLoading) loader).prefetch(classNames);
+            }
+
             in.rewind();
 
             boolean supportNSC = in.isFeatureSupported(FeaturesHolder.NonStaticConstants);
 
-            while ((currentClass = in.nextClass()) != null) {
-                if (Xverbose) {
-                    getLog().println(i18nSt.getString("SignatureTest.mesg.verbose.check", currentClass.getQualifiedName()));
-                    getLog().flush();
-                }
-                if (to.isSet(Option.CHECK_EXCESS_CLASSES_ONLY)) {
-                    trackedClassNames.add(currentClass.getQualifiedName());
-                } else {
-                    if (buildMembers && sigfileMCBuilder != null) {
-                        try {
-                            if (isAPICheckMode()) {
-                                sigfileMCBuilder.setBuildMode(MemberCollectionBuilder.BuildMode.SIGFILE);
-                            }
-                            sigfileMCBuilder.createMembers(currentClass, addInherited(), false, true);
-                        } catch (ClassNotFoundException e) {
-                            if (bo.isSet(Option.DEBUG)) {
-                                SwissKnife.reportThrowable(e);
+            ParallelVerifier verifier = null;
+            if (parallel) {
+                verifier = new ParallelVerifier(in, supportNSC, workerLog);
+            }
+
+            try {
+                while ((currentClass = nextSigfileClass(in)) != null) {
+                    if (Xverbose) {
+                        getLog().println(i18nSt.getString("SignatureTest.mesg.verbose.check", currentClass.getQualifiedName()));
+                        getLog().flush();
+                    }
+                    if (to.isSet(Option.CHECK_EXCESS_CLASSES_ONLY)) {
+                        trackedClassNames.add(currentClass.getQualifiedName());
+                    } else {
+                        if (buildMembers && sigfileMCBuilder != null) {
+                            try {
+                                if (isAPICheckMode()) {
+                                    sigfileMCBuilder.setBuildMode(MemberCollectionBuilder.BuildMode.SIGFILE);
+                                }
+                                sigfileMCBuilder.createMembers(currentClass, addInherited(), false, true);
+                            } catch (ClassNotFoundException e) {
+                                if (bo.isSet(Option.DEBUG)) {
+                                    SwissKnife.reportThrowable(e);
+                                }
                             }
                         }
-                    }
 
-                    if (useErasurator()) {
-                        currentClass = localErasurator.erasure(currentClass);
-                    }
+                        if (useErasurator()) {
+                            currentClass = localErasurator.erasure(currentClass);
+                        }
 
-                    Transformer t = PluginAPI.BEFORE_TEST.getTransformer();
-                    if (t != null) {
-                        try {
-                            t.transform(currentClass);
-                        } catch (ClassNotFoundException e) {
-                            if (bo.isSet(Option.DEBUG)) {
-                                SwissKnife.reportThrowable(e);
+                        Transformer t = PluginAPI.BEFORE_TEST.getTransformer();
+                        if (t != null) {
+                            try {
+                                t.transform(currentClass);
+                            } catch (ClassNotFoundException e) {
+                                if (bo.isSet(Option.DEBUG)) {
+                                    SwissKnife.reportThrowable(e);
+                                }
                             }
                         }
-                    }
 
-                    if (currentClass.isModuleOrPackaheInfo() && isTigerFeaturesTracked) {
-                        verifyMduleOrPackageInfo(currentClass);
-                    } else {
-                        verifyClass(currentClass, supportNSC);
-                    }
-                    if (!isAPICheckMode()) {
-                        // save memory
-                        currentClass.setMembers(null);
+                        if (verifier != null) {
+                            verifier.verify(isolate(currentClass), workerLog.takeWarnings());
+                        } else {
+                            verifyRequired(currentClass, supportNSC);
+                        }
+                        if (!isAPICheckMode()) {
+                            // save memory
+                            currentClass.setMembers(null);
+                        }
                     }
                 }
+                if (verifier != null) {
+                    verifier.finish();
+                }
+            } finally {
+                if (verifier != null) {
+                    verifier.close();
+                }
             }
 
         } catch (OutOfMemoryError e) {
@@ -898,6 +945,14 @@ public class SignatureTest extends SigTest {
 
     }
 
+    private void verifyRequired(ClassDescription required, boolean supportNSC) {
+        if (required.isModuleOrPackaheInfo() && isTigerFeaturesTracked) {
+            verifyMduleOrPackageInfo(required);
+        } else {
+            verifyClass(required, supportNSC);
+        }
+    }
+
     /**
      * Check if the {@code required} class described in signature file also
      * presents (and is public or protected) in the API being tested. If this
@@ -1530,6 +1585,179 @@ public class SignatureTest extends SigTest {
         return true;
     }
 
+    /**
+     * Returns the next class of the signature file. In the streaming mode
+     * every load returns a new description, so the class is loaded through
+     * the signature file hierarchy the same way the closure check loaded it.
+     */
+    private ClassDescription nextSigfileClass(MultipleFileReader in) throws IOException {
+        if (!streamSigFile) {
+            return in.nextClass();
+        }
+        String name = in.nextClassName();
+        if (name == null) {
+            return null;
+        }
+        try {
+            return signatureClassesHierarchy.load(name);
+        } catch (ClassNotFoundException e) {
+            throw new IOException(e);
+        }
+    }
+
+    /**
+     * Creates a copy of {@code this} test which checks classes on a worker
+     * thread. The copy has its own loader, hierarchies and other stateful
+     * helpers, and shares only read-only settings with {@code this} test.
+     */
+    private SignatureTest createWorker(ClassDescriptionLoader signatureLoader, WorkerLog workerLog) {
+        SignatureTest worker;
+        try {
+            worker = (SignatureTest) clone();
+        } catch (CloneNotSupportedException e) {
+            throw new AssertionError(e);
+        }
+
+        BinaryClassDescrLoader workerLoader = createWorkerLoader();
+        if (!isValueTracked) {
+            workerLoader.addLoadingHint(LoadingHints.DONT_READ_VALUES);
+        }
+        worker.setClassDescrLoader(workerLoader);
+
+        worker.erasurator = new Erasurator();
+        worker.normalizer = new ThrowsNormalizer();
+        worker.trackedClassNames = new HashSet<>();
+        worker.testableHierarchy = new ClassHierarchyImpl(workerLoader);
+        worker.testableMCBuilder = new MemberCollectionBuilder(workerLog, "source:testable");
+        worker.signatureClassesHierarchy = new ClassHierarchyImpl(signatureLoader);
+        worker.signatureClassesHierarchy.shareIndex(signatureClassesHierarchy);
+        return worker;
+    }
+
+    /**
+     * Creates a copy of the given class which can be modified by a worker
+     * without affecting the description read from the signature file. The
+     * copy shares member instances between its declared members and its
+     * member collection just like the original does.
+     */
+    private static ClassDescription isolate(ClassDescription c) {
+        Map<MemberDescription, MemberDescription> copies = new IdentityHashMap<>();
+
+        ClassDescription copy = (ClassDescription) c.clone();
+        copy.setConstructors(copyOf(c.getDeclaredConstructors(), copies));
+        copy.setMethods(copyOf(c.getDeclaredMethods(), copies));
+        copy.setFields(copyOf(c.getDeclaredFields(), copies));
+        copy.setNestedClasses(copyOf(c.getDeclaredClasses(), copies));
+
+        MemberCollection members = new MemberCollection();
+        for (Iterator<MemberDescription> e = c.getMembersIterator(); e.hasNext(); ) {
+            members.addMember(copyOf(e.next(), copies));
+        }
+        copy.setMembers(members);
+        return copy;
+    }
+
+    private static <T extends MemberDescription> T[] copyOf(T[] members, Map<MemberDescription, MemberDescription> copies) {
+        T[] result = members.clone();
+        for (int i = 0; i < result.length; i++) {
+            result[i] = copyOf(result[i], copies);
+        }
+        return result;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T extends MemberDescription> T copyOf(T member, Map<MemberDescription, MemberDescription> copies) {
+        MemberDescription copy = copies.get(member);
+        if (copy == null) {
+            copy = (MemberDescription) member.clone();
+            copies.put(member, copy);
+        }
+        return (T) copy;
+    }
+
+    /**
+     * Checks classes read from the signature file on a pool of worker
+     * threads. Each worker records errors and warnings found for a class, and
+     * the records are passed to the error manager and the log in the order the
+     * classes were read, so the report is the same as the one of the
+     * sequential check.
+     */
+    private class ParallelVerifier implements OrderedExecutor.Sink<CheckedClass> {
+
+        private final ClassDescriptionLoader signatureLoader;
+        private final boolean supportNSC;
+        private final WorkerLog workerLog;
+        private final List<SignatureTest> workers = new ArrayList<>();
+        private final ThreadLocal<SignatureTest> worker = new ThreadLocal<SignatureTest>() {
+            @Override
+            protected SignatureTest initialValue() {
+                SignatureTest w = createWorker(signatureLoader, workerLog);
+                synchronized (workers) {
+                    workers.add(w);
+                }
+                return w;
+            }
+        };
+        private final OrderedExecutor<CheckedClass> executor;
+
+        ParallelVerifier(ClassDescriptionLoader signatureLoader, boolean supportNSC, WorkerLog workerLog) {
+            this.signatureLoader = signatureLoader;
+            this.supportNSC = supportNSC;
+            this.workerLog = workerLog;
+            executor = new OrderedExecutor<>(threads, "sigtest-check", this);
+        }
+
+        /**
+         * @param sigfileWarnings warnings reported while the members of the
+         *                        given class were built, or {@code null}
+         */
+        void verify(final ClassDescription required, final List<WorkerLog.Warning> sigfileWarnings) throws IOException {
+            executor.submit(new Callable<CheckedClass>() {
+                public CheckedClass call() {
+                    SignatureTest w = worker.get();
+                    CheckedClass checked = new CheckedClass(sigfileWarnings);
+                    w.setErrorManager(checked.errors);
+                    w.verifyRequired(required, supportNSC);
+                    checked.warnings = workerLog.takeWarnings();
+                    return checked;
+                }
+            });
+        }
+
+        public void accept(CheckedClass checked) {
+            workerLog.replay(checked.sigfileWarnings);
+            workerLog.replay(checked.warnings);
+            checked.errors.replay(getErrorManager());
+        }
+
+        void finish() throws IOException {
+            executor.finish();
+            synchronized (workers) {
+                for (SignatureTest w : workers) {
+                    trackedClassNames.addAll(w.trackedClassNames);
+                }
+            }
+        }
+
+        void close() {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Errors and warnings found for a class by {@link ParallelVerifier}.
+     */
+    private static class CheckedClass {
+
+        final ErrorRecorder errors = new ErrorRecorder();
+        final List<WorkerLog.Warning> sigfileWarnings;
+        List<WorkerLog.Warning> warnings;
+
+        CheckedClass(List<WorkerLog.Warning> sigfileWarnings) {
+            this.sigfileWarnings = sigfileWarnings;
+        }
+    }
+
     static class SuperClassesNotFoundException extends ClassNotFoundException {
 
         private final String[] scNames;
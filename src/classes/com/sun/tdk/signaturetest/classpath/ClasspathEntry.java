@@ -26,6 +26,8 @@ package com.sun.tdk.signaturetest.classpath;
 
 import com.sun.tdk.signaturetest.model.ClassDescription;
 
+import java.io.File;
+import java.io.IOException;
 import java.io.PrintWriter;
 import java.util.Iterator;
 import java.util.Set;
@@ -82,6 +84,24 @@ public abstract class ClasspathEntry implements Classpath {
         return classes.isEmpty();
     }
 
+    /**
+     * Returns a string which is changed whenever contents of the entry are
+     * changed, or {@code null} if the entry can't be identified cheaply, like
+     * a directory. Identities are used to keep class descriptions between
+     * runs, see {@link ClasspathImpl#getIdentity(String)}.
+     */
+    public String getIdentity() {
+        return null;
+    }
+
+    /**
+     * Identifies the file by its path, size and time of the last
+     * modification.
+     */
+    protected static String getFileIdentity(File file) throws IOException {
+        return file.getCanonicalPath() + '|' + file.length() + '|' + file.lastModified();
+    }
+
     @Override
     public ClassDescription findClassDescription(String qualifiedClassName) throws ClassNotFoundException {
         throw new ClassNotFoundException(qualifiedClassName);
@@ -312,6 +312,24 @@ public class ClasspathImpl implements Classpath {
         throw new ClassNotFoundException(name);
     }
 
+    /**
+     * Returns identity of the entry which the class is found in, or
+     * {@code null} if the class is not found or the entry has no identity.
+     *
+     * @see ClasspathEntry#getIdentity()
+     */
+    public String getIdentity(String qualifiedClassName) {
+        String name = ExoticCharTools.decodeExotic(qualifiedClassName);
+        // an entry contains also the classes of the previous entries, so the
+        // first entry containing the class is the one it is found in
+        for (ClasspathEntry entry : entries) {
+            if (entry.contains(name)) {
+                return entry.getIdentity();
+            }
+        }
+        return null;
+    }
+
     @Override
     public ClassDescription findClassDescription(String qualifiedClassName) throws ClassNotFoundException {
         for (ClasspathEntry ce : entries) {
@@ -356,7 +374,12 @@ public class ClasspathImpl implements Classpath {
             if (new File(name).isDirectory()) {
                 return new DirectoryEntry(previosEntry, name);
             } else if (new File(name).getName().equals("modules") || name.endsWith(".jimage")) {
-                return new JimageJakeEntry(previosEntry, name);
+                try {
+                    return new JrtImageEntry(previosEntry, name);
+                } catch (IOException e) {
+                    // no jrt:/ file system for this image, try external jimage utility
+                    return new JimageJakeEntry(previosEntry, name);
+                }
             } else if (isSigFile(name)) {
                 return new SigFileEntry(previosEntry, name);
             } else {
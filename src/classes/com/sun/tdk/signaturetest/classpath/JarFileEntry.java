@@ -30,23 +30,86 @@ import com.sun.tdk.signaturetest.core.context.Option;
 import com.sun.tdk.signaturetest.model.ExoticCharTools;
 import com.sun.tdk.signaturetest.util.SwissKnife;
 
+import java.io.ByteArrayInputStream;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
 import java.util.Enumeration;
+import java.util.Iterator;
 import java.util.LinkedHashSet;
+import java.util.NoSuchElementException;
 import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
 
 /**
+ * Classpath entry for a jar or zip file.
+ * <p>
+ * The archive is mapped into memory and its central directory is read
+ * directly into a sorted index of class names, so no {@code JarEntry}
+ * objects are created. Class files are read from the mapped buffer. The
+ * archives which can't be read this way (e.g. ZIP64 or encrypted ones) are
+ * read with {@code JarFile}.
+ * <p>
+ * A mapped file stays open until the buffer is garbage collected, and on
+ * Windows it can't be deleted or replaced meanwhile, e.g. by a later task of
+ * the same Ant build. So the buffer is released by {@link #close()}, and the
+ * archives are mapped only if the running JDK allows to release the buffer.
+ * The classes of a closed entry can't be read anymore.
+ *
  * @author Maxim Sokolnikov
  * @author Roman Makarchuk
  */
 class JarFileEntry extends ClasspathEntry {
 
+    private static final int END_SIG = 0x06054b50;
+    private static final int END_SIZE = 22;
+    private static final int CEN_SIG = 0x02014b50;
+    private static final int CEN_SIZE = 46;
+    private static final int LOC_SIG = 0x04034b50;
+    private static final int LOC_SIZE = 30;
+    private static final int STORED = 0;
+    private static final int DEFLATED = 8;
+    private static final Unmapper UNMAPPER = Unmapper.create();
+
     /**
-     * Specified jar file. *
+     * Specified jar file, used only if the archive can't be mapped. *
      */
     private JarFile jarfile;
+    /**
+     * Content of the archive.
+     */
+    private ByteBuffer archive;
+    /**
+     * Qualified names of the classes in the order of the central directory.
+     */
+    private String[] names;
+    /**
+     * Offsets of the central directory records for {@code names}.
+     */
+    private int[] records;
+    /**
+     * Indexes of {@code names} sorted by name.
+     */
+    private int[] sorted;
+    /**
+     * Classes which are shadowed by previous classpath entries or duplicated
+     * in the archive. They can be found but they are not listed.
+     */
+    private BitSet hidden;
+    private String identity;
     private final BaseOptions bo = AppContext.getContext().getBean(BaseOptions.class);
 
     public JarFileEntry(ClasspathEntry previous, String jarfile) throws IOException {
@@ -55,6 +118,115 @@ class JarFileEntry extends ClasspathEntry {
     }
 
     public void init(String jarfile) throws IOException {
+        identity = getFileIdentity(new File(jarfile));
+        try (RandomAccessFile file = new RandomAccessFile(jarfile, "r");
+             FileChannel channel = file.getChannel()) {
+            if (UNMAPPER != null && channel.size() <= Integer.MAX_VALUE) {
+                archive = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()).order(ByteOrder.LITTLE_ENDIAN);
+            }
+        }
+
+        if (archive == null || !readCentralDirectory()) {
+            unmap();
+            readJarFile(jarfile);
+            return;
+        }
+
+        classes = new ClassNames();
+        currentPosition = classes.iterator();
+    }
+
+    /**
+     * Reads the central directory of the mapped archive.
+     *
+     * @return false if the archive uses features not supported here.
+     */
+    private boolean readCentralDirectory() {
+        int end = findEndOfCentralDirectory();
+        if (end < 0) {
+            return false;
+        }
+
+        int count = archive.getShort(end + 10) & 0xFFFF;
+        long dirSize = archive.getInt(end + 12) & 0xFFFFFFFFL;
+        long dirOffset = archive.getInt(end + 16) & 0xFFFFFFFFL;
+        if (count == 0xFFFF || dirOffset == 0xFFFFFFFFL || dirOffset + dirSize > end) {
+            return false;   // ZIP64 or broken archive
+        }
+
+        String[] allNames = new String[count];
+        int[] allRecords = new int[count];
+        int n = 0;
+        int pos = (int) dirOffset;
+        for (int i = 0; i < count; i++) {
+            if (pos + CEN_SIZE > end || archive.getInt(pos) != CEN_SIG) {
+                return false;
+            }
+            int flags = archive.getShort(pos + 8) & 0xFFFF;
+            int nameLen = archive.getShort(pos + 28) & 0xFFFF;
+            int extraLen = archive.getShort(pos + 30) & 0xFFFF;
+            int commentLen = archive.getShort(pos + 32) & 0xFFFF;
+
+            String name = readName(pos + CEN_SIZE, nameLen);
+            if (name.endsWith(JAVA_CLASSFILE_EXTENSION)) {
+                int method = archive.getShort(pos + 10) & 0xFFFF;
+                long offset = archive.getInt(pos + 42) & 0xFFFFFFFFL;
+                if ((flags & 1) != 0 || (method != STORED && method != DEFLATED) || offset == 0xFFFFFFFFL) {
+                    return false;   // encrypted entry, unknown compression or ZIP64
+                }
+                allNames[n] = name.substring(0, name.length() - JAVA_CLASSFILE_EXTENSION_LEN).replace('/', '.');
+                allRecords[n] = pos;
+                n++;
+            }
+            pos += CEN_SIZE + nameLen + extraLen + commentLen;
+        }
+
+        names = Arrays.copyOf(allNames, n);
+        records = Arrays.copyOf(allRecords, n);
+
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, new Comparator<Integer>() {
+            public int compare(Integer i1, Integer i2) {
+                int result = names[i1].compareTo(names[i2]);
+                return result != 0 ? result : i1 - i2;
+            }
+        });
+
+        sorted = new int[n];
+        hidden = new BitSet(n);
+        for (int i = 0; i < n; i++) {
+            sorted[i] = order[i];
+            if (i > 0 && names[sorted[i]].equals(names[sorted[i - 1]])) {
+                hidden.set(sorted[i]);
+            } else if (previousEntry != null && previousEntry.contains(names[sorted[i]])) {
+                hidden.set(sorted[i]);
+            }
+        }
+        return true;
+    }
+
+    private int findEndOfCentralDirectory() {
+        int limit = Math.max(0, archive.limit() - END_SIZE - 0xFFFF);
+        for (int pos = archive.limit() - END_SIZE; pos >= limit; pos--) {
+            if (archive.getInt(pos) == END_SIG) {
+                return pos;
+            }
+        }
+        return -1;
+    }
+
+    private String readName(int pos, int len) {
+        byte[] bytes = new byte[len];
+        ByteBuffer b = archive.duplicate();
+        b.position(pos);
+        b.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private void readJarFile(String jarfile) throws IOException {
         this.jarfile = new JarFile(jarfile);
 
         Enumeration<JarEntry> entries = this.jarfile.entries();
@@ -72,7 +244,36 @@ class JarFileEntry extends ClasspathEntry {
     }
 
     /**
-     * Closes zip/jar file.
+     * Returns position of the given class in {@code names}, or -1.
+     */
+    private int indexOf(String name) {
+        int low = 0;
+        int high = sorted.length - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = names[sorted[mid]].compareTo(name);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                // the first one of the duplicates
+                while (mid > 0 && names[sorted[mid - 1]].equals(name)) {
+                    mid--;
+                }
+                return sorted[mid];
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public String getIdentity() {
+        return identity;
+    }
+
+    /**
+     * Closes zip/jar file or releases the mapped archive.
      */
     @Override
     public void close() {
@@ -87,6 +288,26 @@ class JarFileEntry extends ClasspathEntry {
             jarfile = null;
             classes = null;
         }
+        if (archive != null) {
+            unmap();
+            names = null;
+            records = null;
+            sorted = null;
+            classes = null;
+        }
+    }
+
+    private void unmap() {
+        if (archive != null) {
+            try {
+                UNMAPPER.unmap(archive);
+            } catch (ReflectiveOperationException | RuntimeException e) {
+                if (bo.isSet(Option.DEBUG)) {
+                    SwissKnife.reportThrowable(e);
+                }
+            }
+            archive = null;
+        }
     }
 
     /**
@@ -102,12 +323,158 @@ class JarFileEntry extends ClasspathEntry {
 
         name = ExoticCharTools.decodeExotic(name);
 
-        JarEntry jarEntry = jarfile.getJarEntry(name.replace('.', '/') + JAVA_CLASSFILE_EXTENSION);
-        if (jarEntry == null) {
+        if (jarfile != null) {
+            JarEntry jarEntry = jarfile.getJarEntry(name.replace('.', '/') + JAVA_CLASSFILE_EXTENSION);
+            if (jarEntry == null) {
+                throw new ClassNotFoundException(name);
+            }
+
+            return jarfile.getInputStream(jarEntry);
+        }
+
+        int index = indexOf(name);
+        if (index < 0) {
             throw new ClassNotFoundException(name);
         }
+        return new ByteArrayInputStream(readClassBytes(records[index]));
+    }
+
+    /**
+     * Reads the uncompressed content of the archive entry described by the
+     * central directory record at the given position.
+     */
+    private byte[] readClassBytes(int record) throws IOException {
+        int method = archive.getShort(record + 10) & 0xFFFF;
+        int compressedSize = archive.getInt(record + 20);
+        int size = archive.getInt(record + 24);
+        int offset = archive.getInt(record + 42);
+
+        if (archive.getInt(offset) != LOC_SIG) {
+            throw new IOException("Invalid local header offset " + offset);
+        }
+        int data = offset + LOC_SIZE + (archive.getShort(offset + 26) & 0xFFFF) + (archive.getShort(offset + 28) & 0xFFFF);
+
+        ByteBuffer b = archive.duplicate();
+        b.position(data);
+        if (method == STORED) {
+            byte[] result = new byte[size];
+            b.get(result);
+            return result;
+        }
 
-        return jarfile.getInputStream(jarEntry);
+        byte[] compressed = new byte[compressedSize];
+        b.get(compressed);
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(compressed);
+            byte[] result = new byte[size];
+            int n = 0;
+            while (n < size && !inflater.finished()) {
+                int k = inflater.inflate(result, n, size - n);
+                if (k == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                n += k;
+            }
+            if (n != size) {
+                throw new IOException("Corrupted archive entry at " + offset);
+            }
+            return result;
+        } catch (DataFormatException e) {
+            throw new IOException(e);
+        } finally {
+            inflater.end();
+        }
     }
 
+    /**
+     * Releases mapped buffers with {@code sun.misc.Unsafe.invokeCleaner} or,
+     * before JDK 9, with the cleaner of the buffer.
+     */
+    private static final class Unmapper {
+
+        private final Object unsafe;
+        private final Method method;
+
+        private Unmapper(Object unsafe, Method method) {
+            this.unsafe = unsafe;
+            this.method = method;
+        }
+
+        /**
+         * Returns null if the running JDK doesn't allow to release buffers.
+         */
+        static Unmapper create() {
+            try {
+                Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+                try {
+                    Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+                    Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+                    theUnsafe.setAccessible(true);
+                    return new Unmapper(theUnsafe.get(null), invokeCleaner);
+                } catch (NoSuchMethodException e) {
+                    return new Unmapper(null, Class.forName("sun.nio.ch.DirectBuffer").getMethod("cleaner"));
+                }
+            } catch (ReflectiveOperationException | RuntimeException e) {
+                return null;
+            }
+        }
+
+        void unmap(ByteBuffer buffer) throws ReflectiveOperationException {
+            if (unsafe != null) {
+                method.invoke(unsafe, buffer);
+            } else {
+                Object cleaner = method.invoke(buffer);
+                if (cleaner != null) {
+                    cleaner.getClass().getMethod("clean").invoke(cleaner);
+                }
+            }
+        }
+    }
+
+    /**
+     * Listed classes of the mapped archive.
+     */
+    private class ClassNames extends AbstractSet<String> {
+
+        private final int size = names.length - hidden.cardinality();
+
+        @Override
+        public boolean contains(Object o) {
+            if (!(o instanceof String)) {
+                return false;
+            }
+            int index = indexOf((String) o);
+            return index >= 0 && !hidden.get(index);
+        }
+
+        @Override
+        public Iterator<String> iterator() {
+            return new Iterator<String>() {
+                private int next = hidden.nextClearBit(0);
+
+                public boolean hasNext() {
+                    return next < names.length;
+                }
+
+                public String next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    String result = names[next];
+                    next = hidden.nextClearBit(next + 1);
+                    return result;
+                }
+
+                public void remove() {
+                    throw new UnsupportedOperationException();
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
 }
@@ -48,6 +48,7 @@ public class JimageJakeEntry extends ClasspathEntry {
     private final List<DirectoryEntry> module_homes = new ArrayList<>();
     private int cur_module_index = -1;
     private Path td;
+    private String identity;
     private final BaseOptions bo = AppContext.getContext().getBean(BaseOptions.class);
 
     private static final String MODULE_INFO_CLASS = "module-info.class";
@@ -86,6 +87,8 @@ public class JimageJakeEntry extends ClasspathEntry {
     @Override
     public void init(String jimageName) throws IOException {
 
+        identity = getFileIdentity(new File(jimageName));
+
         // extract to tmp
         td = Files.createTempDirectory("st_");
         String tempd = td.toAbsolutePath().toString();
@@ -178,6 +181,11 @@ public class JimageJakeEntry extends ClasspathEntry {
         return (previousEntry != null && previousEntry.contains(className));
     }
 
+    @Override
+    public String getIdentity() {
+        return identity;
+    }
+
     @Override
     public boolean isEmpty() {
         for (DirectoryEntry module : module_homes) {
@@ -0,0 +1,267 @@
+/*
+ * Copyright (c) 2026, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.sun.tdk.signaturetest.classpath;
+
+import com.sun.tdk.signaturetest.core.AppContext;
+import com.sun.tdk.signaturetest.core.context.BaseOptions;
+import com.sun.tdk.signaturetest.core.context.Option;
+import com.sun.tdk.signaturetest.model.ExoticCharTools;
+import com.sun.tdk.signaturetest.util.SwissKnife;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.ProviderNotFoundException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Classpath entry for a runtime image ({@code lib/modules} file of JDK 9 or
+ * later). Classes are read directly from the image through the {@code jrt:/}
+ * file system, nothing is extracted to the disk.
+ * <p>
+ * The file system of the image is opened with {@code jrt-fs.jar} of the JDK
+ * the image belongs to, so the image doesn't have to belong to the running
+ * JDK. Classes are found by their packages using the {@code /packages}
+ * directory of the image. Modules are scanned only when the classes are
+ * listed, one module at a time.
+ */
+class JrtImageEntry extends ClasspathEntry {
+
+    private static final String MODULE_INFO = "module-info";
+
+    private final BaseOptions bo = AppContext.getContext().getBean(BaseOptions.class);
+    private FileSystem jrt;
+    private URLClassLoader jrtLoader;
+    private final List<String> modules = new ArrayList<>();
+    /**
+     * Maps package names to modules which contain them. A module is listed
+     * for a package also when it has only subpackages of the package.
+     */
+    private final Map<String, List<String>> packageModules = new ConcurrentHashMap<>();
+    private int currentModule;
+    private String identity;
+
+    JrtImageEntry(ClasspathEntry previous, String name) throws IOException {
+        super(previous);
+        init(name);
+    }
+
+    public void init(String jimageName) throws IOException {
+        File image = new File(jimageName).getAbsoluteFile();
+        File javaHome = image.getParentFile() == null ? null : image.getParentFile().getParentFile();
+        if (!image.isFile() || javaHome == null) {
+            throw new IOException(jimageName);
+        }
+
+        identity = getFileIdentity(image);
+        jrt = openFileSystem(javaHome);
+        try (DirectoryStream<Path> ds = Files.newDirectoryStream(jrt.getPath("/modules"))) {
+            for (Path module : ds) {
+                modules.add(module.getFileName().toString());
+            }
+        }
+        Collections.sort(modules);
+        setListToBegin();
+    }
+
+    private FileSystem openFileSystem(File javaHome) throws IOException {
+        Map<String, String> env = new HashMap<>();
+        env.put("java.home", javaHome.getPath());
+        URI uri = URI.create("jrt:/");
+        try {
+            return FileSystems.newFileSystem(uri, env);
+        } catch (ProviderNotFoundException e) {
+            // the running JDK has no jrt:/ support, use the one of the image
+            File jrtFs = new File(new File(javaHome, "lib"), "jrt-fs.jar");
+            if (!jrtFs.isFile()) {
+                throw new IOException(e);
+            }
+            jrtLoader = new URLClassLoader(new URL[]{jrtFs.toURI().toURL()});
+            try {
+                return FileSystems.newFileSystem(uri, env, jrtLoader);
+            } catch (ProviderNotFoundException ex) {
+                throw new IOException(ex);
+            }
+        }
+    }
+
+    /**
+     * Returns modules containing the given package.
+     */
+    private List<String> findModules(String packageName) {
+        List<String> result = packageModules.get(packageName);
+        if (result == null) {
+            result = new ArrayList<>(1);
+            try (DirectoryStream<Path> ds = Files.newDirectoryStream(jrt.getPath("/packages", packageName))) {
+                for (Path module : ds) {
+                    result.add(module.getFileName().toString());
+                }
+            } catch (IOException e) {
+                // no such package
+            }
+            packageModules.put(packageName, result);
+        }
+        return result;
+    }
+
+    /**
+     * Returns path of the class file in the image, or {@code null}.
+     */
+    private Path findPath(String className) {
+        int pos = className.lastIndexOf('.');
+        if (pos < 0) {
+            return null;    // classes of unnamed packages can't be in modules
+        }
+        String file = className.replace('.', '/') + JAVA_CLASSFILE_EXTENSION;
+        for (String module : findModules(className.substring(0, pos))) {
+            Path p = jrt.getPath("/modules", module, file);
+            if (Files.isRegularFile(p)) {
+                return p;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public InputStream findClass(String name) throws IOException, ClassNotFoundException {
+        name = ExoticCharTools.decodeExotic(name);
+        Path p = findPath(name);
+        if (p == null) {
+            throw new ClassNotFoundException(name);
+        }
+        try {
+            return Files.newInputStream(p);
+        } catch (NoSuchFileException e) {
+            throw new ClassNotFoundException(name);
+        }
+    }
+
+    @Override
+    protected boolean contains(String className) {
+        return findPath(className) != null || (previousEntry != null && previousEntry.contains(className));
+    }
+
+    @Override
+    public String getIdentity() {
+        return identity;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return modules.isEmpty();
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (!currentPosition.hasNext()) {
+            if (currentModule >= modules.size()) {
+                return false;
+            }
+            currentPosition = scanModule(modules.get(currentModule++)).iterator();
+        }
+        return true;
+    }
+
+    @Override
+    public String nextClassName() {
+        if (!hasNext()) {
+            return null;
+        }
+        return currentPosition.next();
+    }
+
+    @Override
+    public void setListToBegin() {
+        currentModule = 0;
+        currentPosition = Collections.<String>emptyList().iterator();
+    }
+
+    /**
+     * Lists classes of the given module excluding {@code module-info} and
+     * the classes found by the previous classpath entries.
+     */
+    private List<String> scanModule(String module) {
+        List<String> result = new ArrayList<>();
+        try {
+            scanDirectory(jrt.getPath("/modules", module), "", result);
+        } catch (IOException e) {
+            if (bo.isSet(Option.DEBUG)) {
+                SwissKnife.reportThrowable(e);
+            }
+        }
+        return result;
+    }
+
+    private void scanDirectory(Path directory, String packageName, List<String> result) throws IOException {
+        String namePrefix = packageName.isEmpty() ? "" : (packageName + ".");
+        try (DirectoryStream<Path> ds = Files.newDirectoryStream(directory)) {
+            for (Path p : ds) {
+                String file = p.getFileName().toString();
+                if (Files.isDirectory(p)) {
+                    scanDirectory(p, namePrefix + file, result);
+                } else if (file.endsWith(JAVA_CLASSFILE_EXTENSION)) {
+                    String className = namePrefix + file.substring(0, file.length() - JAVA_CLASSFILE_EXTENSION_LEN);
+                    if (!className.equals(MODULE_INFO)
+                            && (previousEntry == null || !previousEntry.contains(className))) {
+                        result.add(className);
+                    }
+                }
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            if (jrt != null) {
+                jrt.close();
+            }
+            if (jrtLoader != null) {
+                jrtLoader.close();
+            }
+        } catch (IOException | UnsupportedOperationException e) {
+            if (bo.isSet(Option.DEBUG)) {
+                SwissKnife.reportThrowable(e);
+            }
+        }
+        jrt = null;
+        jrtLoader = null;
+    }
+}
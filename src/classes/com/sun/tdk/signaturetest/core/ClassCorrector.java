@@ -52,6 +52,14 @@ public class ClassCorrector implements Transformer {
     protected ClassHierarchy classHierarchy = null;
     private final Log log;
     private static final I18NResourceBundle i18n = I18NResourceBundle.getBundleForClass(ClassCorrector.class);
+    private static final int NO_PATH = Integer.MAX_VALUE;
+    /**
+     * For each target interface, the smallest number of accessible classes
+     * on a path through superinterfaces from a class to the target. Shared
+     * by all classes transformed with the same class hierarchy.
+     */
+    private final Map<String, Map<String, Integer>> pathCosts = new HashMap<>();
+    private ClassHierarchy pathCostsHierarchy;
 
     public ClassCorrector(Log log) {
         this.log = log;
@@ -60,6 +68,10 @@ public class ClassCorrector implements Transformer {
     public ClassDescription transform(ClassDescription cl) throws ClassNotFoundException {
 
         classHierarchy = cl.getClassHierarchy();
+        if (classHierarchy != pathCostsHierarchy) {
+            pathCosts.clear();
+            pathCostsHierarchy = classHierarchy;
+        }
 
         replaceInvisibleExceptions(cl);
         replaceInvisibleInMembers(cl);
@@ -158,7 +170,7 @@ public class ClassCorrector implements Transformer {
 
             if (mustCorrect) {
                 String[] invargs = {mr.getQualifiedName(), throwables, sb.toString()};
-                log.storeWarning(i18n.getString("ClassCorrector.message.throwslist.changed", invargs), null);
+                storeCorrection(i18n.getString("ClassCorrector.message.throwslist.changed", invargs), mr);
 
                 mr.setThrowables(sb.toString());
             }
@@ -206,47 +218,90 @@ public class ClassCorrector implements Transformer {
         return replacement;
     }
 
-    private void getPaths2(List<ArrayList<String>> paths, List<String> currentPath, String intFrom, String intTo) {
-        String[] sis = new String[]{};
+    private String[] getSuperInterfaces(String fqname) {
         try {
-            sis = classHierarchy.getSuperInterfaces(intFrom);
+            return classHierarchy.getSuperInterfaces(fqname);
         } catch (ClassNotFoundException e) {
             e.printStackTrace();
+            return new String[]{};
         }
-        currentPath.add(intFrom);
-        for (String si : sis) {
-            if (!si.equals(intTo)) {
-                getPaths2(paths, currentPath, si, intTo);
-                currentPath.remove(currentPath.size() - 1);
-            } else {
-                paths.add(new ArrayList<>(currentPath));
+    }
+
+    private boolean isAccessible(String fqname) {
+        try {
+            return classHierarchy.isAccessible(fqname);
+        } catch (ClassNotFoundException e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * Returns the smallest number of accessible classes on a path through
+     * superinterfaces from intFrom (inclusive) to intTo (exclusive), or
+     * NO_PATH if intTo is not a superinterface of intFrom.
+     */
+    private int getPathCost(String intFrom, String intTo, Map<String, Integer> costs) {
+        Integer cost = costs.get(intFrom);
+        if (cost != null) {
+            return cost;
+        }
+
+        int min = NO_PATH;
+        for (String si : getSuperInterfaces(intFrom)) {
+            int c = si.equals(intTo) ? 0 : getPathCost(si, intTo, costs);
+            if (c < min) {
+                min = c;
             }
         }
+        if (min != NO_PATH && isAccessible(intFrom)) {
+            min++;
+        }
+        costs.put(intFrom, min);
+        return min;
     }
 
-    private void getPaths(List<ArrayList<String>> paths, List<String> currentPath, String intFrom, String intTo) {
-        getPaths2(paths, currentPath, intFrom, intTo);
-        // remove invisible elements
-        for (List<String> path : paths) {
-            for (Iterator<String> it2 = path.iterator(); it2.hasNext(); ) {
-                String cl = it2.next();
-                try {
-                    if (!classHierarchy.isAccessible(cl)) {
-                        it2.remove();
+    /**
+     * Finds the path from intFrom to intTo with the fewest accessible
+     * classes and returns the last accessible class on it, or null if there
+     * is no such path or no accessible class on it. Of several such paths
+     * the first one in declaration order of superinterfaces is taken.
+     */
+    private String findVisibleSuperInterface(String intFrom, String intTo) {
+        Map<String, Integer> costs = pathCosts.get(intTo);
+        if (costs == null) {
+            costs = new HashMap<>();
+            pathCosts.put(intTo, costs);
+        }
+
+        int cost = getPathCost(intFrom, intTo, costs);
+        if (cost == NO_PATH || cost == 0) {
+            return null;
+        }
+
+        String visible = null;
+        String current = intFrom;
+        while (current != null) {
+            int rest = cost;
+            if (isAccessible(current)) {
+                visible = current;
+                rest--;
+            }
+            String next = null;
+            for (String si : getSuperInterfaces(current)) {
+                if (si.equals(intTo)) {
+                    if (rest == 0) {
+                        return visible;
                     }
-                } catch (ClassNotFoundException e) {
-                    e.printStackTrace();
+                } else if (getPathCost(si, intTo, costs) == rest) {
+                    next = si;
+                    break;
                 }
             }
+            current = next;
+            cost = rest;
         }
-        // sort - shorten paths first
-        Collections.sort(paths, new Comparator<List<?>>() {
-            public int compare(List<?> o1, List<?> o2) {
-                Integer s1 = o1.size();
-                Integer s2 = o2.size();
-                return s1.compareTo(s2);
-            }
-        });
+        return visible;
     }
 
     private String findVisibleReplacement(String clName, List<String> supers, String replaceWithClassName, boolean findToSuper) {
@@ -254,14 +309,9 @@ public class ClassCorrector implements Transformer {
         // if this member is from interface...
         try {
             if (classHierarchy.isInterface(clName)) {
-                ArrayList<ArrayList<String>> paths = new ArrayList<>();
-                List<String> currentPath = new ArrayList<>();
-                getPaths(paths, currentPath, replaceWithClassName, clName);
-                if (!paths.isEmpty()) {
-                    ArrayList<String> shorterPath = paths.get(0);
-                    if (!shorterPath.isEmpty()) {
-                        return shorterPath.get(shorterPath.size() - 1);
-                    }
+                String visible = findVisibleSuperInterface(replaceWithClassName, clName);
+                if (visible != null) {
+                    return visible;
                 }
             }
         } catch (ClassNotFoundException e) {
@@ -296,6 +346,39 @@ public class ClassCorrector implements Transformer {
         return replaceWithClassName;
     }
 
+    /**
+     * Reports the correction of the given member. A member declared by a
+     * loaded class is corrected once for all its subclasses, so workers
+     * sharing a {@link WorkerLog} report such a correction with a key of the
+     * member.
+     */
+    private void storeCorrection(String msg, MemberDescription mr) {
+        if (log instanceof WorkerLog) {
+            String key = null;
+            try {
+                ClassDescription declaring = classHierarchy.load(mr.getDeclaringClassName());
+                if (isDeclared(mr, declaring.getDeclaredConstructors()) || isDeclared(mr, declaring.getDeclaredMethods())
+                        || isDeclared(mr, declaring.getDeclaredFields())) {
+                    key = mr.getDeclaringClassName() + ' ' + mr.getMemberType() + ' ' + mr.getName() + '(' + mr.getArgs() + ')';
+                }
+            } catch (ClassNotFoundException e) {
+                // members of missing classes are never shared
+            }
+            ((WorkerLog) log).storeWarning(msg, key, null);
+        } else {
+            log.storeWarning(msg, null);
+        }
+    }
+
+    private static boolean isDeclared(MemberDescription mr, MemberDescription[] declared) {
+        for (MemberDescription m : declared) {
+            if (m == mr) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     /**
      * 1) replaces invisible return-types 2) fixes invisible parameter types 3)
      * fixes invisible attribute types
@@ -337,10 +420,10 @@ public class ClassCorrector implements Transformer {
 //                if (verboseCorrector) {
                 if (!mr.isField()) {
                     String[] invargs = {cl.getName(), mr.getName(), returnType, newName};
-                    log.storeWarning(i18n.getString("ClassCorrector.message.returntype.changed", invargs), null);
+                    storeCorrection(i18n.getString("ClassCorrector.message.returntype.changed", invargs), mr);
                 } else {
                     String[] invargs = {cl.getName(), mr.getName(), returnType, newName};
-                    log.storeWarning(i18n.getString("ClassCorrector.message.fieldtype.changed", invargs), null);
+                    storeCorrection(i18n.getString("ClassCorrector.message.fieldtype.changed", invargs), mr);
                 }
 //                }
             } else {
@@ -0,0 +1,155 @@
+/*
+ * Copyright (c) 2026, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.sun.tdk.signaturetest.core;
+
+import com.sun.tdk.signaturetest.model.ClassDescription;
+import com.sun.tdk.signaturetest.util.OrderedExecutor;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.Callable;
+
+/**
+ * Dependency graph of classes. Every class is loaded through the hierarchy
+ * only once, and the facts needed to compute closed sets of classes are
+ * kept for later queries, so {@link ClassSet} never loads a class again
+ * when it is referenced several times.
+ */
+public class ClassDependencies {
+
+    /**
+     * Facts about a single class. A class which can't be found has no
+     * dependences.
+     */
+    static final class Node {
+
+        final String name;
+        final boolean found;
+        final boolean accessible;
+        final boolean isInterface;
+        final String superName;
+        final Set<String> dependences;
+
+        Node(String name) {
+            this.name = name;
+            found = false;
+            accessible = false;
+            isInterface = false;
+            superName = null;
+            dependences = Collections.emptySet();
+        }
+
+        Node(String name, ClassHierarchy hierarchy, ClassDescription cl) {
+            this.name = name;
+            found = true;
+            accessible = hierarchy.isAccessible(cl);
+            isInterface = cl.isInterface();
+            superName = cl.getSuperClass() == null ? null : cl.getSuperClass().getQualifiedName();
+            dependences = cl.getDependences();
+        }
+    }
+
+    private final ClassHierarchy hierarchy;
+    private final Map<String, Node> nodes = new HashMap<>();
+
+    public ClassDependencies(ClassHierarchy hierarchy) {
+        this.hierarchy = hierarchy;
+    }
+
+    /**
+     * Loads the given classes and everything they depend on, directly or
+     * indirectly, on a pool of worker threads. Each worker loads classes with
+     * its own hierarchy. Classes loaded earlier are not loaded again.
+     *
+     * @param names       classes to start from
+     * @param threads     number of worker threads
+     * @param hierarchies hierarchy of the current worker thread
+     */
+    public void loadAll(Collection<String> names, int threads,
+            final ThreadLocal<? extends ClassHierarchy> hierarchies) throws IOException {
+
+        final Deque<String> queue = new ArrayDeque<>();
+        final Set<String> queued = new HashSet<>(nodes.keySet());
+        for (String name : names) {
+            if (queued.add(name)) {
+                queue.add(name);
+            }
+        }
+
+        OrderedExecutor<Node> executor = new OrderedExecutor<>(threads, "sigtest-closure", new OrderedExecutor.Sink<Node>() {
+            public void accept(Node node) {
+                nodes.put(node.name, node);
+                for (String dep : node.dependences) {
+                    if (queued.add(dep)) {
+                        queue.add(dep);
+                    }
+                }
+                if (node.superName != null && queued.add(node.superName)) {
+                    queue.add(node.superName);
+                }
+            }
+        });
+        try {
+            // results of the submitted tasks can add new classes to the queue
+            while (!queue.isEmpty()) {
+                while (!queue.isEmpty()) {
+                    final String name = queue.poll();
+                    executor.submit(new Callable<Node>() {
+                        public Node call() {
+                            return createNode(hierarchies.get(), name);
+                        }
+                    });
+                }
+                executor.finish();
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Returns {@code true} if the class was found and is accessible.
+     */
+    public boolean isAccessible(String fqname) {
+        return getNode(fqname).accessible;
+    }
+
+    Node getNode(String fqname) {
+        Node node = nodes.get(fqname);
+        if (node == null) {
+            node = createNode(hierarchy, fqname);
+            nodes.put(fqname, node);
+        }
+        return node;
+    }
+
+    private static Node createNode(ClassHierarchy hierarchy, String fqname) {
+        try {
+            return new Node(fqname, hierarchy, hierarchy.load(fqname));
+        } catch (ClassNotFoundException e) {
+            return new Node(fqname);
+        }
+    }
+}
@@ -27,6 +27,7 @@ package com.sun.tdk.signaturetest.core;
 import com.sun.tdk.signaturetest.model.ClassDescription;
 import com.sun.tdk.signaturetest.model.MethodDescr;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Set;
 
@@ -60,6 +61,26 @@ public interface ClassHierarchy extends ClassDescriptionLoader {
 
     boolean isSubclass(String subClassName, String superClassName) throws ClassNotFoundException;
 
+    /**
+     * Equivalent to {@code getAllImplementedInterfaces(fqClassName).contains(interfaceName)}.
+     */
+    boolean isImplementing(String fqClassName, String interfaceName) throws ClassNotFoundException;
+
+    /**
+     * Loads the given classes with all their superclasses and superinterfaces
+     * and labels them, so that subclass and implemented interface checks
+     * among them take constant time. Should be called once all classes are
+     * known.
+     */
+    void buildIndex(Collection<String> fqClassNames);
+
+    /**
+     * Makes this hierarchy use the index built by the given one, which must
+     * load classes with the same loader. An index doesn't change once it is
+     * built, so it can be shared by hierarchies used on other threads.
+     */
+    void shareIndex(ClassHierarchy other);
+
     ClassDescription load(String name) throws ClassNotFoundException;
 
     boolean isAccessible(ClassDescription c);
@@ -152,12 +152,40 @@ public class ClassHierarchyImpl implements ClassHierarchy {
         return result;
     }
 
+    /**
+     * Returns direct and indirect subclasses and implementors of the given
+     * class. Only the classes already processed by this hierarchy are known,
+     * e.g. the classes whose superclasses were requested or the classes
+     * given to {@link #buildIndex}.
+     */
     public String[] getAllSubclasses(String fqClassName) {
-        throw new UnsupportedOperationException("This method is not implemented");
+        Set<String> result = new LinkedHashSet<>();
+        List<String> queue = new ArrayList<>();
+        queue.add(fqClassName);
+        for (int i = 0; i < queue.size(); i++) {
+            List<String> subClasses = directSubClasses.get(queue.get(i));
+            if (subClasses != null) {
+                for (String subClass : subClasses) {
+                    if (result.add(subClass)) {
+                        queue.add(subClass);
+                    }
+                }
+            }
+        }
+        return result.toArray(EMPTY_STRING_ARRAY);
     }
 
     public String[] getNestedClasses(String fqClassName) {
-        throw new UnsupportedOperationException("This method is not implemented");
+        try {
+            InnerDescr[] nested = load(fqClassName).getDeclaredClasses();
+            String[] result = new String[nested.length];
+            for (int i = 0; i < nested.length; i++) {
+                result[i] = nested[i].getQualifiedName();
+            }
+            return result;
+        } catch (ClassNotFoundException e) {
+            return EMPTY_STRING_ARRAY;
+        }
     }
 
     public boolean isSubclass(String subClassName, String superClassName) throws ClassNotFoundException {
@@ -168,6 +196,13 @@ public class ClassHierarchyImpl implements ClassHierarchy {
             return false;
         }
 
+        if (index != null) {
+            Boolean result = index.isSubclass(subClassName, superClassName);
+            if (result != null) {
+                return result;
+            }
+        }
+
         String name = subClassName;
         do {
             try {
@@ -188,6 +223,47 @@ public class ClassHierarchyImpl implements ClassHierarchy {
         return false;
     }
 
+    public boolean isImplementing(String fqClassName, String interfaceName) throws ClassNotFoundException {
+        if (index != null) {
+            Boolean result = index.isImplementing(fqClassName, interfaceName);
+            if (result != null) {
+                return result;
+            }
+        }
+        return getAllImplementedInterfaces(fqClassName).contains(interfaceName);
+    }
+
+    public void buildIndex(Collection<String> fqClassNames) {
+        Map<String, ClassInfo> infos = new LinkedHashMap<>();
+        Deque<String> queue = new ArrayDeque<>(fqClassNames);
+        while (!queue.isEmpty()) {
+            String name = queue.poll();
+            if (infos.containsKey(name)) {
+                continue;
+            }
+            ClassInfo info = null;
+            try {
+                info = getClassInfo(name);
+            } catch (ClassNotFoundException e) {
+                // missing classes are kept without supertypes
+            }
+            infos.put(name, info);
+            if (info != null) {
+                if (info.superClass != null) {
+                    queue.add(info.superClass);
+                }
+                Collections.addAll(queue, info.superInterfaces);
+            }
+        }
+        index = new Index(infos);
+    }
+
+    public void shareIndex(ClassHierarchy other) {
+        if (other instanceof ClassHierarchyImpl) {
+            index = ((ClassHierarchyImpl) other).index;
+        }
+    }
+
     public ClassDescription load(String name) throws ClassNotFoundException {
         return load(name, false);
     }
@@ -442,6 +518,162 @@ public class ClassHierarchyImpl implements ClassHierarchy {
         subClasses.add(subClass);
     }
 
+    /**
+     * Labels of the classes given to {@link #buildIndex} and their supertypes.
+     * The superclass tree is numbered in depth-first order, so the subclasses
+     * of a class get the numbers following its own one up to {@code last}.
+     * Implemented interfaces of a class are kept as a bit set. All of them
+     * are computed up front, so the index never changes once it is built and
+     * can be shared by hierarchies used on other threads. Questions about
+     * other classes are answered with null.
+     */
+    private static final class Index {
+
+        private static final BitSet MISSING = new BitSet(0);
+        private final Map<String, Integer> ids = new HashMap<>();
+        private final Map<String, Integer> interfaceIds = new HashMap<>();
+        private final ClassInfo[] infos;
+        private final int[] first;
+        private final int[] last;
+        private final BitSet[] superInterfaces;
+        private final BitSet[] interfaces;
+
+        Index(Map<String, ClassInfo> classes) {
+            int n = classes.size();
+            String[] names = classes.keySet().toArray(EMPTY_STRING_ARRAY);
+            infos = classes.values().toArray(new ClassInfo[n]);
+            for (int i = 0; i < n; i++) {
+                ids.put(names[i], i);
+            }
+
+            List<List<Integer>> children = new ArrayList<>(Collections.<List<Integer>>nCopies(n, null));
+            List<Integer> roots = new ArrayList<>();
+            for (int i = 0; i < n; i++) {
+                ClassInfo info = infos[i];
+                if (info == null || info.superClass == null) {
+                    roots.add(i);
+                } else {
+                    int parent = ids.get(info.superClass);
+                    if (children.get(parent) == null) {
+                        children.set(parent, new ArrayList<Integer>());
+                    }
+                    children.get(parent).add(i);
+                }
+                if (info != null) {
+                    for (String si : info.superInterfaces) {
+                        if (!interfaceIds.containsKey(si)) {
+                            interfaceIds.put(si, interfaceIds.size());
+                        }
+                    }
+                }
+            }
+
+            first = new int[n];
+            last = new int[n];
+            int counter = 0;
+            Deque<Integer> stack = new ArrayDeque<>();
+            for (Integer root : roots) {
+                stack.push(root);
+                while (!stack.isEmpty()) {
+                    int id = stack.pop();
+                    if (id < 0) {
+                        // all subclasses are numbered
+                        last[~id] = counter - 1;
+                        continue;
+                    }
+                    first[id] = counter++;
+                    stack.push(~id);
+                    List<Integer> subClasses = children.get(id);
+                    if (subClasses != null) {
+                        for (Integer subClass : subClasses) {
+                            stack.push(subClass);
+                        }
+                    }
+                }
+            }
+
+            superInterfaces = new BitSet[n];
+            interfaces = new BitSet[n];
+            for (int i = 0; i < n; i++) {
+                getInterfaces(i);
+            }
+        }
+
+        Boolean isSubclass(String subClassName, String superClassName) {
+            Integer sub = ids.get(subClassName);
+            if (sub == null || infos[sub] == null) {
+                return null;
+            }
+            Integer sup = ids.get(superClassName);
+            // all superclasses of a loaded class are in the index
+            return sup != null && first[sup] < first[sub] && first[sub] <= last[sup];
+        }
+
+        Boolean isImplementing(String fqClassName, String interfaceName) {
+            Integer id = ids.get(fqClassName);
+            if (id == null) {
+                return null;
+            }
+            BitSet set = getInterfaces(id);
+            if (set == MISSING) {
+                return null;
+            }
+            Integer i = interfaceIds.get(interfaceName);
+            return i != null && set.get(i);
+        }
+
+        /**
+         * Returns all superinterfaces of the given class or interface like
+         * {@code findSuperInterfaces}, or MISSING if some of them is not found.
+         */
+        private BitSet getSuperInterfaces(int id) {
+            BitSet set = superInterfaces[id];
+            if (set == null) {
+                ClassInfo info = infos[id];
+                if (info == null) {
+                    set = MISSING;
+                } else {
+                    set = new BitSet();
+                    for (String si : info.superInterfaces) {
+                        BitSet supers = getSuperInterfaces(ids.get(si));
+                        if (supers == MISSING) {
+                            set = MISSING;
+                            break;
+                        }
+                        set.set(interfaceIds.get(si));
+                        set.or(supers);
+                    }
+                }
+                superInterfaces[id] = set;
+            }
+            return set;
+        }
+
+        /**
+         * Returns all interfaces implemented by the given class like
+         * {@code findAllImplementedInterfaces}, or MISSING if some of its
+         * supertypes is not found.
+         */
+        private BitSet getInterfaces(int id) {
+            BitSet set = interfaces[id];
+            if (set == null) {
+                set = getSuperInterfaces(id);
+                String superClass = set == MISSING ? null : infos[id].superClass;
+                if (superClass != null) {
+                    BitSet inherited = getInterfaces(ids.get(superClass));
+                    if (inherited == MISSING || set.isEmpty()) {
+                        set = inherited;
+                    } else {
+                        set = (BitSet) set.clone();
+                        set.or(inherited);
+                    }
+                }
+                interfaces[id] = set;
+            }
+            return set;
+        }
+    }
+
     private static class ClassInfo {
 
         private static final String[] EMPTY_INTERFACES = new String[0];
@@ -491,6 +723,7 @@ public class ClassHierarchyImpl implements ClassHierarchy {
     }
 
     private final HashMap<String, ClassInfo> processedClasses = new HashMap<>();
+    private Index index;
     private final BaseOptions bo = AppContext.getContext().getBean(BaseOptions.class);
 
     class DefaultIsAccessibleFilter implements Filter {
@@ -24,8 +24,6 @@
  */
 package com.sun.tdk.signaturetest.core;
 
-import com.sun.tdk.signaturetest.model.ClassDescription;
-
 import java.util.*;
 
 /**
@@ -54,105 +52,120 @@ public class ClassSet {
         }
     }
 
-    private final ClassHierarchy hierarchy;
-    private final boolean trackDependeces;
-    private final Map<String, Object> classNamesInProcess = new HashMap<>();
-
-    public ClassSet(ClassHierarchy hierarchy, boolean trackDependeces) {
-        this.hierarchy = hierarchy;
-        this.trackDependeces = trackDependeces;
-    }
-
-    public void addClass(String fqname) {
-        addClass(fqname, true);
-    }
+    /**
+     * A class being added or removed. Its dependences are visited one by one
+     * like the calls of a recursive traversal would do it.
+     */
+    private final static class Frame {
 
-    private void addClass(String fqname, boolean externalCall) {
+        final ClassDependencies.Node node;
+        Iterator<String> dependences;
 
-        if (classNamesInProcess.get(fqname) != null) {
-            return;
+        Frame(ClassDependencies.Node node) {
+            this.node = node;
         }
+    }
 
-        classNamesInProcess.put(fqname, null);
+    private final ClassDependencies dependencies;
+    private final boolean trackDependeces;
+    private final Set<String> classNamesInProcess = new HashSet<>();
 
-        try {
-            Counter counter = classes.get(fqname);
-            try {
+    public ClassSet(ClassHierarchy hierarchy, boolean trackDependeces) {
+        this(new ClassDependencies(hierarchy), trackDependeces);
+    }
 
-                ClassDescription cl = hierarchy.load(fqname);
-                // acrobatic feat : ClassCorrector replaces invisible class
-                // with nearest visible subclass
-                // Note: this is a temporary solution!
-                if (!hierarchy.isAccessible(cl) && !externalCall) {
-                    if (!cl.isInterface()) {
-                        addClass(cl.getSuperClass().getQualifiedName(), false);
-                    }
-                }
+    /**
+     * Creates a set which takes classes from the given dependency graph, so
+     * the graph can be shared with other sets or loaded in advance.
+     */
+    public ClassSet(ClassDependencies dependencies, boolean trackDependeces) {
+        this.dependencies = dependencies;
+        this.trackDependeces = trackDependeces;
+    }
 
+    public void addClass(String fqname) {
+        Deque<Frame> stack = new ArrayDeque<>();
+        enterAdd(stack, fqname, true);
+        while (!stack.isEmpty()) {
+            Frame f = stack.peek();
+            if (f.dependences == null) {
+                // the superclass is processed, now the class itself
+                Counter counter = classes.get(f.node.name);
                 if (counter == null) {
-                    classes.put(fqname, new Counter(0));
-
-                    if (trackDependeces) {
-                        Set<String> dep = cl.getDependences();
-                        for (String o : dep) {
-                            addClass(o, false);
-                        }
-                    }
-
+                    classes.put(f.node.name, new Counter(0));
+                    f.dependences = trackDependeces ? f.node.dependences.iterator()
+                            : Collections.<String>emptyIterator();
                 } else {
                     counter.increment();
+                    f.dependences = Collections.emptyIterator();
                 }
-
-            } catch (ClassNotFoundException e) {
-                missingClasses.add(fqname);
             }
-
-        } finally {
-            classNamesInProcess.remove(fqname);
+            if (f.dependences.hasNext()) {
+                enterAdd(stack, f.dependences.next(), false);
+            } else {
+                stack.pop();
+                classNamesInProcess.remove(f.node.name);
+            }
         }
     }
 
-    public void removeClass(String fqname) {
-
-        if (classNamesInProcess.get(fqname) != null) {
+    private void enterAdd(Deque<Frame> stack, String fqname, boolean externalCall) {
+        if (!classNamesInProcess.add(fqname)) {
             return;
         }
 
-        classNamesInProcess.put(fqname, null);
-
-        try {
+        ClassDependencies.Node node = dependencies.getNode(fqname);
+        if (!node.found) {
+            missingClasses.add(fqname);
+            classNamesInProcess.remove(fqname);
+            return;
+        }
 
-            Counter counter = classes.get(fqname);
-            if (counter != null) {
+        stack.push(new Frame(node));
 
-                int c = counter.intValue();
-                if (c == 0) {
-                    classes.remove(fqname);
+        // acrobatic feat : ClassCorrector replaces invisible class
+        // with nearest visible subclass
+        // Note: this is a temporary solution!
+        if (!node.accessible && !externalCall && !node.isInterface && node.superName != null) {
+            enterAdd(stack, node.superName, false);
+        }
+    }
 
-                    try {
-                        ClassDescription cl = hierarchy.load(fqname);
+    public void removeClass(String fqname) {
+        Deque<Frame> stack = new ArrayDeque<>();
+        enterRemove(stack, fqname);
+        while (!stack.isEmpty()) {
+            Frame f = stack.peek();
+            if (f.dependences.hasNext()) {
+                enterRemove(stack, f.dependences.next());
+            } else {
+                stack.pop();
+                classNamesInProcess.remove(f.node.name);
+            }
+        }
+    }
 
-                        Set<String> dep = cl.getDependences();
-                        for (String o : dep) {
-                            removeClass(o);
-                        }
+    private void enterRemove(Deque<Frame> stack, String fqname) {
+        Counter counter = classes.get(fqname);
+        if (counter == null || !classNamesInProcess.add(fqname)) {
+            return;
+        }
 
-                    } catch (ClassNotFoundException e) {
-                        assert missingClasses.contains(fqname);
-                    }
+        int c = counter.intValue();
+        if (c == 0) {
+            classes.remove(fqname);
 
-                } else {
-                    assert c > 0;
-                    counter.decrement();
-                }
+            ClassDependencies.Node node = dependencies.getNode(fqname);
+            assert node.found || missingClasses.contains(fqname);
 
-            } else {
-                assert true;
-            }
-        } finally {
+            Frame f = new Frame(node);
+            f.dependences = node.dependences.iterator();
+            stack.push(f);
+        } else {
+            assert c > 0;
+            counter.decrement();
             classNamesInProcess.remove(fqname);
         }
-
     }
 
     public Set<String> getClasses() {
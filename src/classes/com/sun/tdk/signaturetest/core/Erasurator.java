@@ -30,8 +30,6 @@ import com.sun.tdk.signaturetest.model.*;
 import com.sun.tdk.signaturetest.util.I18NResourceBundle;
 
 import java.util.*;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 /**
  * Class <b>Erasurator</b> performs "Type erasure" (see JLS Third Edition, p.
@@ -91,29 +89,37 @@ public class Erasurator {
 
     private String convert(String s, Map<String, String> globalParameters, Map<String, String> localParameters) {
 
-        Matcher m;
-        String newS = s;
-
-        while (newS.indexOf('<') != -1) {
-            assert newS.indexOf('>') != -1;
-            m = simpleParamUsage.matcher(newS);
-            newS = m.replaceAll("");
-        }
+        String newS = removeTypeArguments(s);
 
         if (globalParameters.isEmpty() && localParameters.isEmpty()) {
             return newS;  // nothing to do
         }
-        m = replaceParamUsage.matcher(newS);
-        while (m.find()) {
-            String param = m.group();
-            if (globalParameters.containsKey(param)) {
-                newS = m.replaceFirst(globalParameters.get(param));
-                m = replaceParamUsage.matcher(newS);
+
+        int from = 0;
+        int firstStart = -1;
+        int firstEnd = -1;
+        int start;
+        while ((start = newS.indexOf('{', from)) != -1) {
+            int end = parameterEnd(newS, start);
+            if (end == -1) {
+                from = start + 1;
                 continue;
             }
-            if (localParameters.containsKey(param)) {
-                newS = m.replaceFirst(localParameters.get(param));
-                m = replaceParamUsage.matcher(newS);
+            if (firstStart == -1) {
+                firstStart = start;
+                firstEnd = end;
+            }
+            String param = newS.substring(start, end);
+            String value = globalParameters.get(param);
+            if (value == null) {
+                value = localParameters.get(param);
+            }
+            if (value != null) {
+                // the first parameter found since the previous replacement
+                // is replaced, the value may contain parameters as well
+                newS = newS.substring(0, firstStart) + value + newS.substring(firstEnd);
+                from = 0;
+                firstStart = -1;
                 continue;
             }
 
@@ -121,11 +127,57 @@ public class Erasurator {
                 System.out.println(i18n.getString("Erasurator.error.unresolved", param));
                 unresolvedWarnings.add(param);
             }
+            from = end;
         }
 
         return newS;
     }
 
+    /**
+     * Removes all type arguments, i.e. everything enclosed in (possibly
+     * nested) angle brackets together with the brackets, in a single pass.
+     */
+    private static String removeTypeArguments(String s) {
+        int pos = s.indexOf('<');
+        if (pos == -1) {
+            return s;
+        }
+
+        StringBuilder sb = new StringBuilder(s.length());
+        sb.append(s, 0, pos);
+        int level = 0;
+        for (int i = pos; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '<') {
+                level++;
+            } else if (c == '>' && level > 0) {
+                level--;
+            } else if (level == 0) {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Returns the position after the closing brace of the type parameter
+     * usage starting at the given position, or -1 if there is none. The
+     * braces enclose at least one character and the parameter does not span
+     * lines.
+     */
+    private static int parameterEnd(String s, int start) {
+        for (int i = start + 1; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029') {
+                return -1;
+            }
+            if (c == '}' && i > start + 1) {
+                return i + 1;
+            }
+        }
+        return -1;
+    }
+
     public void parseTypeParameters(ClassDescription classDescr) {
         if (classDescr.getTypeParameters() != null) {
             parseTypeParameters(classDescr, globalParameters);
@@ -141,9 +193,9 @@ public class Erasurator {
 
         while (st.hasMoreTokens()) {
             String token = st.nextToken().trim();
-            Matcher m = simpleParamName.matcher(token);
-            if (m.lookingAt()) {
-                String name = token.substring(m.start(), m.end());
+            // '%' followed by a digit
+            if (token.length() > 1 && token.charAt(0) == '%' && token.charAt(1) >= '0' && token.charAt(1) <= '9') {
+                String name = token.substring(0, 2);
                 String key;
 
                 if (isClass) {
@@ -152,14 +204,14 @@ public class Erasurator {
                     key = "{%" + name + "}";
                 }
 
-                if (token.length() > m.end() && token.substring(m.end()).startsWith(ext)) {
-                    String val = token.substring(m.end() + ext.length()).trim();
+                if (token.startsWith(ext, name.length())) {
+                    String val = token.substring(name.length() + ext.length()).trim();
 
                     if (val.indexOf(' ') >= 0) {
                         val = val.substring(0, val.indexOf(' '));
                     }
 
-                    parameters.put(key, maskDollar(val));
+                    parameters.put(key, val);
                 }
             }
         }
@@ -297,97 +349,103 @@ public class Erasurator {
     }
 
     public static MemberDescription[] replaceFormalParameters(String fqn, MemberDescription[] members, List<String> actualTypeParamList, boolean skipRawTypes) {
-
-        MemberDescription[] result = new MemberDescription[members.length];
-
-        for (int i = 0; i < members.length; ++i) {
-            result[i] = replaceFormalParameters(fqn, members[i], actualTypeParamList, skipRawTypes);
-        }
-
-        return result;
+        return new Substitution(fqn, actualTypeParamList, skipRawTypes).apply(members);
     }
 
     public static Collection<MemberDescription> replaceFormalParameters(String fqn, Collection<MemberDescription> members, List<String> actualTypeParamList, boolean skipRawTypes) {
 
         assert !actualTypeParamList.isEmpty();
 
-        Collection<MemberDescription> result = new ArrayList<>();
-
-        for (MemberDescription member : members) {
-            MemberDescription newFid = replaceFormalParameters(fqn, member, actualTypeParamList, skipRawTypes);
-            result.add(newFid);
-        }
-        return result;
-
+        return new Substitution(fqn, actualTypeParamList, skipRawTypes).apply(members);
     }
 
-    private static MemberDescription replaceFormalParameters(String fqn, MemberDescription fid, List<String> actualTypeParamList, boolean skipRawTypes) {
-
-        MemberDescription newFid = (MemberDescription) fid.clone();
-        for (int i = 0; i < actualTypeParamList.size(); ++i) {
-            String actual = actualTypeParamList.get(i);
+    /**
+     * Replacement of the formal type parameters of a class, written as
+     * <code>{fqn%i}</code>, by the actual type arguments. It is built once
+     * for all members of the class and replaces plain strings.
+     */
+    public static class Substitution {
+
+        private final String prefix;
+        private final String[] formals;
+        private final String[] actuals;
+
+        public Substitution(String fqn, List<String> actualTypeParamList, boolean skipRawTypes) {
+            prefix = "{" + fqn + "%";
+            List<String> f = new ArrayList<>(actualTypeParamList.size());
+            List<String> a = new ArrayList<>(actualTypeParamList.size());
+            for (int i = 0; i < actualTypeParamList.size(); ++i) {
+                String actual = actualTypeParamList.get(i);
+
+                if (skipRawTypes && actual.indexOf('%') == -1) {
+                    continue;
+                }
 
-            if (skipRawTypes && actual.indexOf('%') == -1) {
-                continue;
+                f.add(prefix + i + "}");
+                a.add(actual);
             }
-
-            String key = "\\{" + fqn + "%" + i + "\\}";
-            replaceFormalParameters(newFid, key, actual);
+            formals = f.toArray(new String[0]);
+            actuals = a.toArray(new String[0]);
         }
 
-        return newFid;
-    }
+        /**
+         * Returns copies of the given members with the type parameters
+         * replaced.
+         */
+        public MemberDescription[] apply(MemberDescription[] members) {
+            MemberDescription[] result = new MemberDescription[members.length];
+            for (int i = 0; i < members.length; ++i) {
+                result[i] = apply(members[i]);
+            }
+            return result;
+        }
 
-    private static void replaceFormalParameters(MemberDescription mr, String formalParam, String actualParam) {
+        /**
+         * Returns copies of the given members with the type parameters
+         * replaced.
+         */
+        public Collection<MemberDescription> apply(Collection<MemberDescription> members) {
+            Collection<MemberDescription> result = new ArrayList<>(members.size());
+            for (MemberDescription member : members) {
+                result.add(apply(member));
+            }
+            return result;
+        }
 
-        String actual = maskDollar(actualParam);
-        Pattern p = Pattern.compile(maskDollar(formalParam));
-        Matcher m;
+        MemberDescription apply(MemberDescription fid) {
 
-        String args = mr.getArgs();
+            MemberDescription mr = (MemberDescription) fid.clone();
+            if (formals.length == 0) {
+                return mr;
+            }
 
-        if (!MemberDescription.NO_ARGS.equals(args)) {
-            m = p.matcher(args);
-            mr.setArgs(m.replaceAll(actual));
-        }
+            String args = mr.getArgs();
+            if (!MemberDescription.NO_ARGS.equals(args)) {
+                mr.setArgs(replace(args));
+            }
 
-        String type = mr.getType();
-        if (!MemberDescription.NO_TYPE.equals(type)) {
-            m = p.matcher(type);
-            mr.setType(m.replaceAll(actual));
-        }
+            String type = mr.getType();
+            if (!MemberDescription.NO_TYPE.equals(type)) {
+                mr.setType(replace(type));
+            }
 
-        if (mr.isSuperInterface() || mr.isSuperClass() || mr.isPermittedSubClass()) {
-            String typeParams = mr.getTypeParameters();
-            if (typeParams != null) {
-                m = p.matcher(typeParams);
-                mr.setTypeParameters(m.replaceAll(actual));
+            if (mr.isSuperInterface() || mr.isSuperClass() || mr.isPermittedSubClass()) {
+                String typeParams = mr.getTypeParameters();
+                if (typeParams != null) {
+                    mr.setTypeParameters(replace(typeParams));
+                }
             }
+            return mr;
         }
-    }
 
-    private static String maskDollar(String str) {
-        int pos;
-        String tmp = str;
-        StringBuilder result = new StringBuilder();
-
-        do {
-            pos = tmp.indexOf('$');
-            if (pos != -1) {
-                result.append(tmp, 0, pos);
-                result.append("\\$");
-                tmp = tmp.substring(pos + 1);
+        private String replace(String s) {
+            if (!s.contains(prefix)) {
+                return s;
             }
-        } while (pos != -1);
-
-        result.append(tmp);
-
-        return result.toString();
+            for (int i = 0; i < formals.length; i++) {
+                s = s.replace(formals[i], actuals[i]);
+            }
+            return s;
+        }
     }
-
-    // begin of line + % + any numbers
-    private static final Pattern simpleParamName = Pattern.compile("^%\\d+?");
-    //    private static Pattern simpleParamUsage = Pattern.compile("<.+?>");
-    private static final Pattern simpleParamUsage = Pattern.compile("<[^<>]+?>");
-    private static final Pattern replaceParamUsage = Pattern.compile("\\{.+?\\}");
 }
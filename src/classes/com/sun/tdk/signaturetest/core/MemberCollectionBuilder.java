@@ -27,6 +27,7 @@ package com.sun.tdk.signaturetest.core;
 import com.sun.tdk.signaturetest.model.*;
 import com.sun.tdk.signaturetest.plugin.PluginAPI;
 import com.sun.tdk.signaturetest.plugin.Transformer;
+import com.sun.tdk.signaturetest.util.ConcurrentCache;
 import com.sun.tdk.signaturetest.util.I18NResourceBundle;
 
 import java.util.*;
@@ -53,6 +54,18 @@ public class MemberCollectionBuilder {
     private static final I18NResourceBundle i18n = I18NResourceBundle.getBundleForClass(MemberCollectionBuilder.class);
     private BuildMode mode = BuildMode.NORMAL;
     private ClassHierarchy secondCH;
+    private static final int INHERITED_MEMBERS_CACHE_SIZE = 2048;
+    /**
+     * Members of superclasses and superinterfaces computed so far, keyed by
+     * the class name and the actual type arguments. Members declared by the
+     * loaded classes are kept as they are, because the transformers correct
+     * them in place once for all subclasses. Other members are created for
+     * each computation, so the cache keeps its own copies of them and every
+     * caller gets a copy too.
+     */
+    private final ConcurrentCache<String, InheritedMembers> inheritedMembers =
+            new ConcurrentCache<>(INHERITED_MEMBERS_CACHE_SIZE, ConcurrentCache.Policy.LRU);
+    private ClassHierarchy inheritedMembersHierarchy;
 
 
     public MemberCollectionBuilder(Log log) {
@@ -211,7 +224,8 @@ public class MemberCollectionBuilder {
         // required for correct overriding checking
         erasurator.parseTypeParameters(cl);
 
-        List<String> paramList = null;
+        // built once for the declared and the inherited members
+        Erasurator.Substitution substitution = null;
         MemberCollection retVal = new MemberCollection();
 
         // creates declared members
@@ -225,20 +239,20 @@ public class MemberCollectionBuilder {
         ClassHierarchy hierarchy = cl.getClassHierarchy();
 
         if (actualTypeParams != null) {
-            paramList = Erasurator.splitParameters(actualTypeParams);
-            methods = Erasurator.replaceFormalParameters(clsName, methods, paramList, skipRawTypes);
-            fields = Erasurator.replaceFormalParameters(clsName, fields, paramList, skipRawTypes);
-            classes = Erasurator.replaceFormalParameters(clsName, classes, paramList, skipRawTypes);
-            permittedSubClasses = Erasurator.replaceFormalParameters(clsName, permittedSubClasses, paramList, skipRawTypes);
+            substitution = new Erasurator.Substitution(clsName, Erasurator.splitParameters(actualTypeParams), skipRawTypes);
+            methods = substitution.apply(methods);
+            fields = substitution.apply(fields);
+            classes = substitution.apply(classes);
+            permittedSubClasses = substitution.apply(permittedSubClasses);
         } else if (callErasurator && cl.getTypeParameters() != null) {
-            List<String> boundsList = cl.getTypeBounds();
-            methods = Erasurator.replaceFormalParameters(clsName, methods, boundsList, false);
-            fields = Erasurator.replaceFormalParameters(clsName, fields, boundsList, false);
-            classes = Erasurator.replaceFormalParameters(clsName, classes, boundsList, false);
-            permittedSubClasses = Erasurator.replaceFormalParameters(clsName, permittedSubClasses, boundsList, false);
+            Erasurator.Substitution bounds = new Erasurator.Substitution(clsName, cl.getTypeBounds(), false);
+            methods = bounds.apply(methods);
+            fields = bounds.apply(fields);
+            classes = bounds.apply(classes);
+            permittedSubClasses = bounds.apply(permittedSubClasses);
         }
-        if (paramList != null) {
-            intrfs = Erasurator.replaceFormalParameters(clsName, intrfs, paramList, skipRawTypes);
+        if (substitution != null) {
+            intrfs = substitution.apply(intrfs);
         }
 
         MethodOverridingChecker overridingChecker = new MethodOverridingChecker(erasurator);
@@ -264,7 +278,7 @@ public class MemberCollectionBuilder {
         retVal = addSuperMembers(intrfs, retVal);
 
         if (addInherited) {
-            addInherited(checkHidding, cl, hierarchy, paramList, skipRawTypes,
+            addInherited(checkHidding, cl, hierarchy, substitution,
                     overridingChecker, retVal);
         } else {
             fixAnnotations(cl, hierarchy);
@@ -273,9 +287,107 @@ public class MemberCollectionBuilder {
         return retVal;
     }
 
-    private void addInherited(boolean checkHidding, ClassDescription cl, ClassHierarchy hierarchy, List<String> paramList, boolean skipRawTypes, MethodOverridingChecker overridingChecker, MemberCollection retVal) throws ClassNotFoundException {
+    /**
+     * Returns members of the given superclass or superinterface with the
+     * given actual type arguments. The members are computed once and then
+     * copied from the cache.
+     */
+    private MemberCollection getInheritedMembers(ClassDescription superClass, String actualTypeParams,
+                                                 boolean checkHidding) throws ClassNotFoundException {
+        ClassHierarchy hierarchy = superClass.getClassHierarchy();
+        if (hierarchy != inheritedMembersHierarchy) {
+            inheritedMembers.clear();
+            inheritedMembersHierarchy = hierarchy;
+        }
+
+        String key = superClass.getQualifiedName() + (actualTypeParams == null ? "" : actualTypeParams)
+                + (checkHidding ? "+" : "-");
+        InheritedMembers members = inheritedMembers.get(key);
+        if (members == null) {
+            MemberCollection computed = getMembers(superClass, actualTypeParams, false, true, true, checkHidding);
+            members = new InheritedMembers(computed, hierarchy);
+            inheritedMembers.putIfAbsent(key, members);
+            return computed;
+        }
+
+        // the superclass inherits annotations while its members are computed
+        inheritAnnotations(superClass, hierarchy);
+        return members.copy();
+    }
+
+    private void inheritAnnotations(ClassDescription cl, ClassHierarchy hierarchy) throws ClassNotFoundException {
+        SuperClass superClassDescr = cl.getSuperClass();
+        if (superClassDescr != null) {
+            try {
+                ClassDescription superClass = hierarchy.load(superClassDescr.getQualifiedName());
+                inheritAnnotations(superClass, hierarchy);
+                findInheritableAnnotations(cl, superClass);
+            } catch (ClassNotFoundException ex) {
+                if (mode != BuildMode.SIGFILE) {
+                    throw ex;
+                }
+            }
+        }
+    }
+
+    /**
+     * Cached members of a superclass or superinterface.
+     */
+    private static final class InheritedMembers {
+
+        private final MemberDescription[] members;
+        /**
+         * Tells which members are declared by a loaded class, those are
+         * shared by all copies.
+         */
+        private final boolean[] declared;
+
+        InheritedMembers(MemberCollection computed, ClassHierarchy hierarchy) {
+            Collection<MemberDescription> all = computed.getAllMembers();
+            members = new MemberDescription[all.size()];
+            declared = new boolean[members.length];
+            Map<String, Set<MemberDescription>> declaredByClass = new HashMap<>();
+            int i = 0;
+            for (MemberDescription member : all) {
+                String name = member.getDeclaringClassName();
+                Set<MemberDescription> declaredMembers = declaredByClass.get(name);
+                if (declaredMembers == null) {
+                    declaredMembers = getDeclaredMembers(hierarchy, name);
+                    declaredByClass.put(name, declaredMembers);
+                }
+                declared[i] = declaredMembers.contains(member);
+                members[i] = declared[i] ? member : (MemberDescription) member.clone();
+                i++;
+            }
+        }
+
+        MemberCollection copy() {
+            MemberCollection copy = new MemberCollection();
+            for (int i = 0; i < members.length; i++) {
+                copy.addMember(declared[i] ? members[i] : (MemberDescription) members[i].clone());
+            }
+            return copy;
+        }
+
+        private static Set<MemberDescription> getDeclaredMembers(ClassHierarchy hierarchy, String name) {
+            Set<MemberDescription> result = Collections.newSetFromMap(new IdentityHashMap<MemberDescription, Boolean>());
+            try {
+                ClassDescription c = hierarchy.load(name);
+                Collections.addAll(result, c.getDeclaredConstructors());
+                Collections.addAll(result, c.getDeclaredMethods());
+                Collections.addAll(result, c.getDeclaredFields());
+                Collections.addAll(result, c.getDeclaredClasses());
+                Collections.addAll(result, c.getInterfaces());
+                Collections.addAll(result, c.getPermittedSubclasses());
+            } catch (ClassNotFoundException e) {
+                // members of missing classes are never shared
+            }
+            return result;
+        }
+    }
+
+    private void addInherited(boolean checkHidding, ClassDescription cl, ClassHierarchy hierarchy, Erasurator.Substitution substitution, MethodOverridingChecker overridingChecker, MemberCollection retVal) throws ClassNotFoundException {
 
-        String clsName = cl.getQualifiedName();
         Set<String> internalClasses = cl.getInternalClasses();
 
         Map<String, MemberDescription> inheritedFields = new HashMap<>();
@@ -284,14 +396,14 @@ public class MemberCollectionBuilder {
             try {
                 // creates members inherited from superclass
                 ClassDescription superClass = hierarchy.load(superClassDescr.getQualifiedName());
-                MemberCollection superMembers = getMembers(superClass, superClassDescr.getTypeParameters(), false, true, true, checkHidding);
+                MemberCollection superMembers = getInheritedMembers(superClass, superClassDescr.getTypeParameters(), checkHidding);
                 findInheritableAnnotations(cl, superClass);
                 //exclude non-accessible members
                 superMembers = getAccessibleMembers(superMembers, cl, superClass);
                 // process superclass methods
                 Collection<MemberDescription> coll = superMembers.getAllMembers();
-                if (paramList != null) {
-                    coll = Erasurator.replaceFormalParameters(clsName, coll, paramList, skipRawTypes);
+                if (substitution != null) {
+                    coll = substitution.apply(coll);
                 }
                 for (MemberDescription supMD : coll) {
                     if (supMD.isMethod()) {
@@ -323,8 +435,8 @@ public class MemberCollectionBuilder {
                 }
             }
         }
-        addInheritedFromInterfaces(cl, hierarchy, checkHidding, paramList,
-                skipRawTypes, overridingChecker,
+        addInheritedFromInterfaces(cl, hierarchy, checkHidding, substitution,
+                overridingChecker,
                 retVal, inheritedFields, internalClasses);
     }
 
@@ -332,12 +444,11 @@ public class MemberCollectionBuilder {
     // addInheritedFromInterfaces - getMembers - addInherited - addInheritedFromInterfaces - ...
     private void addInheritedFromInterfaces(ClassDescription cl,
                                             ClassHierarchy hierarchy, boolean checkHidding,
-                                            List<String> paramList, boolean skipRawTypes,
+                                            Erasurator.Substitution substitution,
                                             MethodOverridingChecker overridingChecker,
                                             MemberCollection retVal, Map<String, MemberDescription> inheritedFields,
                                             Set<String> internalClasses) throws ClassNotFoundException {
 
-        String clsName = cl.getQualifiedName();
         // findMember direct interfaces
         SuperInterface[] interfaces = cl.getInterfaces();
 
@@ -345,11 +456,11 @@ public class MemberCollectionBuilder {
         for (SuperInterface anInterface : interfaces) {
             try {
                 ClassDescription intf = hierarchy.load(anInterface.getQualifiedName());
-                MemberCollection h = getMembers(intf, anInterface.getTypeParameters(), false, true, true, checkHidding);
+                MemberCollection h = getInheritedMembers(intf, anInterface.getTypeParameters(), checkHidding);
                 //MemberCollection h = getMembers(intf, interfaces[i].getTypeParameters(), false, true, false, checkHidding);
                 Collection<MemberDescription> coll = h.getAllMembers();
-                if (paramList != null) {
-                    coll = Erasurator.replaceFormalParameters(clsName, coll, paramList, skipRawTypes);
+                if (substitution != null) {
+                    coll = substitution.apply(coll);
                 }
                 nextMemberToAdd:
                 for (MemberDescription membToAdd : coll) {
@@ -385,7 +496,7 @@ public class MemberCollectionBuilder {
 
                             if (cl.isInterface() && !membClass.equals(overClass) && membMods != overMods) {
                                 try {
-                                    if (hierarchy.getAllImplementedInterfaces(membClass).contains(overClass)) {
+                                    if (hierarchy.isImplementing(membClass, overClass)) {
                                         if (retVal.contains(overriden)) {
                                             retVal.changeMember(overriden, membToAdd);
                                             retVal.updateMember(membToAdd);
@@ -409,7 +520,7 @@ public class MemberCollectionBuilder {
                                 // more specific return type?
                                 String existReturnType = overriden.getType();
                                 String newReturnType = erased.getType();
-                                if (!existReturnType.equals(newReturnType) && (cl.getClassHierarchy().getSuperClasses(newReturnType).contains(existReturnType) || cl.getClassHierarchy().getAllImplementedInterfaces(newReturnType).contains(existReturnType))) {
+                                if (!existReturnType.equals(newReturnType) && (cl.getClassHierarchy().getSuperClasses(newReturnType).contains(existReturnType) || cl.getClassHierarchy().isImplementing(newReturnType, existReturnType))) {
                                     retVal.updateMember(membToAdd);
                                 }
                             } catch (ClassNotFoundException e) {
@@ -519,7 +630,7 @@ public class MemberCollectionBuilder {
                 String existReturnType = overriden.getType();
                 String newReturnType = erased.getType();
 
-                if (!existReturnType.equals(newReturnType) && (cl.getClassHierarchy().getSuperClasses(newReturnType).contains(existReturnType) || cl.getClassHierarchy().getAllImplementedInterfaces(newReturnType).contains(existReturnType))) {
+                if (!existReturnType.equals(newReturnType) && (cl.getClassHierarchy().getSuperClasses(newReturnType).contains(existReturnType) || cl.getClassHierarchy().isImplementing(newReturnType, existReturnType))) {
                     retVal.updateMember(supMD);
                 }
             } catch (ClassNotFoundException e) {
@@ -652,10 +763,12 @@ public class MemberCollectionBuilder {
 
     public void setBuildMode(BuildMode bm) {
         mode = bm;
+        inheritedMembers.clear();
     }
 
     public void setSecondClassHierarchy(ClassHierarchy signatureClassesHierarchy) {
         secondCH = signatureClassesHierarchy;
+        inheritedMembers.clear();
     }
 
     static class DefaultAfterBuildMembersTransformer implements Transformer {
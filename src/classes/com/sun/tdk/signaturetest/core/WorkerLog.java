@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) 2026, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.sun.tdk.signaturetest.core;
+
+import com.sun.tdk.signaturetest.util.Logger;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Log shared by worker threads which process classes out of order, each
+ * with its own class loader. Errors are passed to the target log at once.
+ * Warnings reported while a class is processed are recorded, and they are
+ * passed to the target log later, in the order of the classes, by
+ * {@link #replay(List)}.
+ * <p>
+ * A member declared by a loaded class is corrected in place once for all its
+ * subclasses, so every worker warns about the same correction. Such warnings
+ * are reported with a key of the member, and only the first one replayed for
+ * the key is passed to the target log, as if a single loader were used.
+ */
+public class WorkerLog implements Log {
+
+    private final Log target;
+    private final ThreadLocal<List<Warning>> recorded = new ThreadLocal<List<Warning>>() {
+        @Override
+        protected List<Warning> initialValue() {
+            return new ArrayList<>();
+        }
+    };
+    /**
+     * Keys of the replayed warnings, used by the thread which replays them.
+     */
+    private final Set<String> replayedKeys = new HashSet<>();
+
+    public WorkerLog(Log target) {
+        this.target = target;
+    }
+
+    public void storeError(String s, Logger utilLogger) {
+        target.storeError(s, utilLogger);
+    }
+
+    public void storeWarning(String s, Logger utilLogger) {
+        storeWarning(s, null, utilLogger);
+    }
+
+    /**
+     * Records a warning about a correction of a member shared by all the
+     * classes of a loader.
+     *
+     * @param key identifies the member regardless of the loader, or
+     *            {@code null} if the warning is not about a shared member
+     */
+    public void storeWarning(String s, String key, Logger utilLogger) {
+        recorded.get().add(new Warning(s, key, utilLogger));
+    }
+
+    /**
+     * Returns the warnings recorded by the current thread since the previous
+     * call.
+     */
+    public List<Warning> takeWarnings() {
+        List<Warning> warnings = recorded.get();
+        if (warnings.isEmpty()) {
+            return null;
+        }
+        recorded.remove();
+        return warnings;
+    }
+
+    /**
+     * Passes the given warnings, taken by {@link #takeWarnings()}, to the
+     * target log. Warnings must be replayed by the same thread.
+     */
+    public void replay(List<Warning> warnings) {
+        if (warnings == null) {
+            return;
+        }
+        for (Warning w : warnings) {
+            if (w.key == null || replayedKeys.add(w.key)) {
+                target.storeWarning(w.message, w.utilLogger);
+            }
+        }
+    }
+
+    public static class Warning {
+
+        final String message;
+        final String key;
+        final Logger utilLogger;
+
+        Warning(String message, String key, Logger utilLogger) {
+            this.message = message;
+            this.key = key;
+            this.utilLogger = utilLogger;
+        }
+    }
+}
@@ -33,7 +33,7 @@ import java.util.EnumSet;
 public class MergeOptions extends Options {
 
     private final EnumSet<Option> options = EnumSet.of(Option.FILES, Option.WRITE,
-            Option.BINARY, Option.HELP, Option.VERSION);
+            Option.BINARY, Option.THREADS, Option.HELP, Option.VERSION);
 
     @Override
     public EnumSet<Option> getOptions() {
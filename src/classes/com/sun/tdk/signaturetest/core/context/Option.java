@@ -59,6 +59,8 @@ public enum Option {
     TS_ICNLUDEW("-tsIncludeW", Kind.MANY_OPT),
     TS_EXCLUDE("-tsExclude", Kind.MANY_OPT),
     API_INCLUDEW("-apiIncludeW", Kind.MANY_OPT),
+    THREADS("-threads", Kind.SINGLE_OPT),
+    CLASS_CACHE_DIR("-classCacheDir", Kind.SINGLE_OPT),
 
     FILTERMAP("-FilterMap", Kind.MANY_OPT),
     FILTERSIG("-FilterSig", Kind.MANY_OPT),
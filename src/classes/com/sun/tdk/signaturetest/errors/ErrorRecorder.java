@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2026, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.sun.tdk.signaturetest.errors;
+
+import com.sun.tdk.signaturetest.model.ClassDescription;
+import com.sun.tdk.signaturetest.model.MemberDescription;
+import com.sun.tdk.signaturetest.model.MemberType;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * This error formatter doesn't print anything. It remembers errors and tested
+ * classes reported while a single class is checked by a worker thread, so that
+ * they can be passed to the real formatter later in the order the classes
+ * were read from the signature file.
+ */
+public class ErrorRecorder extends SortedErrorFormatter {
+
+    private final List<Object> events = new ArrayList<>();
+
+    public ErrorRecorder() {
+        super(null, false);
+    }
+
+    @Override
+    public void tested(ClassDescription tested) {
+        events.add(tested);
+    }
+
+    @Override
+    public void addError(MessageType kind, String className, MemberType type, String def, String tail, MemberDescription errorObject) {
+        events.add(new RecordedError(kind, className, type, def, tail, errorObject));
+        if (!kind.isWarning()) {
+            numErrors++;
+        }
+    }
+
+    @Override
+    public void printErrors() {
+    }
+
+    /**
+     * Passes all the recorded events to the given formatter.
+     */
+    public void replay(ErrorFormatter target) {
+        for (Object event : events) {
+            if (event instanceof RecordedError) {
+                RecordedError e = (RecordedError) event;
+                target.addError(e.kind, e.className, e.type, e.def, e.tail, e.errorObject);
+            } else if (target instanceof SortedErrorFormatter) {
+                ((SortedErrorFormatter) target).tested((ClassDescription) event);
+            }
+        }
+        events.clear();
+    }
+
+    private static class RecordedError {
+
+        final MessageType kind;
+        final String className;
+        final MemberType type;
+        final String def;
+        final String tail;
+        final MemberDescription errorObject;
+
+        RecordedError(MessageType kind, String className, MemberType type, String def, String tail, MemberDescription errorObject) {
+            this.kind = kind;
+            this.className = className;
+            this.type = type;
+            this.def = def;
+            this.tail = tail;
+            this.errorObject = errorObject;
+        }
+    }
+}
@@ -32,12 +32,15 @@ import com.sun.tdk.signaturetest.core.PrimitiveTypes;
 import com.sun.tdk.signaturetest.core.context.BaseOptions;
 import com.sun.tdk.signaturetest.core.context.Option;
 import com.sun.tdk.signaturetest.model.*;
+import com.sun.tdk.signaturetest.util.ConcurrentCache;
 import com.sun.tdk.signaturetest.util.I18NResourceBundle;
-import com.sun.tdk.signaturetest.util.LRUCache;
 import com.sun.tdk.signaturetest.util.SwissKnife;
 
 import java.io.*;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
 
 /**
  * This is subclass of the MemberCollectionBuilder provides searching class
@@ -56,46 +59,62 @@ public class BinaryClassDescrLoader implements ClassDescriptionLoader, LoadingHi
 
         private int major_version;          // class file format versions
         private int minor_version;
-        private Constant[] constants;       // in-memory copy of the constant pool
+        private byte[] bytes;               // contents of the class file
+        private ClassBytes input;           // the rest of the class file after the constant pool
+        private byte[] tags;                // tags of the constant pool entries
+        private int[] offsets;              // positions of the entries in bytes, right after the tag
+        private String[] strings;           // CONSTANT_Utf8 entries decoded so far
         private String[] sigctors,
                 sigfields,
                 sigmethods;
-
-        private void readCP(DataInput classData) throws IOException {
-            int n = classData.readUnsignedShort();
-            constants = new Constant[n];
-            constants[0] = null;
+        // classes the description depends on, see PersistentClassCache
+        private final Set<String> dependencies = new LinkedHashSet<>();
+        // set if messages were reported while the class was read
+        private boolean reported;
+
+        /**
+         * Scans the constant pool starting at the given position of the class
+         * file. Only tags and positions of the entries are stored, values are
+         * decoded when they are requested the first time.
+         *
+         * @return position of the first byte after the constant pool
+         */
+        private int readCP(byte[] bytes, int pos) {
+            this.bytes = bytes;
+            int n = readUnsignedShort(bytes, pos);
+            pos += 2;
+            tags = new byte[n];
+            offsets = new int[n];
+            strings = new String[n];
             for (int i = 1; i < n; i++) {
-                constants[i] = new Constant();
-                constants[i].read(classData);
-                if (constants[i].tag == CONSTANT_Long || constants[i].tag == CONSTANT_Double) {
+                byte tag = bytes[pos++];
+                tags[i] = tag;
+                offsets[i] = pos;
+                pos += getConstantSize(tag, bytes, pos);
+                if (tag == CONSTANT_Long || tag == CONSTANT_Double) {
                     i++;
                 }
             }
+            return pos;
         }
 
         List<MemberDescription> getMethodRefs() {
             List<MemberDescription> memberList = new ArrayList<>();
-            int n = constants.length;
+            int n = tags.length;
             for (int i = 1; i < n; i++) {
-                if (constants[i].tag == CONSTANT_Long || constants[i].tag == CONSTANT_Double) {
-                    i++;
-                    continue;
-                }
-                if (constants[i].tag != CONSTANT_Methodref && constants[i].tag != CONSTANT_InterfaceMethodref
-                        && constants[i].tag != CONSTANT_Fieldref) {
+                if (tags[i] != CONSTANT_Methodref && tags[i] != CONSTANT_InterfaceMethodref
+                        && tags[i] != CONSTANT_Fieldref) {
                     continue;
                 }
-                int refs = (Integer) getConstant(i).info;
-                short nameAndType = (short) refs;
-                short decl = (short) (refs >> 16);
+                int decl = readUnsignedShort(bytes, offsets[i]);
+                int nameAndType = readUnsignedShort(bytes, offsets[i] + 2);
 
                 String methodName = getMethodName(nameAndType);
                 String className = getClassName(decl);
                 boolean isConstructor = "<init>".equals(methodName);
                 MemberDescription fid;
 
-                if (constants[i].tag == CONSTANT_Fieldref) {
+                if (tags[i] == CONSTANT_Fieldref) {
                     fid = new FieldDescr(methodName, className, 1);
                 } else {
                     if (isConstructor) {
@@ -111,7 +130,7 @@ public class BinaryClassDescrLoader implements ClassDescriptionLoader, LoadingHi
                     try {
                         fid.setArgs(BinaryClassDescrLoader.getArgs(descr.substring(1, pos)));
                     } catch (IllegalArgumentException e) {
-                        err(i18n.getString("BinaryClassDescrLoader.message.incorrectformat", Short.toString(decl)));
+                        err(i18n.getString("BinaryClassDescrLoader.message.incorrectformat", Integer.toString(decl)));
                     }
                 }
                 memberList.add(fid);
@@ -119,12 +138,14 @@ public class BinaryClassDescrLoader implements ClassDescriptionLoader, LoadingHi
             return memberList;
         }
 
-        private Constant getConstant(int i) {
-            if (i <= 0 || i >= constants.length) {
+        private void checkConstant(int i, int exp) {
+            if (i <= 0 || i >= tags.length) {
                 throw new ClassFormatError(i18n.getString("BinaryClassDescrLoader.error.cpoutofbounds"));
             }
-
-            return constants[i];
+            if (tags[i] != exp) {
+                String[] consts = {Integer.toString(exp & 0xFF), Integer.toString(tags[i] & 0xFF)};
+                throw new ClassFormatError(i18n.getString("BinaryClassDescrLoader.error.const", consts));
+            }
         }
 
         //  Read and store constant pool
@@ -134,13 +155,8 @@ public class BinaryClassDescrLoader implements ClassDescriptionLoader, LoadingHi
                 return null;
             }
 
-            Constant c = getConstant(i);
-            c.checkConstant(CONSTANT_Class);
-
-            c = getConstant((Integer) c.info);
-            c.checkConstant(CONSTANT_Utf8);
-
-            return ((String) c.info).replace('/', '.');
+            checkConstant(i, CONSTANT_Class);
+            return getName(readUnsignedShort(bytes, offsets[i])).replace('/', '.');
         }
 
         private String getMethodName(int i) {
@@ -148,41 +164,79 @@ public class BinaryClassDescrLoader implements ClassDescriptionLoader, LoadingHi
                 return null;
             }
 
-            Constant c = getConstant(i);
-            c.checkConstant(CONSTANT_NameAndType);
-            return getName((Integer) c.info >> 16);
+            checkConstant(i, CONSTANT_NameAndType);
+            return getName(readUnsignedShort(bytes, offsets[i]));
         }
 
         private String getMethodType(int i) {
             if (i == 0) {
                 return null;
             }
-            Constant c = getConstant(i);
-            c.checkConstant(CONSTANT_NameAndType);
-            return getName(((Integer) c.info).shortValue());
+            checkConstant(i, CONSTANT_NameAndType);
+            return getName(readUnsignedShort(bytes, offsets[i] + 2));
         }
 
         private Object getConstantValue(int i) {
-            Constant c = getConstant(i);
-            if (c.tag == CONSTANT_String) {
-                return getName(((Short) c.info).intValue() & 0xFFFF);
+            if (i <= 0 || i >= tags.length) {
+                throw new ClassFormatError(i18n.getString("BinaryClassDescrLoader.error.cpoutofbounds"));
+            }
+            int pos = offsets[i];
+            switch (tags[i]) {
+                case CONSTANT_String:
+                    return getName(readUnsignedShort(bytes, pos));
+                case CONSTANT_Utf8:
+                    return getName(i);
+                case CONSTANT_Class:
+                    return readUnsignedShort(bytes, pos);
+                case CONSTANT_Integer:
+                case CONSTANT_Fieldref:
+                case CONSTANT_Methodref:
+                case CONSTANT_InterfaceMethodref:
+                case CONSTANT_NameAndType:
+                    return readInt(bytes, pos);
+                case CONSTANT_Float:
+                    return Float.intBitsToFloat(readInt(bytes, pos));
+                case CONSTANT_Long:
+                    return readLong(bytes, pos);
+                case CONSTANT_Double:
+                    return Double.longBitsToDouble(readLong(bytes, pos));
+                case CONSTANT_MethodHandle:
+                    return "CONSTANT_MethodHandle";
+                case CONSTANT_MethodType:
+                    return "CONSTANT_MethodType";
+                case CONSTANT_Dynamic:
+                    return "CONSTANT_Dynamic";
+                case CONSTANT_InvokeDynamic:
+                    return "CONSTANT_InvokeDynamic";
+                case CONSTANT_ModuleId:
+                case CONSTANT_ModuleQuery:
+                    return "CONSTANT_ModuleId";
+                default:
+                    // the 2nd slot of a long or double constant
+                    return null;
             }
-
-            return c.info;
         }
 
         private String getName(int i) {
-            Constant c = getConstant(i);
-            c.checkConstant(CONSTANT_Utf8);
+            checkConstant(i, CONSTANT_Utf8);
 
-            return (String) c.info;
+            String s = strings[i];
+            if (s == null) {
+                s = decodeUTF(bytes, offsets[i] + 2, readUnsignedShort(bytes, offsets[i]));
+                strings[i] = s;
+            }
+            return s;
         }
 
         private void cleanup() {
             sigctors = null;
             sigfields = null;
             sigmethods = null;
-            constants = null;
+            bytes = null;
+            input = null;
+            tags = null;
+            offsets = null;
+            strings = null;
         }
 
         @Override
@@ -199,13 +253,27 @@ public class BinaryClassDescrLoader implements ClassDescriptionLoader, LoadingHi
     /**
      * cache of the loaded classes.
      */
-    private final LRUCache<String, BinaryClassDescription> cache;
+    private final ConcurrentCache<String, BinaryClassDescription> cache;
+    /**
+     * Keeps the parsed classes between runs, or {@code null}.
+     */
+    private PersistentClassCache persistentCache;
+    /**
+     * Receives names of the requested classes, or {@code null}.
+     */
+    private Set<String> requestedClasses;
     /**
      * This stack is used to prevent infinite recursive calls of load(String
      * name) method. E.g. the annotation Documented is one example of such
-     * recursion
+     * recursion. Every thread has its own stack, the classes are kept in
+     * the order they are loaded in.
      */
-    private final Map<String, BinaryClassDescription> stack = new HashMap<>();
+    private final ThreadLocal<Map<String, BinaryClassDescription>> stack = new ThreadLocal<Map<String, BinaryClassDescription>>() {
+        @Override
+        protected Map<String, BinaryClassDescription> initialValue() {
+            return new LinkedHashMap<>();
+        }
+    };
 
     /**
      * creates new instance.
@@ -214,8 +282,43 @@ public class BinaryClassDescrLoader implements ClassDescriptionLoader, LoadingHi
      * @param bufferSize size of the class cache.
      */
     public BinaryClassDescrLoader(Classpath classpath, Integer bufferSize) {
+        this(classpath, bufferSize, ConcurrentCache.Policy.LRU);
+    }
+
+    /**
+     * creates new instance.
+     *
+     * @param classpath   contains class files.
+     * @param bufferSize  size of the class cache.
+     * @param cachePolicy eviction policy of the class cache.
+     */
+    public BinaryClassDescrLoader(Classpath classpath, Integer bufferSize, ConcurrentCache.Policy cachePolicy) {
         this.classpath = classpath;
-        cache = new LRUCache<>(bufferSize);
+        cache = new ConcurrentCache<>(bufferSize, cachePolicy);
+    }
+
+    /**
+     * Returns the class cache, e.g. to report its statistics.
+     */
+    public ConcurrentCache<String, ? extends ClassDescription> getCache() {
+        return cache;
+    }
+
+    /**
+     * Sets the cache keeping parsed classes between runs. The cache may be
+     * shared by the loaders of the same classpath.
+     */
+    public void setPersistentCache(PersistentClassCache persistentCache) {
+        this.persistentCache = persistentCache;
+    }
+
+    /**
+     * Sets the set receiving names of all the classes requested from this
+     * loader, including the classes which are not found. The set may be
+     * shared by several loaders, so it must be thread-safe.
+     */
+    public void setRequestedClasses(Set<String> requestedClasses) {
+        this.requestedClasses = requestedClasses;
     }
 
     /**
@@ -224,20 +327,52 @@ public class BinaryClassDescrLoader implements ClassDescriptionLoader, LoadingHi
      * @param className className of the class required to be found.
      */
     public ClassDescription load(String className) throws ClassNotFoundException {
+        return load(className, null);
+    }
+
+    /**
+     * Loads the class like {@link #load(String)} and also adds the method
+     * and field references found in its constant pool to {@code calls}. A
+     * class which is not cached yet is parsed only once for both, a cached
+     * class is read again for the references only.
+     *
+     * @param className name of the class required to be found.
+     * @param calls     receives the references, see {@link #loadCalls(String)}
+     */
+    public ClassDescription loadWithCalls(String className, List<MemberDescription> calls) throws ClassNotFoundException {
+        return load(className, calls);
+    }
+
+    private ClassDescription load(String className, List<MemberDescription> calls) throws ClassNotFoundException {
         className = ExoticCharTools.decodeExotic(className);
 
         assert className.indexOf('<') == -1 : className;
 
+        if (requestedClasses != null) {
+            requestedClasses.add(className);
+        }
+
         // search in the cache
         BinaryClassDescription c = cache.get(className);
 
         if (c != null) {
+            if (calls != null) {
+                calls.addAll(loadCalls(className));
+            }
             return c;
         }
 
         // check recursive call
+        Map<String, BinaryClassDescription> stack = this.stack.get();
         c = stack.get(className);
         if (c != null) {
+            // the classes loaded since this one get a partially read class,
+            // which depends on the order the classes are requested in
+            boolean partial = false;
+            for (Map.Entry<String, BinaryClassDescription> e : stack.entrySet()) {
+                partial |= e.getKey().equals(className);
+                e.getValue().reported |= partial;
+            }
             return c;
         }
 
@@ -247,9 +382,24 @@ public class BinaryClassDescrLoader implements ClassDescriptionLoader, LoadingHi
             c = new BinaryClassDescription();
 
             stack.put(className, c);
-            is = classpath.findClass(className);
-            readClass(c, is, className);
-            cache.put(className, c);
+            String settings = persistentCache == null ? null : getPersistentCacheSettings();
+            if (settings != null && persistentCache.load(settings, className, c, c.dependencies)) {
+                // the dependencies would be requested if the class was parsed
+                if (requestedClasses != null) {
+                    requestedClasses.addAll(c.dependencies);
+                }
+                if (calls != null) {
+                    calls.addAll(loadCalls(className));
+                }
+            } else {
+                is = classpath.findClass(className);
+                readClass(c, is, className, calls);
+                if (settings != null && !c.reported) {
+                    persistentCache.store(settings, className, c, c.dependencies);
+                }
+            }
+            // another thread could load the same class meanwhile
+            c = cache.putIfAbsent(className, c);
         } catch (IOException e) {
             if (bo.isSet(Option.DEBUG)) {
                 SwissKnife.reportThrowable(e);
@@ -308,118 +458,167 @@ public class BinaryClassDescrLoader implements ClassDescriptionLoader, LoadingHi
             CONSTANT_ModuleId = 19,
             CONSTANT_ModuleQuery = 20;
 
-    //  Constant pool entry
-    private static class Constant {
+    /**
+     * Contents of a class file which give out attributes without copying
+     * them. The same stream is reused for all the attributes of the class.
+     */
+    private static class ClassBytes extends ByteArrayInputStream {
 
-        byte tag;
-        Object info;
+        private final Slice slice = new Slice();
+        private final DataInputStream attribute = new DataInputStream(slice);
 
-        void checkConstant(int exp) {
-            if (tag != exp) {
-                String[] consts = {Integer.toString(exp & 0xFF), Integer.toString(tag & 0xFF)};
-                throw new ClassFormatError(i18n.getString("BinaryClassDescrLoader.error.const", consts));
-            }
+        ClassBytes(byte[] bytes, int offset) {
+            super(bytes, offset, bytes.length - offset);
         }
 
-        String getName() {
-            checkConstant(CONSTANT_Utf8);
-            return (String) info;
+        /**
+         * Returns a stream over the given number of bytes following the
+         * current position, and skips them. The stream is valid until the
+         * next call.
+         */
+        DataInputStream next(int length) throws EOFException {
+            if (length < 0 || length > count - pos) {
+                throw new EOFException();
+            }
+            slice.set(buf, pos, length);
+            pos += length;
+            return attribute;
         }
 
-        void read(DataInput classData) throws IOException {
-            tag = classData.readByte();
-            switch (tag) {
-                case CONSTANT_Class:
-                    info = classData.readUnsignedShort();
-                    break;
-
-                case CONSTANT_Fieldref:
-                case CONSTANT_Methodref:
-                case CONSTANT_InterfaceMethodref:
-                    info = classData.readInt();
-                    break;
-
-                case CONSTANT_String:
-                    info = classData.readShort();
-                    break;
-
-                case CONSTANT_Integer:
-                    info = classData.readInt();
-                    break;
-
-                case CONSTANT_Float:
-                    info = classData.readFloat();
-                    break;
-
-                case CONSTANT_Long:
-                    info = classData.readLong();
-                    break;
+        private static class Slice extends ByteArrayInputStream {
 
-                case CONSTANT_Double:
-                    info = classData.readDouble();
-                    break;
+            Slice() {
+                super(new byte[0]);
+            }
 
-                case CONSTANT_NameAndType:
-                    info = classData.readInt();
-                    break;
+            void set(byte[] bytes, int offset, int length) {
+                buf = bytes;
+                pos = offset;
+                count = offset + length;
+                mark = offset;
+            }
+        }
+    }
 
-                case CONSTANT_Utf8:
-                    info = classData.readUTF();
-                    break;
+    /**
+     * Returns the size of the constant pool entry value which starts at the
+     * given position, right after the tag.
+     */
+    private static int getConstantSize(byte tag, byte[] bytes, int pos) {
+        switch (tag) {
+            case CONSTANT_Class:
+            case CONSTANT_String:
+            case CONSTANT_MethodType:
+                return 2;
+
+            case CONSTANT_MethodHandle:
+                //int reference_kind, int reference_index
+                return 3;
+
+            case CONSTANT_Fieldref:
+            case CONSTANT_Methodref:
+            case CONSTANT_InterfaceMethodref:
+            case CONSTANT_Integer:
+            case CONSTANT_Float:
+            case CONSTANT_NameAndType:
+                return 4;
+
+            case CONSTANT_Dynamic:
+            case CONSTANT_InvokeDynamic:
+                //int bootstrap_method_attr_index, int name_and_type_index
+                return 4;
+
+            case CONSTANT_ModuleId:
+            case CONSTANT_ModuleQuery:
+                //int name_index, int version_index
+                return 4;
+
+            case CONSTANT_Long:
+            case CONSTANT_Double:
+                return 8;
+
+            case CONSTANT_Utf8:
+                return 2 + readUnsignedShort(bytes, pos);
+
+            default:
+                throw new ClassFormatError(i18n.getString("BinaryClassDescrLoader.error.unknownconst",
+                        Integer.toString(tag)));
+        }
+    }
 
-                case CONSTANT_MethodHandle:
-                    //int reference_kind
-                    classData.readUnsignedByte();
-                    //int reference_index
-                    classData.readUnsignedShort();
-                    info = "CONSTANT_MethodHandle";
-                    break;
+    private static int readUnsignedShort(byte[] bytes, int pos) {
+        return ((bytes[pos] & 0xFF) << 8) | (bytes[pos + 1] & 0xFF);
+    }
 
-                case CONSTANT_MethodType:
-                    //int descriptor_index
-                    classData.readUnsignedShort();
-                    info = "CONSTANT_MethodType";
-                    break;
+    private static int readInt(byte[] bytes, int pos) {
+        return (bytes[pos] << 24) | ((bytes[pos + 1] & 0xFF) << 16)
+                | ((bytes[pos + 2] & 0xFF) << 8) | (bytes[pos + 3] & 0xFF);
+    }
 
-                case CONSTANT_Dynamic:
-                    // don't we need these values?
-                    //int bootstrap_method_attr_index
-                    classData.readUnsignedShort();
-                    //int name_and_type_index
-                    classData.readUnsignedShort();
-                    info = "CONSTANT_Dynamic";
-                    break;
+    private static long readLong(byte[] bytes, int pos) {
+        return ((long) readInt(bytes, pos) << 32) | (readInt(bytes, pos + 4) & 0xFFFFFFFFL);
+    }
 
-                case CONSTANT_InvokeDynamic:
-                    // don't we need these values?
-                    //int bootstrap_method_attr_index
-                    classData.readUnsignedShort();
-                    //int name_and_type_index
-                    classData.readUnsignedShort();
-                    info = "CONSTANT_InvokeDynamic";
-                    break;
+    /**
+     * Decodes modified UTF-8 string of the given length, see
+     * {@link DataInput#readUTF()}.
+     */
+    private static String decodeUTF(byte[] bytes, int pos, int len) {
+        int end = pos + len;
+        int i = pos;
+        while (i < end && bytes[i] >= 0) {
+            i++;
+        }
+        if (i == end) {
+            return new String(bytes, pos, len, StandardCharsets.ISO_8859_1);
+        }
+
+        char[] chars = new char[len];
+        int n = 0;
+        for (i = pos; i < end; ) {
+            int b = bytes[i++] & 0xFF;
+            if (b < 0x80) {
+                chars[n++] = (char) b;
+            } else if ((b & 0xE0) == 0xC0) {
+                chars[n++] = (char) (((b & 0x1F) << 6) | (bytes[i++] & 0x3F));
+            } else if ((b & 0xF0) == 0xE0) {
+                chars[n++] = (char) (((b & 0x0F) << 12) | ((bytes[i++] & 0x3F) << 6) | (bytes[i++] & 0x3F));
+            } else {
+                throw new ClassFormatError(i18n.getString("BinaryClassDescrLoader.error.utf"));
+            }
+        }
+        return new String(chars, 0, n);
+    }
 
-                case CONSTANT_ModuleId:
-                case CONSTANT_ModuleQuery:
-                    // don't we need these values?
-                    //int name_index
-                    classData.readUnsignedShort();
-                    //int version_index
-                    classData.readUnsignedShort();
-                    info = "CONSTANT_ModuleId";
+    private static byte[] readBytes(InputStream is) throws IOException {
+        byte[] buf = new byte[Math.max(is.available(), 1024)];
+        int len = 0;
+        while (true) {
+            if (len == buf.length) {
+                int b = is.read();
+                if (b < 0) {
                     break;
-
-                default:
-                    throw new ClassFormatError(i18n.getString("BinaryClassDescrLoader.error.unknownconst",
-                            Integer.toString(tag)));
+                }
+                buf = Arrays.copyOf(buf, len * 2);
+                buf[len++] = (byte) b;
+            }
+            int n = is.read(buf, len, buf.length - len);
+            if (n < 0) {
+                break;
             }
+            len += n;
         }
+        return len == buf.length ? buf : Arrays.copyOf(buf, len);
     }
 
-    private void readClass(BinaryClassDescription c, InputStream is, String className) {
-        try(DataInputStream classData = new DataInputStream(is)) {
-            readClass(c, classData);
+    private void readClass(BinaryClassDescription c, InputStream is, String className, List<MemberDescription> calls) {
+        try (InputStream classData = is) {
+            readClass(c, readBytes(classData));
+            if (calls != null) {
+                calls.addAll(c.getMethodRefs());
+            }
         } catch (Throwable t) {
+            c.reported = true;
             System.err.println(i18n.getString("BinaryClassDescrLoader.error.classname", className));
             SwissKnife.reportThrowable(t);
         } finally {
@@ -427,20 +626,40 @@ public class BinaryClassDescrLoader implements ClassDescriptionLoader, LoadingHi
         }
     }
 
-    private void readClass(BinaryClassDescription c, DataInput classData) throws IOException {
+    /**
+     * Checks the class file header and scans the constant pool.
+     *
+     * @return position of the access flags following the constant pool
+     */
+    private static int readHeader(BinaryClassDescription c, byte[] bytes) throws IOException {
+
+        if (bytes.length < 10) {
+            throw new EOFException();
+        }
 
-        int magic = classData.readInt();
+        int magic = readInt(bytes, 0);
         if (magic != MAGIC) {
             String[] invargs = {Integer.toString(magic), Integer.toString(MAGIC)};
             throw new ClassFormatError(i18n.getString("BinaryClassDescrLoader.error.magicnum", invargs));
         }
 
-        c.minor_version = classData.readUnsignedShort();
-        c.major_version = classData.readUnsignedShort();
+        c.minor_version = readUnsignedShort(bytes, 4);
+        c.major_version = readUnsignedShort(bytes, 6);
 
         c.setTiger(c.major_version >= TIGER_CLASS_VERSION);
 
-        c.readCP(classData);
+        try {
+            return c.readCP(bytes, 8);
+        } catch (ArrayIndexOutOfBoundsException e) {
+            throw new EOFException();
+        }
+    }
+
+    private void readClass(BinaryClassDescription c, byte[] bytes) throws IOException {
+
+        int pos = readHeader(c, bytes);
+        c.input = new ClassBytes(bytes, pos);
+        DataInput classData = new DataInputStream(c.input);
 
         int flags = classData.readUnsignedShort();
         c.setModifiers(flags);
@@ -489,6 +708,7 @@ public class BinaryClassDescrLoader implements ClassDescriptionLoader, LoadingHi
             ClassDescription.TypeParameterList tp = null;
             String declaringClass = c.getDeclaringClassName();
             if (!MemberDescription.NO_DECLARING_CLASS.equals(declaringClass)) {
+                c.dependencies.add(declaringClass);
 
                 Classpath.KIND_CLASS_DATA k = classpath.isClassPresent(declaringClass);
 
@@ -508,6 +728,10 @@ public class BinaryClassDescrLoader implements ClassDescriptionLoader, LoadingHi
                             }
                         }
                         tp = enc.getTypeparamList();
+                        if (enc instanceof BinaryClassDescription) {
+                            // type parameters of the enclosing class depend on its enclosing classes
+                            c.dependencies.addAll(((BinaryClassDescription) enc).dependencies);
+                        }
                     } catch (ClassNotFoundException e) {
                         throw new ClassFormatError(i18n.getString("BinaryClassDescrLoader.error.enclosing", fqname));
                     }
@@ -553,14 +777,22 @@ public class BinaryClassDescrLoader implements ClassDescriptionLoader, LoadingHi
         }
     }
 
+    /**
+     * Returns the method and field references found in the constant pool of
+     * the class. Only the constant pool and the name of the class are read,
+     * members and attributes are skipped.
+     */
     public List<MemberDescription> loadCalls(String name) throws ClassNotFoundException {
 
         // String name = ClassCorrector.stripGenerics(className);
         List<MemberDescription> result;
         try {
             BinaryClassDescription c = new BinaryClassDescription();
-            try (DataInputStream classData = new DataInputStream(classpath.findClass(name))) {
-                readClass(c, classData);
+            try (InputStream classData = classpath.findClass(name)) {
+                byte[] bytes = readBytes(classData);
+                int pos = readHeader(c, bytes);
+                // constructor references are created with the name of the class
+                c.setupClassName(c.getClassName(readUnsignedShort(bytes, pos + 2)), MemberDescription.NO_DECLARING_CLASS);
                 result = c.getMethodRefs();
             } finally {
                 c.cleanup();
@@ -658,7 +890,7 @@ public class BinaryClassDescrLoader implements ClassDescriptionLoader, LoadingHi
             if (!hasHint(LoadingHints.READ_SYNTETHIC)) {
                 if (fid.hasModifier(Modifier.ACC_SYNTHETIC)) {
                     if (bo.isSet(Option.DEBUG)) {
-                        getLog().println(i18n.getString("BinaryClassDescrLoader.message.synthetic_field_skipped",
+                        report(i18n.getString("BinaryClassDescrLoader.message.synthetic_field_skipped",
                                 fid.getType() + " " + fid.getQualifiedName()));
                     }
                     continue;
@@ -772,14 +1004,14 @@ public class BinaryClassDescrLoader implements ClassDescriptionLoader, LoadingHi
             if (!hasHint(LoadingHints.READ_SYNTETHIC) && isSynthetic) {
                 if (bo.isSet(Option.DEBUG)) {
                     if (isConstructor) {
-                        getLog().println(i18n.getString("BinaryClassDescrLoader.message.synthetic_constr_skipped",
+                        report(i18n.getString("BinaryClassDescrLoader.message.synthetic_constr_skipped",
                                 memberD.getQualifiedName() + "(" + memberD.getArgs() + ")"));
                     } else {
                         String signature = memberD.getType() + " " + memberD.getQualifiedName() + "(" + memberD.getArgs() + ")";
                         if (isBridgeMethod) {
-                            getLog().println(i18n.getString("BinaryClassDescrLoader.message.bridge", signature));
+                            report(i18n.getString("BinaryClassDescrLoader.message.bridge", signature));
                         } else {
-                            getLog().println(i18n.getString("BinaryClassDescrLoader.message.synthetic_method_skipped",
+                            report(i18n.getString("BinaryClassDescrLoader.message.synthetic_method_skipped",
                                     signature));
                         }
                     }
@@ -979,9 +1211,8 @@ public class BinaryClassDescrLoader implements ClassDescriptionLoader, LoadingHi
                 int count = classData.readInt();
 
                 if (count != 0) {
-                    byte[] info = new byte[count];
-                    classData.readFully(info);
-                    is = new DataInputStream(new ByteArrayInputStream(info));
+                    // classData reads c.input directly, so the attribute starts at its position
+                    is = c.input.next(count);
                 }
 
                 if ("Synthetic".equals(name)) {
@@ -1100,11 +1331,12 @@ public class BinaryClassDescrLoader implements ClassDescriptionLoader, LoadingHi
                         read_member_value(c)));
             }
 
-            completeAnnotation(anno);
+            completeAnnotation(c, anno);
             return anno;
         }
 
-        void completeAnnotation(AnnotationItem anno) {
+        void completeAnnotation(BinaryClassDescription annotated, AnnotationItem anno) {
+            annotated.dependencies.add(anno.getName());
             try {
                 ClassDescription c;
                 try {
@@ -1134,9 +1366,8 @@ public class BinaryClassDescrLoader implements ClassDescriptionLoader, LoadingHi
                     }
                 }
             } catch (ClassNotFoundException e) {
-                if (!notFoundAnnotations.contains(anno.getName())) {
-                    getLog().println("Warning: " + i18n.getString("BinaryClassDescrLoader.error.annotnotfound", anno.getName()));
-                    notFoundAnnotations.add(anno.getName());
+                if (notFoundAnnotations.add(anno.getName())) {
+                    report("Warning: " + i18n.getString("BinaryClassDescrLoader.error.annotnotfound", anno.getName()));
                 }
                 //throw new ClassFormatError(i18n.getString("BinaryClassDescrLoader.error.annotnotfound", anno.getName()));
             }
@@ -1209,7 +1440,7 @@ public class BinaryClassDescrLoader implements ClassDescriptionLoader, LoadingHi
         void checkVersion(BinaryClassDescription c, String name, int vnbr) {
             String[] args = {name, c.getQualifiedName(), Integer.toString(c.major_version), Integer.toString(c.minor_version)};
             if (c.major_version < vnbr) {
-                getLog().println(i18n.getString("BinaryClassDescrLoader.message.attribute", args));
+                report(i18n.getString("BinaryClassDescrLoader.message.attribute", args));
             }
         }
 
@@ -1542,14 +1773,35 @@ public class BinaryClassDescrLoader implements ClassDescriptionLoader, LoadingHi
     }
 
     public void warning(String msg) {
+        report(msg);
+    }
+
+    /**
+     * Prints the message reported while classes are read. The classes being
+     * read are not kept by the persistent cache, so the message is printed
+     * again when they are read next time.
+     */
+    private void report(String msg) {
+        for (BinaryClassDescription c : stack.get().values()) {
+            c.reported = true;
+        }
         getLog().println(msg);
     }
 
+    private String getPersistentCacheSettings() {
+        List<String> names = new ArrayList<>();
+        for (Hint hint : hints) {
+            names.add(hint.toString());
+        }
+        Collections.sort(names);
+        return names + " ignoreAnnotations=" + ignoreAnnotations + " tiger=" + SigTest.isTigerFeaturesTracked;
+    }
+
     public void setIgnoreAnnotations(boolean value) {
         ignoreAnnotations = value;
     }
 
-    private final Set<Hint> hints = new HashSet<>();
+    private final Set<Hint> hints = new CopyOnWriteArraySet<>();
 
     public void addLoadingHint(Hint hint) {
         hints.add(hint);
@@ -1571,5 +1823,5 @@ public class BinaryClassDescrLoader implements ClassDescriptionLoader, LoadingHi
     }
 
     private PrintWriter log;
-    private final Set<String> notFoundAnnotations = new HashSet<>();
+    private final Set<String> notFoundAnnotations = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
 }
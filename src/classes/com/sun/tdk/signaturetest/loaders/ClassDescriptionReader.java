@@ -0,0 +1,209 @@
+/*
+ * Copyright (c) 2026, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.sun.tdk.signaturetest.loaders;
+
+import com.sun.tdk.signaturetest.model.*;
+import com.sun.tdk.signaturetest.sigfile.AnnotationParser;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads numbers, strings and class descriptions written by
+ * {@link ClassDescriptionWriter}.
+ */
+public class ClassDescriptionReader {
+
+    private final InputStream in;
+    private final List<String> strings = new ArrayList<>();
+    private final AnnotationParser annotationParser = new AnnotationParser();
+
+    public ClassDescriptionReader(InputStream in) {
+        this.in = in instanceof ByteArrayInputStream ? in : new BufferedInputStream(in);
+    }
+
+    public int readInt() throws IOException {
+        int result = 0;
+        for (int shift = 0; ; shift += 7) {
+            int b = in.read();
+            if (b < 0) {
+                throw new EOFException();
+            }
+            result |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return result;
+            }
+        }
+    }
+
+    public String readString() throws IOException {
+        int ref = readInt();
+        if (ref == 0) {
+            return null;
+        }
+        if (ref <= strings.size()) {
+            return strings.get(ref - 1);
+        }
+        if (ref != strings.size() + 1) {
+            throw new IOException("Bad string reference " + ref);
+        }
+        byte[] bytes = new byte[readInt()];
+        int pos = 0;
+        while (pos < bytes.length) {
+            int n = in.read(bytes, pos, bytes.length - pos);
+            if (n < 0) {
+                throw new EOFException();
+            }
+            pos += n;
+        }
+        String s = new String(bytes, StandardCharsets.UTF_8);
+        strings.add(s);
+        return s;
+    }
+
+    public ClassDescription readClass() throws IOException {
+        ClassDescription c = new ClassDescription();
+        readClass(c);
+        return c;
+    }
+
+    /**
+     * Reads class description into the given empty description.
+     */
+    public void readClass(ClassDescription c) throws IOException {
+        readMember(c);
+        c.setTiger(readInt() != 0);
+
+        if (readInt() != 0) {
+            SuperClass superClass = new SuperClass();
+            readMember(superClass);
+            c.setSuperClass(superClass);
+        }
+
+        SuperInterface[] interfaces = new SuperInterface[readInt()];
+        for (int i = 0; i < interfaces.length; i++) {
+            interfaces[i] = new SuperInterface();
+            readMember(interfaces[i]);
+        }
+        c.setInterfaces(interfaces);
+
+        PermittedSubClass[] permittedSubclasses = new PermittedSubClass[readInt()];
+        for (int i = 0; i < permittedSubclasses.length; i++) {
+            permittedSubclasses[i] = new PermittedSubClass();
+            readMember(permittedSubclasses[i]);
+        }
+        c.setPermittedSubclasses(permittedSubclasses);
+
+        FieldDescr[] fields = new FieldDescr[readInt()];
+        for (int i = 0; i < fields.length; i++) {
+            fields[i] = new FieldDescr();
+            readMember(fields[i]);
+        }
+        c.setFields(fields);
+
+        ConstructorDescr[] ctors = new ConstructorDescr[readInt()];
+        for (int i = 0; i < ctors.length; i++) {
+            ctors[i] = new ConstructorDescr();
+            readMember(ctors[i]);
+        }
+        c.setConstructors(ctors);
+
+        MethodDescr[] methods = new MethodDescr[readInt()];
+        for (int i = 0; i < methods.length; i++) {
+            methods[i] = new MethodDescr();
+            readMember(methods[i]);
+        }
+        c.setMethods(methods);
+
+        InnerDescr[] nested = new InnerDescr[readInt()];
+        for (int i = 0; i < nested.length; i++) {
+            nested[i] = new InnerDescr();
+            readMember(nested[i]);
+        }
+        c.setNestedClasses(nested);
+    }
+
+    private void readMember(MemberDescription m) throws IOException {
+        m.setModifiers(readInt());
+        String name = readString();
+        // the same as deserialization does
+        m.setupMemberName(name, readString());
+        m.setTypeParameters(readString());
+        m.setType(readString());
+        m.setArgs(readString());
+        m.setThrowables(readString());
+
+        int count = readInt();
+        if (count > 0) {
+            AnnotationItem[] annoList = new AnnotationItem[count];
+            for (int i = 0; i < count; i++) {
+                boolean inheritable = readInt() != 0;
+                annoList[i] = annotationParser.parse(readString());
+                annoList[i].setInheritable(inheritable);
+            }
+            m.setAnnoList(annoList);
+        }
+
+        if (m instanceof FieldDescr) {
+            ((FieldDescr) m).setConstantValue(readString());
+        } else if (m instanceof MethodDescr) {
+            ((MethodDescr) m).setAnnoDef(readValue());
+        } else if (m instanceof SuperInterface) {
+            ((SuperInterface) m).setDirect(readInt() != 0);
+        }
+    }
+
+    /**
+     * Reads default value of annotation element. Values which are not strings
+     * or arrays are restored as wrappers printed the same way as the original
+     * values.
+     */
+    private Object readValue() throws IOException {
+        switch (readInt()) {
+            case ClassDescriptionWriter.STRING_VALUE:
+                return readString();
+            case ClassDescriptionWriter.ARRAY_VALUE:
+                Object[] values = new Object[readInt()];
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = readValue();
+                }
+                return values;
+            case ClassDescriptionWriter.OTHER_VALUE:
+                return new AnnotationItem.ValueWrap(readString());
+            default:
+                return null;
+        }
+    }
+
+    public void close() throws IOException {
+        in.close();
+    }
+}
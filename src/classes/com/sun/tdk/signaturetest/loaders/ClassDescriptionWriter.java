@@ -0,0 +1,186 @@
+/*
+ * Copyright (c) 2026, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.sun.tdk.signaturetest.loaders;
+
+import com.sun.tdk.signaturetest.core.PrimitiveTypes;
+import com.sun.tdk.signaturetest.model.*;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Writes numbers, strings and class descriptions in a compact binary form
+ * which is read by {@link ClassDescriptionReader}.
+ * <p>
+ * All numbers are unsigned variable-length integers (7 bits per byte, the
+ * least significant group first). Every string is written once per stream:
+ * a string is referenced by its index in the strings written before plus
+ * one, zero means {@code null}, and the next index means a new string which
+ * follows as length in bytes and UTF-8 bytes. Default values of annotation
+ * elements keep their structure: strings and arrays are written as they
+ * are, other values as the strings written to the signature files.
+ * <p>
+ * Class descriptions keep everything the loaders create, including private
+ * members, so the descriptions read back are the same as the written ones.
+ * <p>
+ * Strings may be kept outside of the stream, e.g. in a table shared by
+ * several streams, by overriding {@link #writeString(String)} and
+ * {@link ClassDescriptionReader#readString()}.
+ */
+public class ClassDescriptionWriter {
+
+    // default values of annotation elements
+    static final int NO_VALUE = 0;
+    static final int STRING_VALUE = 1;
+    static final int ARRAY_VALUE = 2;
+    static final int OTHER_VALUE = 3;
+
+    private final OutputStream out;
+    private final Map<String, Integer> strings = new HashMap<>();
+
+    public ClassDescriptionWriter(OutputStream out) {
+        this.out = out instanceof ByteArrayOutputStream ? out : new BufferedOutputStream(out);
+    }
+
+    public void writeInt(int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    public void writeString(String s) throws IOException {
+        if (s == null) {
+            writeInt(0);
+            return;
+        }
+        Integer ref = strings.get(s);
+        if (ref != null) {
+            writeInt(ref);
+            return;
+        }
+        ref = strings.size() + 1;
+        strings.put(s, ref);
+        writeInt(ref);
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    public void writeClass(ClassDescription c) throws IOException {
+        writeMember(c);
+        writeInt(c.isTiger() ? 1 : 0);
+
+        SuperClass superClass = c.getSuperClass();
+        writeInt(superClass == null ? 0 : 1);
+        if (superClass != null) {
+            writeMember(superClass);
+        }
+        writeMembers(c.getInterfaces());
+        writeMembers(c.getPermittedSubclasses());
+        writeMembers(c.getDeclaredFields());
+        writeMembers(c.getDeclaredConstructors());
+        writeMembers(c.getDeclaredMethods());
+        writeMembers(c.getDeclaredClasses());
+    }
+
+    private void writeMembers(MemberDescription[] members) throws IOException {
+        writeInt(members.length);
+        for (MemberDescription m : members) {
+            writeMember(m);
+        }
+    }
+
+    private void writeMember(MemberDescription m) throws IOException {
+        writeInt(m.getModifiers());
+        writeString(getName(m));
+        writeString(m.getDeclaringClassName());
+        writeString(m.getTypeParameters());
+        writeString(m.getType());
+        writeString(m.getArgs());
+        writeString(m.getThrowables());
+
+        AnnotationItem[] annoList = m.getAnnoList();
+        writeInt(annoList.length);
+        for (AnnotationItem a : annoList) {
+            writeInt(a.isInheritable() ? 1 : 0);
+            writeString(a.toString());
+        }
+
+        if (m instanceof FieldDescr) {
+            writeString(((FieldDescr) m).getConstantValue());
+        } else if (m instanceof MethodDescr) {
+            writeValue(((MethodDescr) m).getAnnoDef());
+        } else if (m instanceof SuperInterface) {
+            writeInt(((SuperInterface) m).isDirect() ? 1 : 0);
+        }
+    }
+
+    private void writeValue(Object value) throws IOException {
+        if (value == null) {
+            writeInt(NO_VALUE);
+        } else if (value instanceof String) {
+            writeInt(STRING_VALUE);
+            writeString((String) value);
+        } else if (value instanceof Object[]) {
+            Object[] values = (Object[]) value;
+            writeInt(ARRAY_VALUE);
+            writeInt(values.length);
+            for (Object v : values) {
+                writeValue(v);
+            }
+        } else {
+            writeInt(OTHER_VALUE);
+            writeString(PrimitiveTypes.simpleObjectToString(value));
+        }
+    }
+
+    /**
+     * Returns the name as it is kept by the member, classes keep qualified
+     * names.
+     */
+    static String getName(MemberDescription m) {
+        MemberType type = m.getMemberType();
+        if (type == MemberType.CLASS || type == MemberType.SUPERCLASS
+                || type == MemberType.SUPERINTERFACE || type == MemberType.PERMITTEDSUBCLASS) {
+            return m.getQualifiedName();
+        }
+        return m.getName();
+    }
+
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    public void close() throws IOException {
+        out.close();
+    }
+}
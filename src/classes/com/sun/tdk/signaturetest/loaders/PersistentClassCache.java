@@ -0,0 +1,402 @@
+/*
+ * Copyright (c) 2026, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.sun.tdk.signaturetest.loaders;
+
+import com.sun.tdk.signaturetest.classpath.Classpath;
+import com.sun.tdk.signaturetest.classpath.ClasspathImpl;
+import com.sun.tdk.signaturetest.model.ClassDescription;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Keeps class descriptions created by {@link BinaryClassDescrLoader} between
+ * runs, so the classes of unchanged jar files and runtime images are not
+ * parsed again.
+ * <p>
+ * The descriptions are stored in the given directory, one file per
+ * classpath entry and loader settings. The file is named after a hash of
+ * the identity of the entry (its path, size and time of the last
+ * modification) and the settings, so a changed entry gets another file.
+ * Every stored class lists the classes its description depends on, like
+ * the enclosing class and the annotation types, together with the entries
+ * they were found in. A stored description is used only if all of them are
+ * found in the same entries again. Classes of directories and signature
+ * files are never stored.
+ * <p>
+ * A file is read when the first class of its entry is requested, the
+ * descriptions are decoded on demand. Strings are kept in a table shared by
+ * all the descriptions of the file, so every string is decoded once. New
+ * descriptions are written by {@link #save()}. The cache may be shared by several loaders and threads
+ * using the same classpath.
+ *
+ * @see com.sun.tdk.signaturetest.classpath.ClasspathEntry#getIdentity()
+ */
+public class PersistentClassCache {
+
+    private static final String MAGIC = "#SigTest class cache v1.0";
+    private static final String FILE_SUFFIX = ".cache";
+    private static final String NO_IDENTITY = "";
+
+    private final File directory;
+    private final ClasspathImpl classpath;
+    // identities of the entries the classes are found in
+    private final ConcurrentMap<String, String> identities = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Store> stores = new ConcurrentHashMap<>();
+
+    /**
+     * @param directory directory keeping the files, it is created when the
+     *                  cache is saved.
+     * @param classpath classpath of the loaders, the cache is not used unless
+     *                  it is a {@link ClasspathImpl}.
+     */
+    public PersistentClassCache(File directory, Classpath classpath) {
+        this.directory = directory;
+        this.classpath = classpath instanceof ClasspathImpl ? (ClasspathImpl) classpath : null;
+    }
+
+    /**
+     * Reads the stored description of the class into the given empty
+     * description, and adds names of the classes it depends on to
+     * {@code dependencies}.
+     *
+     * @param settings settings of the loader affecting the descriptions.
+     * @return false if the class is not stored or the stored description is
+     * out of date.
+     */
+    boolean load(String settings, String className, ClassDescription c, Set<String> dependencies) {
+        String identity = getIdentity(className);
+        if (identity == null) {
+            return false;
+        }
+        Store store = getStore(settings, identity);
+        byte[] record = store.get(className);
+        if (record == null) {
+            return false;
+        }
+
+        try {
+            ClassDescriptionReader in = store.createReader(record);
+            List<String> names = new ArrayList<>();
+            for (int i = in.readInt(); i > 0; i--) {
+                String name = in.readString();
+                if (!in.readString().equals(getIdentity(name))) {
+                    return false;
+                }
+                names.add(name);
+            }
+            c.setTypeparamList(readTypeParameters(in));
+            in.readClass(c);
+            dependencies.addAll(names);
+            return true;
+        } catch (IOException | RuntimeException e) {
+            // broken record, the class is parsed and stored again
+            return false;
+        }
+    }
+
+    /**
+     * Stores description of the class which has just been parsed. The class
+     * is not stored if it or one of the classes it depends on is found in an
+     * entry having no identity, or is not found.
+     */
+    void store(String settings, String className, ClassDescription c, Set<String> dependencies) {
+        String identity = getIdentity(className);
+        if (identity == null) {
+            return;
+        }
+        Store store = getStore(settings, identity);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(1024);
+        try {
+            ClassDescriptionWriter out = store.createWriter(bytes);
+            out.writeInt(dependencies.size());
+            for (String name : dependencies) {
+                String dependencyIdentity = getIdentity(name);
+                if (dependencyIdentity == null) {
+                    return;
+                }
+                out.writeString(name);
+                out.writeString(dependencyIdentity);
+            }
+            writeTypeParameters(out, c.getTypeparamList());
+            out.writeClass(c);
+            out.close();
+        } catch (IOException e) {
+            return;
+        }
+        store.put(className, bytes.toByteArray());
+    }
+
+    /**
+     * Writes the files of the entries which got new descriptions. A file is
+     * replaced at once, so other runs never read a partially written file.
+     */
+    public void save() throws IOException {
+        for (Store store : stores.values()) {
+            store.save();
+        }
+    }
+
+    private String getIdentity(String className) {
+        if (classpath == null) {
+            return null;
+        }
+        String identity = identities.get(className);
+        if (identity == null) {
+            identity = classpath.getIdentity(className);
+            if (identity == null) {
+                identity = NO_IDENTITY;
+            }
+            identities.put(className, identity);
+        }
+        return identity.equals(NO_IDENTITY) ? null : identity;
+    }
+
+    private Store getStore(String settings, String identity) {
+        String key = settings + '\n' + identity;
+        Store store = stores.get(key);
+        if (store == null) {
+            synchronized (stores) {
+                store = stores.get(key);
+                if (store == null) {
+                    store = new Store(new File(directory, hash(key) + FILE_SUFFIX), key);
+                    store.read();
+                    stores.put(key, store);
+                }
+            }
+        }
+        return store;
+    }
+
+    private static String hash(String key) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(key.getBytes(StandardCharsets.UTF_8));
+            StringBuilder sb = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            return Integer.toHexString(key.hashCode());
+        }
+    }
+
+    /**
+     * Type parameters of a class are needed when its nested classes are
+     * parsed, they are stored with the hidden ones.
+     */
+    private static void writeTypeParameters(ClassDescriptionWriter out, ClassDescription.TypeParameterList list) throws IOException {
+        if (list == null) {
+            out.writeInt(0);
+            return;
+        }
+        Map<String, ClassDescription.TypeParam> tab = list.getTab();
+        out.writeInt(tab.size() + 1);
+        for (ClassDescription.TypeParam p : tab.values()) {
+            List<ClassDescription.TypeParam> chain = new ArrayList<>();
+            for (ClassDescription.TypeParam h = p; h != null; h = h.getHidden()) {
+                chain.add(h);
+            }
+            out.writeString(p.getIdent());
+            out.writeInt(chain.size());
+            // the most hidden one first
+            for (int i = chain.size() - 1; i >= 0; i--) {
+                out.writeInt(chain.get(i).getSeqnb());
+                out.writeString(chain.get(i).getDeclared());
+            }
+        }
+    }
+
+    private static ClassDescription.TypeParameterList readTypeParameters(ClassDescriptionReader in) throws IOException {
+        int size = in.readInt();
+        if (size == 0) {
+            return null;
+        }
+        ClassDescription.TypeParameterList list = new ClassDescription.TypeParameterList(null);
+        for (int i = 1; i < size; i++) {
+            String ident = in.readString();
+            ClassDescription.TypeParam p = null;
+            for (int j = in.readInt(); j > 0; j--) {
+                p = new ClassDescription.TypeParam(in.readInt(), ident, in.readString(), p);
+            }
+            list.getTab().put(ident, p);
+        }
+        return list;
+    }
+
+    /**
+     * Descriptions of the classes of one classpath entry. Every description
+     * is an encoded record which starts with the dependencies of the class,
+     * strings of the records are kept in the table of the store. Strings are
+     * only added to the table, so the records written before stay valid.
+     */
+    private static class Store {
+
+        private final File file;
+        private final String key;
+        private Map<String, byte[]> stored = Collections.emptyMap();
+        private final ConcurrentMap<String, byte[]> added = new ConcurrentHashMap<>();
+        private final List<String> strings = new ArrayList<>();
+        private final Map<String, Integer> stringRefs = new HashMap<>();
+
+        Store(File file, String key) {
+            this.file = file;
+            this.key = key;
+        }
+
+        byte[] get(String className) {
+            byte[] record = added.get(className);
+            return record != null ? record : stored.get(className);
+        }
+
+        void put(String className, byte[] record) {
+            added.put(className, record);
+        }
+
+        private synchronized String getString(int ref) throws IOException {
+            if (ref > strings.size()) {
+                throw new IOException("Bad string reference " + ref);
+            }
+            return ref == 0 ? null : strings.get(ref - 1);
+        }
+
+        private synchronized int getStringRef(String s) {
+            if (s == null) {
+                return 0;
+            }
+            Integer ref = stringRefs.get(s);
+            if (ref == null) {
+                strings.add(s);
+                ref = strings.size();
+                stringRefs.put(s, ref);
+            }
+            return ref;
+        }
+
+        ClassDescriptionReader createReader(byte[] record) {
+            return new ClassDescriptionReader(new ByteArrayInputStream(record)) {
+                @Override
+                public String readString() throws IOException {
+                    return getString(readInt());
+                }
+            };
+        }
+
+        ClassDescriptionWriter createWriter(OutputStream out) {
+            return new ClassDescriptionWriter(out) {
+                @Override
+                public void writeString(String s) throws IOException {
+                    writeInt(getStringRef(s));
+                }
+            };
+        }
+
+        void read() {
+            if (!file.isFile()) {
+                return;
+            }
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+                if (!MAGIC.equals(in.readUTF()) || !key.equals(in.readUTF())) {
+                    return;
+                }
+                List<String> table = new ArrayList<>();
+                for (int i = in.readInt(); i > 0; i--) {
+                    byte[] bytes = new byte[in.readInt()];
+                    in.readFully(bytes);
+                    table.add(new String(bytes, StandardCharsets.UTF_8));
+                }
+                int count = in.readInt();
+                Map<String, byte[]> records = new HashMap<>(count * 2);
+                for (int i = 0; i < count; i++) {
+                    String name = in.readUTF();
+                    byte[] record = new byte[in.readInt()];
+                    in.readFully(record);
+                    records.put(name, record);
+                }
+                synchronized (this) {
+                    for (String string : table) {
+                        strings.add(string);
+                        if (!stringRefs.containsKey(string)) {
+                            stringRefs.put(string, strings.size());
+                        }
+                    }
+                }
+                stored = records;
+            } catch (IOException e) {
+                // broken file, it is written again when the cache is saved
+            }
+        }
+
+        void save() throws IOException {
+            if (added.isEmpty()) {
+                return;
+            }
+            Map<String, byte[]> records = new TreeMap<>(stored);
+            records.putAll(added);
+
+            if (!file.getParentFile().isDirectory() && !file.getParentFile().mkdirs()) {
+                throw new IOException("Can't create " + file.getParentFile());
+            }
+            File temp = File.createTempFile("sigtest", ".tmp", file.getParentFile());
+            try {
+                try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+                    out.writeUTF(MAGIC);
+                    out.writeUTF(key);
+                    synchronized (this) {
+                        out.writeInt(strings.size());
+                        for (String string : strings) {
+                            byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+                            out.writeInt(bytes.length);
+                            out.write(bytes);
+                        }
+                    }
+                    out.writeInt(records.size());
+                    for (Map.Entry<String, byte[]> e : records.entrySet()) {
+                        out.writeUTF(e.getKey());
+                        out.writeInt(e.getValue().length);
+                        out.write(e.getValue());
+                    }
+                }
+                try {
+                    Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+                }
+            } finally {
+                Files.deleteIfExists(temp.toPath());
+            }
+            stored = records;
+            added.clear();
+        }
+    }
+}
@@ -28,9 +28,7 @@ import com.sun.tdk.signaturetest.core.ClassDescriptionLoader;
 import com.sun.tdk.signaturetest.model.ClassDescription;
 import com.sun.tdk.signaturetest.sigfile.FeaturesHolder;
 
-import java.util.Iterator;
-import java.util.Map;
-import java.util.TreeMap;
+import java.util.*;
 
 /**
  * An abstract class loader that stores and restores classes to/from internal
@@ -42,6 +40,11 @@ import java.util.TreeMap;
 public class VirtualClassDescriptionLoader extends FeaturesHolder implements ClassDescriptionLoader {
 
     private final Map<String, ClassDescription> classDescriptions;
+    /**
+     * Nested classes by the declaring class and the simple name, built on
+     * demand and dropped when the set of classes changes.
+     */
+    private Map<String, Map<String, List<ClassDescription>>> nestedClasses;
 
     public VirtualClassDescriptionLoader() {
         this.classDescriptions = new TreeMap<>();
@@ -57,10 +60,57 @@ public class VirtualClassDescriptionLoader extends FeaturesHolder implements Cla
 
     public void add(ClassDescription cls) {
         classDescriptions.put(cls.getQualifiedName(), cls);
+        nestedClasses = null;
     }
 
     public Iterator<ClassDescription> getClassIterator() {
-        return classDescriptions.values().iterator();
+        final Iterator<ClassDescription> it = classDescriptions.values().iterator();
+        return new Iterator<ClassDescription>() {
+            public boolean hasNext() {
+                return it.hasNext();
+            }
+
+            public ClassDescription next() {
+                return it.next();
+            }
+
+            public void remove() {
+                it.remove();
+                nestedClasses = null;
+            }
+        };
+    }
+
+    /**
+     * Returns nested classes with the given simple name which are declared in
+     * the given class. Classes are returned in the order of
+     * {@link #getClassIterator()}.
+     */
+    public List<ClassDescription> getNestedClasses(String declaringClass, String name) {
+        if (nestedClasses == null) {
+            nestedClasses = new HashMap<>();
+            for (ClassDescription cd : classDescriptions.values()) {
+                if (cd.getQualifiedName().indexOf('$') >= 0) {
+                    Map<String, List<ClassDescription>> byName = nestedClasses.get(cd.getDeclaringClassName());
+                    if (byName == null) {
+                        byName = new HashMap<>();
+                        nestedClasses.put(cd.getDeclaringClassName(), byName);
+                    }
+                    List<ClassDescription> classes = byName.get(cd.getName());
+                    if (classes == null) {
+                        classes = new ArrayList<>(1);
+                        byName.put(cd.getName(), classes);
+                    }
+                    classes.add(cd);
+                }
+            }
+        }
+        Map<String, List<ClassDescription>> byName = nestedClasses.get(declaringClass);
+        if (byName == null) {
+            return Collections.emptyList();
+        }
+        List<ClassDescription> classes = byName.get(name);
+        return classes == null ? Collections.<ClassDescription>emptyList() : classes;
     }
 
     public void remove(ClassDescription cls) {
@@ -69,9 +119,11 @@ public class VirtualClassDescriptionLoader extends FeaturesHolder implements Cla
 
     public void remove(String clsName) {
         classDescriptions.remove(clsName);
+        nestedClasses = null;
     }
 
     public void cleanUp() {
         classDescriptions.clear();
+        nestedClasses = null;
     }
 }
@@ -26,6 +26,7 @@ package com.sun.tdk.signaturetest.merge;
 
 import com.sun.tdk.signaturetest.Result;
 import com.sun.tdk.signaturetest.core.AppContext;
+import com.sun.tdk.signaturetest.core.ClassHierarchy;
 import com.sun.tdk.signaturetest.core.Erasurator;
 import com.sun.tdk.signaturetest.core.Log;
 import com.sun.tdk.signaturetest.core.context.MergeOptions;
@@ -34,10 +35,13 @@ import com.sun.tdk.signaturetest.loaders.VirtualClassDescriptionLoader;
 import com.sun.tdk.signaturetest.model.*;
 import com.sun.tdk.signaturetest.sigfile.FeaturesHolder;
 import com.sun.tdk.signaturetest.util.I18NResourceBundle;
+import com.sun.tdk.signaturetest.util.OrderedExecutor;
 import com.sun.tdk.signaturetest.util.SwissKnife;
 
+import java.io.IOException;
 import java.text.MessageFormat;
 import java.util.*;
+import java.util.concurrent.Callable;
 
 /**
  * Merges some APIs according JSR68 rules
@@ -52,12 +56,30 @@ public class JSR68Merger extends FeaturesHolder {
 
     private final Log log;
     private final Result result;
-    private final Erasurator erasurator;
+    private final int threads;
+    private final ThreadLocal<Erasurator> erasurator = new ThreadLocal<Erasurator>() {
+        @Override
+        protected Erasurator initialValue() {
+            return new Erasurator();
+        }
+    };
+    /**
+     * Errors of the merge pass running on the current thread, they are
+     * reported once all the classes are merged.
+     */
+    private final ThreadLocal<List<String>> passErrors = new ThreadLocal<>();
 
     public JSR68Merger(Log log, Result result, FeaturesHolder fh) {
+        this(log, result, fh, 1);
+    }
+
+    /**
+     * @param threads number of threads merging classes with the same name
+     */
+    public JSR68Merger(Log log, Result result, FeaturesHolder fh, int threads) {
         this.log = log;
         this.result = result;
-        erasurator = new Erasurator();
+        this.threads = threads;
         setFeatures(fh.getSupportedFeatures());
     }
 
@@ -65,51 +87,19 @@ public class JSR68Merger extends FeaturesHolder {
         //this.mode = mode;
         VirtualClassDescriptionLoader result = new VirtualClassDescriptionLoader();
 
-        for (int i = 0; i < files.length; i++) {
-            MergedSigFile mf = files[i];
-            for (ClassDescription cd : mf.getClassSet().values()) {
-                // If one of input APIs contain an element and other doesn't,
-                // this element goes to the result API without modification except for the following case :
-
-                // 1) is it unique?
-                boolean unique = true;
-                ArrayList<ClassDescription> sameClasses = new ArrayList<>();
-                ArrayList<MergedSigFile> filesForSameClasses = new ArrayList<>();
-                sameClasses.add(cd);
-                filesForSameClasses.add(mf);
-                for (int j = 0; j < files.length; j++) {
-                    if (i == j) {
-                        continue;
-                    }
-                    MergedSigFile mfOther = files[j];
-                    if (mfOther.getClassSet().containsKey(cd.getQualifiedName())) {
-                        unique = false;
-                        sameClasses.add(mfOther.getClassSet().get(cd.getQualifiedName()));
-                        filesForSameClasses.add(mfOther);
-                    }
-                }
-
-                // If this element is first declared class member in inheritance
-                // chain and the other API inherits the same element, then this element doesn't
-                // go to the result API.
-                if (unique) {
-                    result.add(cd);
-                } else {
-                    //                    logger.fine("Not unique, to merge " + cd.getQualifiedName());
-                    ClassDescription resultedClass = new ClassDescription();
-                    resultedClass.setupClassName(cd.getQualifiedName());
-
-                    ClassDescription[] classes = sameClasses.toArray(new ClassDescription[0]);
-                    MergedSigFile[] filesForClasses = filesForSameClasses.toArray(new MergedSigFile[0]);
-                    if (merge(classes, resultedClass, filesForClasses) && merge2(classes, resultedClass)) {
-                        result.add(resultedClass);
-                    }
-                }
+        SortedMap<String, ClassDescription[]> groups = groupByName(files);
+        Map<String, Merged> failed = new HashMap<>();
+        if (threads > 1) {
+            mergeParallel(groups, files, result, failed);
+        } else {
+            for (ClassDescription[] group : groups.values()) {
+                add(merge(group, files), result, failed);
             }
         }
+        reportErrors(files, failed);
 
         Iterator<ClassDescription> it = result.getClassIterator();
-        List<ClassDescription> innersToRemove = new ArrayList<>();
+        Set<String> innersToRemove = new HashSet<>();
         nextClass:
         while (it.hasNext()) {
             ClassDescription cd = it.next();
@@ -130,36 +120,15 @@ public class JSR68Merger extends FeaturesHolder {
                         }
                     }
 
-                    for (Iterator<ClassDescription> it2 = result.getClassIterator(); it2.hasNext(); ) {
-                        ClassDescription similarInner = it2.next();
-                        if (similarInner.getQualifiedName().contains("$")
-                                && similarInner.getName().equals(cd.getName())) {
-                            ClassDescription parent = outer;
-                            while (true) {
-                                try {
-                                    parent = result.load(parent.getSuperClass().getQualifiedName());
-                                    if (similarInner.getDeclaringClassName().equals(parent.getQualifiedName())) {
-                                        for (int i = 0; i < files.length; i++) {
-                                            if (files[i].getClassSet().containsKey(cd.getQualifiedName())) {
-                                                for (int j = 0; j < files.length; j++) {
-                                                    if (files[j].getClassSet().containsKey(similarInner.getQualifiedName())) {
-                                                        if (j == i) {
-                                                            continue nextClass;
-                                                        }
-                                                    }
-                                                }
-                                                innersToRemove.add(cd);
-                                                continue nextClass;
-                                            }
-                                        }
-
-                                    }
-                                } catch (Exception e) {
-                                    // no parents
-                                    break;
+                    // nested classes with the same name declared in superclasses of the outer class
+                    for (ClassDescription similarInner : findInheritedInners(result, outer, cd.getName())) {
+                        for (MergedSigFile file : files) {
+                            if (file.getClassSet().containsKey(cd.getQualifiedName())) {
+                                if (!file.getClassSet().containsKey(similarInner.getQualifiedName())) {
+                                    innersToRemove.add(cd.getQualifiedName());
                                 }
+                                continue nextClass;
                             }
-
                         }
                     }
 
@@ -176,16 +145,222 @@ public class JSR68Merger extends FeaturesHolder {
                 }
             }
         }
-        it = result.getClassIterator();
-        while (it.hasNext()) {
-            if (innersToRemove.contains(it.next())) {
-                it.remove();
-            }
+        for (String inner : innersToRemove) {
+            result.remove(inner);
         }
 
         return result;
     }
 
+    /**
+     * Maps qualified names of all the input classes to the classes with the
+     * name, one slot per input file.
+     */
+    private static SortedMap<String, ClassDescription[]> groupByName(MergedSigFile[] files) {
+        SortedMap<String, ClassDescription[]> groups = new TreeMap<>();
+        for (int i = 0; i < files.length; i++) {
+            for (ClassDescription cd : files[i].getClassSet().values()) {
+                ClassDescription[] group = groups.get(cd.getQualifiedName());
+                if (group == null) {
+                    group = new ClassDescription[files.length];
+                    groups.put(cd.getQualifiedName(), group);
+                }
+                group[i] = cd;
+            }
+        }
+        return groups;
+    }
+
+    /**
+     * Merges the groups on several threads. Groups are independent of each
+     * other, the results are added in the order of the names.
+     */
+    private void mergeParallel(SortedMap<String, ClassDescription[]> groups, final MergedSigFile[] files,
+            final VirtualClassDescriptionLoader result, final Map<String, Merged> failed) {
+        OrderedExecutor<Merged> executor = new OrderedExecutor<>(threads, "sigtest-merge",
+                new OrderedExecutor.Sink<Merged>() {
+                    public void accept(Merged merged) {
+                        add(merged, result, failed);
+                    }
+                });
+        try {
+            for (final ClassDescription[] group : groups.values()) {
+                executor.submit(new Callable<Merged>() {
+                    public Merged call() {
+                        return merge(group, files);
+                    }
+                });
+            }
+            executor.finish();
+        } catch (IOException e) {
+            SwissKnife.reportThrowable(e);
+            error(e.toString());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static void add(Merged merged, VirtualClassDescriptionLoader result, Map<String, Merged> failed) {
+        if (merged.result != null) {
+            result.add(merged.result);
+        }
+        if (merged.errors != null) {
+            failed.put(merged.name, merged);
+        }
+    }
+
+    /**
+     * Reports errors of the merge passes in the order the passes ran before
+     * the classes were grouped by name: file by file, and class by class
+     * within a file.
+     */
+    private void reportErrors(MergedSigFile[] files, Map<String, Merged> failed) {
+        if (failed.isEmpty()) {
+            return;
+        }
+        for (int i = 0; i < files.length; i++) {
+            for (String name : files[i].getClassSet().keySet()) {
+                Merged merged = failed.get(name);
+                if (merged != null && merged.errors[i] != null) {
+                    for (String msg : merged.errors[i]) {
+                        report(msg);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Outcome of merging classes with the same name.
+     */
+    private static class Merged {
+
+        final String name;
+        /**
+         * The merged class, or {@code null} if the classes can't be merged.
+         */
+        ClassDescription result;
+        /**
+         * Errors of the merge passes by the file going first in the pass, or
+         * {@code null} if there are no errors.
+         */
+        List<String>[] errors;
+
+        Merged(String name) {
+            this.name = name;
+        }
+    }
+
+    /**
+     * Merges classes with the same name found in the input files.
+     * <p>
+     * The classes are merged once per file containing the class, with the
+     * class from that file going first and the other ones following in the
+     * file order. The result of the last successful pass is kept. Each pass
+     * works on its own copies of the classes, because merging changes them.
+     */
+    @SuppressWarnings("unchecked")
+    private Merged merge(ClassDescription[] group, MergedSigFile[] files) {
+        List<Integer> present = new ArrayList<>();
+        for (int i = 0; i < group.length; i++) {
+            if (group[i] != null) {
+                present.add(i);
+            }
+        }
+        Merged merged = new Merged(group[present.get(0)].getQualifiedName());
+
+        // If one of input APIs contain an element and other doesn't,
+        // this element goes to the result API without modification
+        if (present.size() == 1) {
+            merged.result = group[present.get(0)];
+            return merged;
+        }
+
+        for (int first : present) {
+            ClassDescription[] classes = new ClassDescription[present.size()];
+            MergedSigFile[] filesForClasses = new MergedSigFile[present.size()];
+            classes[0] = copyOf(group[first]);
+            filesForClasses[0] = files[first];
+            int n = 1;
+            for (int i : present) {
+                if (i != first) {
+                    classes[n] = copyOf(group[i]);
+                    filesForClasses[n++] = files[i];
+                }
+            }
+
+            List<String> errors = new ArrayList<>();
+            passErrors.set(errors);
+            try {
+                ClassDescription resultedClass = new ClassDescription();
+                resultedClass.setupClassName(classes[0].getQualifiedName());
+                if (merge(classes, resultedClass, filesForClasses) && merge2(classes, resultedClass)) {
+                    merged.result = resultedClass;
+                }
+            } finally {
+                passErrors.remove();
+            }
+            if (!errors.isEmpty()) {
+                if (merged.errors == null) {
+                    merged.errors = new List[files.length];
+                }
+                merged.errors[first] = errors;
+            }
+        }
+        return merged;
+    }
+
+    /**
+     * Returns a copy of the class with copies of its declared members.
+     */
+    private static ClassDescription copyOf(ClassDescription c) {
+        ClassDescription copy = (ClassDescription) c.clone();
+        copy.setConstructors(copyOf(c.getDeclaredConstructors()));
+        copy.setMethods(copyOf(c.getDeclaredMethods()));
+        copy.setFields(copyOf(c.getDeclaredFields()));
+        copy.setNestedClasses(copyOf(c.getDeclaredClasses()));
+        copy.setInterfaces(copyOf(c.getInterfaces()));
+        copy.setPermittedSubclasses(copyOf(c.getPermittedSubclasses()));
+        return copy;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T extends MemberDescription> T[] copyOf(T[] members) {
+        T[] copy = members.clone();
+        for (int i = 0; i < copy.length; i++) {
+            copy[i] = (T) copy[i].clone();
+        }
+        return copy;
+    }
+
+    /**
+     * Returns nested classes with the given name which are declared in the
+     * superclasses of the given class, sorted by their qualified names.
+     */
+    private static List<ClassDescription> findInheritedInners(VirtualClassDescriptionLoader result,
+            ClassDescription outer, String name) {
+        List<ClassDescription> inners = new ArrayList<>();
+        Set<String> visited = new HashSet<>();
+        ClassDescription parent = outer;
+        while (parent.getSuperClass() != null && visited.add(parent.getQualifiedName())) {
+            try {
+                parent = result.load(parent.getSuperClass().getQualifiedName());
+            } catch (ClassNotFoundException e) {
+                // no parents
+                break;
+            }
+            inners.addAll(result.getNestedClasses(parent.getQualifiedName(), name));
+        }
+        if (inners.size() > 1) {
+            Collections.sort(inners, new Comparator<ClassDescription>() {
+                public int compare(ClassDescription c1, ClassDescription c2) {
+                    return c1.getQualifiedName().compareTo(c2.getQualifiedName());
+                }
+            });
+        }
+        return inners;
+    }
+
     private boolean merge(ClassDescription[] similarClasses, ClassDescription result, MergedSigFile[] sigfiles) {
 
         boolean mAbs = similarClasses[0].isAbstract();
@@ -234,7 +409,7 @@ public class JSR68Merger extends FeaturesHolder {
     }
 
     private void checkGenerics(ClassDescription result) {
-        ClassDescription eResult = erasurator.fullErasure(result);
+        ClassDescription eResult = erasurator.get().fullErasure(result);
         ConstructorDescr[] genCostr = eResult.getDeclaredConstructors();
         MethodDescr[] genMeth = eResult.getDeclaredMethods();
         FieldDescr[] genFld = eResult.getDeclaredFields();
@@ -292,7 +467,7 @@ public class JSR68Merger extends FeaturesHolder {
             MethodDescr[] genMeth = hasGenCD.getDeclaredMethods();
             FieldDescr[] genFld = hasGenCD.getDeclaredFields();
 
-            ClassDescription hasGenEraCD = erasurator.fullErasure(hasGenCD);
+            ClassDescription hasGenEraCD = erasurator.get().fullErasure(hasGenCD);
             ClassDescription noGenCD = similarClasses[noGenPos];
             if (noGenCD.equals(hasGenEraCD)) {
                 noGenCD.setTypeParameters(hasGenCD.getTypeParameters());
@@ -485,8 +660,12 @@ public class JSR68Merger extends FeaturesHolder {
                         }
                         SuperClass scSuper = superclasses.get(k);
 
-                        if (!file.getClassHierarchy().isSubclass(scSub.getQualifiedName(),
-                                scSuper.getQualifiedName())) {
+                        ClassHierarchy hierarchy = file.getClassHierarchy();
+                        boolean isSubclass;
+                        synchronized (hierarchy) {
+                            isSubclass = hierarchy.isSubclass(scSub.getQualifiedName(), scSuper.getQualifiedName());
+                        }
+                        if (!isSubclass) {
                             subSuperFound = false;
                             break;
                         }
@@ -877,6 +1056,15 @@ public class JSR68Merger extends FeaturesHolder {
     }
 
     private void error(String msg) {
+        List<String> errors = passErrors.get();
+        if (errors != null) {
+            errors.add(msg);
+        } else {
+            report(msg);
+        }
+    }
+
+    private synchronized void report(String msg) {
         log.storeError(msg, null);
         result.error(i18n.getString("Merger.error"));
     }
@@ -201,6 +201,11 @@ public class ClassDescription extends MemberDescription {
             this.declared = declared;
         }
 
+        public TypeParam(int seqnb, String ident, String declared, TypeParam hidden) {
+            this(seqnb, ident, declared);
+            this.hidden = hidden;
+        }
+
         final int seqnb;
         final String ident;
         final String declared;
@@ -217,6 +222,10 @@ public class ClassDescription extends MemberDescription {
             return declared;
         }
 
+        public TypeParam getHidden() {
+            return hidden;
+        }
+
         TypeParam hidden = null; // hidden type parameter
     }
 
@@ -24,10 +24,13 @@
  */
 package com.sun.tdk.signaturetest.model;
 
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashSet;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.Iterator;
-import java.util.Set;
+import java.util.List;
+import java.util.Map;
 
 /**
  * @author Maxim Sokolnikov
@@ -35,10 +38,22 @@ import java.util.Set;
  */
 public class MemberCollection {
 
-    private final Set<MemberDescription> members;
+    /**
+     * Members of the collection. Every key maps to itself, so that the stored
+     * instance equal to a given member can be found without iterating.
+     */
+    private final Map<MemberDescription, MemberDescription> members;
+
+    /**
+     * Members grouped by their simple name. Member names are never changed
+     * after a member is created, unlike types or declaring classes, so the
+     * index stays valid when members are corrected in place.
+     */
+    private final Map<String, List<MemberDescription>> membersByName;
 
     public MemberCollection() {
-        members = new HashSet<>();
+        members = new HashMap<>();
+        membersByName = new HashMap<>();
     }
 
     /**
@@ -52,27 +67,45 @@ public class MemberCollection {
         if (MemberType.CLASS == member.getMemberType()) {
             throw new IllegalArgumentException("Instances of ClassDescription are not allowed here!");
         }
-        members.add(member);
+        add(member);
     }
 
     public void updateMember(MemberDescription member) {
         if (MemberType.CLASS == member.getMemberType()) {
             throw new IllegalArgumentException("Instances of ClassDescription are not allowed here!");
         }
-        members.remove(member);
-        members.add(member);
+        remove(member);
+        add(member);
     }
 
     public Collection<MemberDescription> getAllMembers() {
-        return members;
+        return Collections.unmodifiableSet(members.keySet());
     }
 
     public boolean contains(MemberDescription newMember) {
-        return members.contains(newMember);
+        return members.containsKey(newMember);
     }
 
     public Iterator<MemberDescription> iterator() {
-        return members.iterator();
+        final Iterator<MemberDescription> it = members.keySet().iterator();
+        return new Iterator<MemberDescription>() {
+
+            private MemberDescription current;
+
+            public boolean hasNext() {
+                return it.hasNext();
+            }
+
+            public MemberDescription next() {
+                current = it.next();
+                return current;
+            }
+
+            public void remove() {
+                it.remove();
+                removeFromIndex(current);
+            }
+        };
     }
 
     public void changeMember(MemberDescription oldMember, MemberDescription newMember) {
@@ -82,23 +115,21 @@ public class MemberCollection {
         if (!contains(oldMember)) {
             throw new IllegalArgumentException("Member " + oldMember + " not found!");
         }
-        members.remove(oldMember);
-        members.add(newMember);
+        remove(oldMember);
+        add(newMember);
     }
 
     public MemberDescription find(MemberDescription mr) {
-        for (MemberDescription member : members) {
-            if (member.equals(mr)) {
-                return member;
-            }
-        }
-        return null;
+        return members.get(mr);
     }
 
     public MemberDescription findSimilar(MemberDescription mr) {
-        for (MemberDescription member : members) {
-            if (member.getType().equals(mr.getType()) && member.getName().equals(mr.getName())) {
-                return member;
+        List<MemberDescription> sameName = membersByName.get(mr.getName());
+        if (sameName != null) {
+            for (MemberDescription member : sameName) {
+                if (member.getType().equals(mr.getType())) {
+                    return member;
+                }
             }
         }
         return null;
@@ -106,12 +137,57 @@ public class MemberCollection {
 
     public int getMembersCount(MemberType memberType, String fqname) {
         int count = 0;
-        for (MemberDescription member : members) {
-            if ((memberType == null || memberType == member.getMemberType())
-                    && fqname.equals(member.getQualifiedName())) {
-                count++;
+        // qualified name is the declaring class name, a delimiter and the member name
+        for (int pos = fqname.length() - 1; pos >= 0; pos--) {
+            char c = fqname.charAt(pos);
+            if (c != MemberDescription.MEMBER_DELIMITER && c != MemberDescription.CLASS_DELIMITER) {
+                continue;
+            }
+            List<MemberDescription> sameName = membersByName.get(fqname.substring(pos + 1));
+            if (sameName != null) {
+                for (MemberDescription member : sameName) {
+                    if ((memberType == null || memberType == member.getMemberType())
+                            && fqname.equals(member.getQualifiedName())) {
+                        count++;
+                    }
+                }
             }
         }
         return count;
     }
+
+    // keeps the existing member just like Set.add() does
+    private void add(MemberDescription member) {
+        if (!members.containsKey(member)) {
+            members.put(member, member);
+            List<MemberDescription> sameName = membersByName.get(member.getName());
+            if (sameName == null) {
+                sameName = new ArrayList<>(1);
+                membersByName.put(member.getName(), sameName);
+            }
+            sameName.add(member);
+        }
+    }
+
+    private void remove(MemberDescription member) {
+        MemberDescription stored = members.remove(member);
+        if (stored != null) {
+            removeFromIndex(stored);
+        }
+    }
+
+    private void removeFromIndex(MemberDescription stored) {
+        List<MemberDescription> sameName = membersByName.get(stored.getName());
+        if (sameName != null) {
+            for (Iterator<MemberDescription> it = sameName.iterator(); it.hasNext(); ) {
+                if (it.next() == stored) {
+                    it.remove();
+                    break;
+                }
+            }
+            if (sameName.isEmpty()) {
+                membersByName.remove(stored.getName());
+            }
+        }
+    }
 }
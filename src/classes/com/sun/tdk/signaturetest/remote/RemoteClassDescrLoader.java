@@ -0,0 +1,273 @@
+/*
+ * Copyright (c) 2026, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.sun.tdk.signaturetest.remote;
+
+import com.sun.tdk.signaturetest.core.ClassDescriptionLoader;
+import com.sun.tdk.signaturetest.loaders.BatchLoading;
+import com.sun.tdk.signaturetest.loaders.ClassDescriptionReader;
+import com.sun.tdk.signaturetest.loaders.ClassDescriptionWriter;
+import com.sun.tdk.signaturetest.loaders.LoadingHints;
+import com.sun.tdk.signaturetest.model.ClassDescription;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.*;
+
+/**
+ * Loads class descriptions from another VM, where the streams are served by
+ * {@link RemoteLoadManager#serve(InputStream, OutputStream)}. The streams
+ * may come from a socket, a pipe or any other channel.
+ * <p>
+ * Requests are pipelined: up to <i>window</i> classes are requested before
+ * the first of them is received, and the responses are read by a background
+ * thread while the received classes are checked. Classes announced by
+ * {@link #prefetch(Collection)} are requested in the given order, the class
+ * passed to {@link #load(String)} is requested ahead of them. All the
+ * received classes are kept by the loader.
+ */
+public class RemoteClassDescrLoader implements ClassDescriptionLoader, LoadingHints, BatchLoading {
+
+    public static final int DEFAULT_WINDOW = 32;
+
+    private final ClassDescriptionWriter out;
+    private final ClassDescriptionReader in;
+    private final int window;
+    private final Thread receiver;
+
+    // received classes and failures by class names
+    private final Map<String, Object> received = new HashMap<>();
+    // requested classes which are not received yet
+    private final Set<String> pending = new HashSet<>();
+    // pending classes which are not sent to the agent yet
+    private final Deque<String> queue = new ArrayDeque<>();
+    private int inFlight;
+    private IOException failure;
+
+    public RemoteClassDescrLoader(InputStream in, OutputStream out) throws IOException {
+        this(in, out, DEFAULT_WINDOW);
+    }
+
+    /**
+     * @param window maximal number of classes requested and not received yet
+     */
+    public RemoteClassDescrLoader(InputStream in, OutputStream out, int window) throws IOException {
+        if (window <= 0) {
+            throw new IllegalArgumentException("window " + window);
+        }
+        this.in = new ClassDescriptionReader(in);
+        this.out = new ClassDescriptionWriter(out);
+        this.window = window;
+        RemoteProtocol.writeMagic(this.out);
+        this.out.flush();
+
+        receiver = new Thread(new Runnable() {
+            public void run() {
+                receive();
+            }
+        }, "sigtest-remote-loader");
+        receiver.setDaemon(true);
+        receiver.start();
+    }
+
+    public ClassDescription load(String name) throws ClassNotFoundException {
+        Object result;
+        synchronized (this) {
+            result = received.get(name);
+            if (result == null) {
+                if (pending.add(name)) {
+                    queue.addFirst(name);
+                } else if (queue.remove(name)) {
+                    queue.addFirst(name);
+                }
+            }
+        }
+
+        while (result == null) {
+            sendRequests();
+            synchronized (this) {
+                result = received.get(name);
+                if (result == null) {
+                    if (failure != null) {
+                        throw new ClassNotFoundException(name, failure);
+                    }
+                    if (inFlight >= window || queue.isEmpty()) {
+                        try {
+                            wait();
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            throw new ClassNotFoundException(name, e);
+                        }
+                    }
+                }
+            }
+        }
+
+        // keep the agent busy while the class is checked
+        sendRequests();
+
+        if (result instanceof ClassDescription) {
+            return (ClassDescription) result;
+        }
+        Failure f = (Failure) result;
+        switch (f.response) {
+            case RemoteProtocol.LINKAGE_ERROR:
+                throw new LinkageError(f.message);
+            case RemoteProtocol.RUNTIME_EXCEPTION:
+                throw new RuntimeException(f.message);
+            default:
+                throw new ClassNotFoundException(name);
+        }
+    }
+
+    public void prefetch(Collection<String> classNames) {
+        synchronized (this) {
+            for (String name : classNames) {
+                if (!received.containsKey(name) && pending.add(name)) {
+                    queue.addLast(name);
+                }
+            }
+        }
+        sendRequests();
+    }
+
+    public void addLoadingHint(Hint hint) {
+        synchronized (out) {
+            try {
+                out.writeInt(RemoteProtocol.HINT);
+                out.writeString(hint.toString());
+                out.flush();
+            } catch (IOException e) {
+                fail(e);
+            }
+        }
+    }
+
+    /**
+     * Sends as many queued requests as the window allows.
+     */
+    private void sendRequests() {
+        List<String> batch;
+        synchronized (this) {
+            int count = Math.min(window - inFlight, queue.size());
+            if (count <= 0 || failure != null) {
+                return;
+            }
+            batch = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                batch.add(queue.removeFirst());
+            }
+            inFlight += count;
+        }
+
+        // the lock is not held, so the receiver can go on while the agent
+        // doesn't read requests
+        synchronized (out) {
+            try {
+                out.writeInt(RemoteProtocol.LOAD);
+                out.writeInt(batch.size());
+                for (String name : batch) {
+                    out.writeString(name);
+                }
+                out.flush();
+            } catch (IOException e) {
+                fail(e);
+            }
+        }
+    }
+
+    private void receive() {
+        try {
+            RemoteProtocol.readMagic(in);
+            while (true) {
+                int response = in.readInt();
+                String name = in.readString();
+                Object result;
+                if (response == RemoteProtocol.CLASS) {
+                    result = in.readClass();
+                } else if (response == RemoteProtocol.NOT_FOUND || response == RemoteProtocol.LINKAGE_ERROR
+                        || response == RemoteProtocol.RUNTIME_EXCEPTION) {
+                    result = new Failure(response, in.readString());
+                } else {
+                    throw new IOException("Unknown response " + response);
+                }
+                synchronized (this) {
+                    received.put(name, result);
+                    if (pending.remove(name)) {
+                        inFlight--;
+                    }
+                    notifyAll();
+                }
+            }
+        } catch (IOException e) {
+            // the agent closes the stream when the loader is closed
+            fail(e);
+        } catch (RuntimeException e) {
+            fail(new IOException(e));
+        } finally {
+            try {
+                in.close();
+            } catch (IOException e) {
+                // nothing to do
+            }
+        }
+    }
+
+    private synchronized void fail(IOException e) {
+        if (failure == null) {
+            failure = e;
+        }
+        notifyAll();
+    }
+
+    /**
+     * Tells the agent to stop and closes the streams.
+     */
+    public void close() throws IOException {
+        try {
+            synchronized (out) {
+                out.writeInt(RemoteProtocol.END);
+                out.close();
+            }
+        } finally {
+            try {
+                receiver.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private static class Failure {
+
+        final int response;
+        final String message;
+
+        Failure(int response, String message) {
+            this.response = response;
+            this.message = message;
+        }
+    }
+}
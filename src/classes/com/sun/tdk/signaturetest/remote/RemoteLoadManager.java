@@ -24,9 +24,15 @@
  */
 package com.sun.tdk.signaturetest.remote;
 
+import com.sun.tdk.signaturetest.core.ClassDescriptionLoader;
+import com.sun.tdk.signaturetest.loaders.ClassDescriptionReader;
+import com.sun.tdk.signaturetest.loaders.ClassDescriptionWriter;
+import com.sun.tdk.signaturetest.loaders.LoadingHints;
 import com.sun.tdk.signaturetest.loaders.ReflClassDescrLoader;
+import com.sun.tdk.signaturetest.model.ClassDescription;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.ObjectOutputStream;
 import java.io.OutputStream;
 
@@ -54,4 +60,76 @@ public class RemoteLoadManager {
             e.printStackTrace();
         }
     }
+
+    /**
+     * Serves requests of a {@link RemoteClassDescrLoader} connected to the
+     * given streams, classes are loaded by {@link ReflClassDescrLoader}.
+     * Returns when the loader is closed. Use
+     * {@link #serve(ClassDescriptionLoader, InputStream, OutputStream)} to
+     * track generics and annotations by the agent.
+     */
+    public static void serve(InputStream in, OutputStream out) throws IOException {
+        serve(new ReflClassDescrLoader(), in, out);
+    }
+
+    /**
+     * Serves requests of a {@link RemoteClassDescrLoader} connected to the
+     * given streams. Every description is sent as soon as the class is
+     * loaded. Returns when the loader is closed.
+     */
+    public static void serve(ClassDescriptionLoader loader, InputStream in, OutputStream out) throws IOException {
+        ClassDescriptionReader requests = new ClassDescriptionReader(in);
+        ClassDescriptionWriter responses = new ClassDescriptionWriter(out);
+        RemoteProtocol.readMagic(requests);
+        RemoteProtocol.writeMagic(responses);
+        responses.flush();
+
+        int request;
+        while ((request = requests.readInt()) != RemoteProtocol.END) {
+            if (request == RemoteProtocol.LOAD) {
+                for (int count = requests.readInt(); count > 0; count--) {
+                    writeResponse(loader, requests.readString(), responses);
+                    responses.flush();
+                }
+            } else if (request == RemoteProtocol.HINT) {
+                String hint = requests.readString();
+                if (loader instanceof LoadingHints) {
+                    for (LoadingHints.Hint h : new LoadingHints.Hint[]{LoadingHints.DONT_READ_VALUES,
+                            LoadingHints.READ_SYNTETHIC, LoadingHints.READ_BRIDGE, LoadingHints.READ_ANY_ANNOTATIONS}) {
+                        if (h.toString().equals(hint)) {
+                            ((LoadingHints) loader).addLoadingHint(h);
+                        }
+                    }
+                }
+            } else {
+                throw new IOException("Unknown request " + request);
+            }
+        }
+        responses.close();
+    }
+
+    private static void writeResponse(ClassDescriptionLoader loader, String name, ClassDescriptionWriter out) throws IOException {
+        ClassDescription c;
+        try {
+            c = loader.load(name);
+        } catch (ClassNotFoundException e) {
+            writeFailure(RemoteProtocol.NOT_FOUND, name, e, out);
+            return;
+        } catch (LinkageError e) {
+            writeFailure(RemoteProtocol.LINKAGE_ERROR, name, e, out);
+            return;
+        } catch (RuntimeException e) {
+            writeFailure(RemoteProtocol.RUNTIME_EXCEPTION, name, e, out);
+            return;
+        }
+        out.writeInt(RemoteProtocol.CLASS);
+        out.writeString(name);
+        out.writeClass(c);
+    }
+
+    private static void writeFailure(int response, String name, Throwable t, ClassDescriptionWriter out) throws IOException {
+        out.writeInt(response);
+        out.writeString(name);
+        out.writeString(t.toString());
+    }
 }
@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2026, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.sun.tdk.signaturetest.remote;
+
+import com.sun.tdk.signaturetest.loaders.ClassDescriptionReader;
+import com.sun.tdk.signaturetest.loaders.ClassDescriptionWriter;
+
+import java.io.IOException;
+
+/**
+ * Constants of the protocol used to load class descriptions from another VM.
+ * The host running the test sends names of the classes to the agent, the
+ * agent loads the classes and streams their descriptions back in a compact
+ * binary form. Several requests may be sent before the first response is
+ * read, so the agent doesn't wait for the host between the classes.
+ * <p>
+ * Both directions use the encoding of {@link ClassDescriptionWriter}, strings
+ * are sent once per connection.
+ * <pre>
+ * host:  MAGIC, requests, END
+ *        LOAD, number of classes, class names
+ *        HINT, name of the loading hint
+ * agent: MAGIC, one response per requested class
+ *        CLASS, class name, class description
+ *        NOT_FOUND | LINKAGE_ERROR | RUNTIME_EXCEPTION, class name, message
+ * </pre>
+ *
+ * @see RemoteLoadManager#serve(java.io.InputStream, java.io.OutputStream)
+ * @see RemoteClassDescrLoader
+ */
+final class RemoteProtocol {
+
+    static final String MAGIC = "#SigTest remote loader v1.0";
+
+    // requests
+    static final int END = 0;
+    static final int LOAD = 1;
+    static final int HINT = 2;
+
+    // responses
+    static final int CLASS = 1;
+    static final int NOT_FOUND = 2;
+    static final int LINKAGE_ERROR = 3;
+    static final int RUNTIME_EXCEPTION = 4;
+
+    static void writeMagic(ClassDescriptionWriter out) throws IOException {
+        out.writeString(MAGIC);
+    }
+
+    static void readMagic(ClassDescriptionReader in) throws IOException {
+        String magic = in.readString();
+        if (!MAGIC.equals(magic)) {
+            throw new IOException("Unknown protocol: " + magic);
+        }
+    }
+
+    // prevent creating this utility class
+    private RemoteProtocol() {
+    }
+}
@@ -24,6 +24,7 @@
  */
 package com.sun.tdk.signaturetest.sigfile;
 
+import com.sun.tdk.signaturetest.sigfile.bin.BinaryFormat;
 import com.sun.tdk.signaturetest.sigfile.f42.F42Format;
 import com.sun.tdk.signaturetest.sigfile.f41.F41Format;
 import com.sun.tdk.signaturetest.sigfile.f40.F40Format;
@@ -36,8 +37,11 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.net.MalformedURLException;
+import java.net.URISyntaxException;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
@@ -71,6 +75,19 @@ public class FileManager {
         return result;
     }
 
+    /**
+     * Returns the local path of a file: URL. URLs built by {@link #getURL}
+     * for relative file names are not hierarchical, so their path is taken
+     * as is.
+     */
+    public static Path toPath(URL fileURL) {
+        try {
+            return Paths.get(fileURL.toURI());
+        } catch (URISyntaxException | IllegalArgumentException e) {
+            return Paths.get(fileURL.getFile());
+        }
+    }
+
     private static String getFormat(URL fileURL) {
         String currentLine;
         try (BufferedReader in = new BufferedReader(new InputStreamReader(fileURL.openStream(), StandardCharsets.UTF_8))) {
@@ -153,5 +170,6 @@ public class FileManager {
         formats.add(new F40Format());
         formats.add(new F41Format());
         formats.add(new F42Format());
+        formats.add(new BinaryFormat());
     }
 }
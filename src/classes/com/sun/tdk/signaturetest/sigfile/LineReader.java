@@ -0,0 +1,152 @@
+/*
+ * Copyright (c) 2026, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.sun.tdk.signaturetest.sigfile;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads UTF-8 encoded lines from a stream and keeps track of the byte
+ * position in the stream, so that a line found once can be read again later
+ * directly from its position. Lines are terminated by {@code '\n'},
+ * {@code '\r'} or {@code "\r\n"} like in {@link java.io.BufferedReader}.
+ */
+public class LineReader implements Closeable {
+
+    private final InputStream in;
+    private byte[] buf;
+    private int pos = 0;
+    private int limit = 0;
+    private int markPos = -1;
+    /**
+     * Stream position of the first byte in the buffer.
+     */
+    private long bufStart = 0;
+    private boolean eof = false;
+
+    public LineReader(InputStream in, int size) {
+        this.in = in;
+        this.buf = new byte[size];
+    }
+
+    /**
+     * Returns stream position of the next line.
+     */
+    public long getPosition() {
+        return bufStart + pos;
+    }
+
+    /**
+     * Returns the next line without the line terminator, or {@code null} at
+     * the end of the stream.
+     */
+    public String readLine() throws IOException {
+        int scanned = 0;
+        for (; ; ) {
+            for (int i = pos + scanned; i < limit; i++) {
+                byte b = buf[i];
+                if (b == '\n') {
+                    return line(i, i + 1);
+                }
+                if (b == '\r') {
+                    if (i + 1 < limit) {
+                        return line(i, buf[i + 1] == '\n' ? i + 2 : i + 1);
+                    }
+                    if (eof) {
+                        return line(i, i + 1);
+                    }
+                    // need the next byte to find the end of line
+                    break;
+                }
+                scanned = i + 1 - pos;
+            }
+            if (eof || !fill()) {
+                if (pos + scanned < limit) {
+                    continue;   // the line ends with '\r' just before the end of stream
+                }
+                return pos == limit ? null : line(limit, limit);
+            }
+        }
+    }
+
+    /**
+     * Marks the current position. A subsequent call to {@link #reset()}
+     * returns to this position.
+     */
+    public void mark() {
+        markPos = pos;
+    }
+
+    public void reset() throws IOException {
+        if (markPos < 0) {
+            throw new IOException("Stream not marked");
+        }
+        pos = markPos;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    private String line(int end, int next) {
+        String result = new String(buf, pos, end - pos, StandardCharsets.UTF_8);
+        pos = next;
+        return result;
+    }
+
+    /**
+     * Reads more bytes to the buffer keeping the current line and the marked
+     * position.
+     *
+     * @return false if the end of the stream is reached
+     */
+    private boolean fill() throws IOException {
+        int keep = markPos >= 0 ? Math.min(markPos, pos) : pos;
+        if (keep > 0) {
+            System.arraycopy(buf, keep, buf, 0, limit - keep);
+            limit -= keep;
+            pos -= keep;
+            if (markPos >= 0) {
+                markPos -= keep;
+            }
+            bufStart += keep;
+        }
+        if (limit == buf.length) {
+            byte[] newBuf = new byte[buf.length * 2];
+            System.arraycopy(buf, 0, newBuf, 0, limit);
+            buf = newBuf;
+        }
+        int n = in.read(buf, limit, buf.length - limit);
+        if (n < 0) {
+            eof = true;
+            return false;
+        }
+        limit += n;
+        return true;
+    }
+}
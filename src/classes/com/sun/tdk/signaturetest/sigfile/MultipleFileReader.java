@@ -29,18 +29,27 @@ import com.sun.tdk.signaturetest.core.context.BaseOptions;
 import com.sun.tdk.signaturetest.core.context.Option;
 import com.sun.tdk.signaturetest.loaders.VirtualClassDescriptionLoader;
 import com.sun.tdk.signaturetest.model.ClassDescription;
+import com.sun.tdk.signaturetest.sigfile.bin.BinaryReader;
 import com.sun.tdk.signaturetest.toyxml.Elem;
 import com.sun.tdk.signaturetest.util.I18NResourceBundle;
 import com.sun.tdk.signaturetest.util.SwissKnife;
 
+import java.io.EOFException;
 import java.io.File;
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.StringTokenizer;
+import java.util.TreeMap;
 
 /**
  * @author Roman Makarchuk
@@ -57,6 +66,13 @@ public class MultipleFileReader extends VirtualClassDescriptionLoader implements
     private final FileManager fileMan;
     private final BaseOptions bo = AppContext.getContext().getBean(BaseOptions.class);
     private List<Elem> elements;
+    /**
+     * Locations of the classes in the signature files, used in the streaming
+     * mode only. {@code null} location means that the class is kept in memory.
+     */
+    private Map<String, ClassLocation> index = null;
+    private final List<FileChannel> channels = new ArrayList<>();
+    private Iterator<String> nameIterator = null;
 
     public MultipleFileReader(PrintWriter log, int mode, FileManager f) {
         // Note: Merge mode is not supported yet.
@@ -68,6 +84,21 @@ public class MultipleFileReader extends VirtualClassDescriptionLoader implements
 
     }
 
+    /**
+     * Turns on the streaming mode. In this mode class descriptions are not
+     * kept in memory. Only names and positions of the classes are remembered
+     * while the signature files are read, and classes are parsed again each
+     * time they are requested. Must be called before the files are read.
+     */
+    public void setStreamingMode(boolean streaming) {
+        assert index == null || index.isEmpty();
+        index = streaming ? new TreeMap<String, ClassLocation>() : null;
+    }
+
+    public boolean isStreamingMode() {
+        return index != null;
+    }
+
     public boolean readSignatureFiles(String testURL, String sigFileList) {
 
         assert testURL != null;
@@ -133,20 +164,16 @@ public class MultipleFileReader extends VirtualClassDescriptionLoader implements
 
             apiVersion = in.getApiVersion();
 
-            ClassDescription cl;
-            while ((cl = in.readNextClass()) != null) {
-
-                String name = cl.getQualifiedName();
-                if (mode == CLASSPATH_MODE) {
-                    try {
-                        load(name);
-                    } catch (ClassNotFoundException ex) {
-                        // use only first class description
-                        add(cl);
+            if (index != null && in instanceof BinaryReader) {
+                // binary files have their own index, classes are not read here
+                List<String> names = ((BinaryReader) in).getClassNames();
+                for (int i = 0; i < names.size(); i++) {
+                    if (!index.containsKey(names.get(i))) {
+                        index.put(names.get(i), new BinaryClassLocation((BinaryReader) in, i));
                     }
-                } else {
-                    assert mode == MERGE_MODE;
                 }
+            } else {
+                readClasses(in, fileURL);
             }
             elements = in.getElems();
         } catch (IOException e) {
@@ -169,14 +196,145 @@ public class MultipleFileReader extends VirtualClassDescriptionLoader implements
         return true;
     }
 
+    private void readClasses(Reader in, URL fileURL) throws IOException {
+
+        SignatureClassLoader indexedReader = null;
+        FileChannel channel = null;
+        if (index != null && in instanceof SignatureClassLoader && "file".equals(fileURL.getProtocol())) {
+            try {
+                channel = FileChannel.open(FileManager.toPath(fileURL), StandardOpenOption.READ);
+                channels.add(channel);
+                indexedReader = (SignatureClassLoader) in;
+            } catch (IOException | IllegalArgumentException e) {
+                // the file will be kept in memory
+                if (bo.isSet(Option.DEBUG)) {
+                    SwissKnife.reportThrowable(e);
+                }
+            }
+        }
+
+        ClassDescription cl;
+        while ((cl = in.readNextClass()) != null) {
+
+            String name = cl.getQualifiedName();
+            if (index != null) {
+                // use only first class description
+                if (!index.containsKey(name)) {
+                    if (indexedReader != null) {
+                        index.put(name, new TextClassLocation(indexedReader, channel,
+                                indexedReader.getClassOffset(), indexedReader.getClassLength()));
+                    } else {
+                        add(cl);
+                    }
+                }
+            } else if (mode == CLASSPATH_MODE) {
+                try {
+                    load(name);
+                } catch (ClassNotFoundException ex) {
+                    // use only first class description
+                    add(cl);
+                }
+            } else {
+                assert mode == MERGE_MODE;
+            }
+        }
+    }
+
     @Override
     public void close() {
         classIterator = null;
+        nameIterator = null;
         cleanUp();
     }
 
     public void rewind() {
-        classIterator = getClassIterator();
+        if (index != null) {
+            nameIterator = index.keySet().iterator();
+        } else {
+            classIterator = getClassIterator();
+        }
+    }
+
+    @Override
+    public ClassDescription load(String className) throws ClassNotFoundException {
+        if (index == null) {
+            return super.load(className);
+        }
+        ClassLocation location = index.get(className);
+        if (location == null) {
+            // not found or kept in memory
+            return super.load(className);
+        }
+        try {
+            return location.read();
+        } catch (IOException e) {
+            if (bo.isSet(Option.DEBUG)) {
+                SwissKnife.reportThrowable(e);
+            }
+            throw new ClassNotFoundException(className, e);
+        }
+    }
+
+    @Override
+    public void add(ClassDescription cls) {
+        super.add(cls);
+        if (index != null) {
+            index.put(cls.getQualifiedName(), null);
+        }
+    }
+
+    @Override
+    public void remove(String clsName) {
+        super.remove(clsName);
+        if (index != null) {
+            index.remove(clsName);
+        }
+    }
+
+    @Override
+    public Iterator<ClassDescription> getClassIterator() {
+        if (index == null) {
+            return super.getClassIterator();
+        }
+        final Iterator<String> names = index.keySet().iterator();
+        return new Iterator<ClassDescription>() {
+            public boolean hasNext() {
+                return names.hasNext();
+            }
+
+            public ClassDescription next() {
+                String name = names.next();
+                try {
+                    return load(name);
+                } catch (ClassNotFoundException e) {
+                    NoSuchElementException ex = new NoSuchElementException(name);
+                    ex.initCause(e);
+                    throw ex;
+                }
+            }
+
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    @Override
+    public void cleanUp() {
+        super.cleanUp();
+        if (index != null) {
+            index.clear();
+        }
+        for (FileChannel channel : channels) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                if (bo.isSet(Option.DEBUG)) {
+                    SwissKnife.reportThrowable(e);
+                }
+            }
+        }
+        channels.clear();
     }
 
     public List<Elem> getElements() {
@@ -184,6 +342,17 @@ public class MultipleFileReader extends VirtualClassDescriptionLoader implements
     }
 
     public ClassDescription nextClass() throws IOException {
+        if (index != null) {
+            String name = nextClassName();
+            if (name == null) {
+                return null;
+            }
+            try {
+                return load(name);
+            } catch (ClassNotFoundException e) {
+                throw new IOException(e);
+            }
+        }
         ClassDescription cl = null;
         if (classIterator != null && classIterator.hasNext()) {
             cl = classIterator.next();
@@ -191,7 +360,70 @@ public class MultipleFileReader extends VirtualClassDescriptionLoader implements
         return cl; // cl == null ? null : (ClassDescription) cl.clone();
     }
 
+    /**
+     * Returns name of the next class. In the streaming mode the class isn't
+     * parsed.
+     */
+    public String nextClassName() throws IOException {
+        if (index != null) {
+            return nameIterator != null && nameIterator.hasNext() ? nameIterator.next() : null;
+        }
+        ClassDescription cl = nextClass();
+        return cl == null ? null : cl.getQualifiedName();
+    }
+
     public String getApiVersion() {
         return apiVersion;
     }
+
+    /**
+     * Position of a class in a signature file.
+     */
+    private abstract static class ClassLocation {
+
+        abstract ClassDescription read() throws IOException;
+    }
+
+    private static class TextClassLocation extends ClassLocation {
+
+        private final SignatureClassLoader reader;
+        private final FileChannel channel;
+        private final long offset;
+        private final int length;
+
+        TextClassLocation(SignatureClassLoader reader, FileChannel channel, long offset, int length) {
+            this.reader = reader;
+            this.channel = channel;
+            this.offset = offset;
+            this.length = length;
+        }
+
+        ClassDescription read() throws IOException {
+            ByteBuffer buf = ByteBuffer.allocate(length);
+            long pos = offset;
+            while (buf.hasRemaining()) {
+                int n = channel.read(buf, pos);
+                if (n < 0) {
+                    throw new EOFException();
+                }
+                pos += n;
+            }
+            return reader.readClass(buf.array());
+        }
+    }
+
+    private static class BinaryClassLocation extends ClassLocation {
+
+        private final BinaryReader reader;
+        private final int index;
+
+        BinaryClassLocation(BinaryReader reader, int index) {
+            this.reader = reader;
+            this.index = index;
+        }
+
+        ClassDescription read() throws IOException {
+            return reader.readClass(index);
+        }
+    }
 }
@@ -28,11 +28,9 @@ import com.sun.tdk.signaturetest.model.ClassDescription;
 import com.sun.tdk.signaturetest.model.MemberType;
 import com.sun.tdk.signaturetest.toyxml.Elem;
 
-import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
-import java.io.InputStreamReader;
 import java.net.URL;
-import java.nio.charset.StandardCharsets;
 import java.util.*;
 
 /**
@@ -48,7 +46,7 @@ public abstract class SignatureClassLoader implements Reader {
 
     protected final Format format;
     protected final Set<FeaturesHolder.Feature> features;
-    private BufferedReader in;
+    private LineReader in;
     private final Parser parser;
     private static final int BUFSIZE = 0x8000;
     private final List<Elem> elems;
@@ -60,6 +58,11 @@ public abstract class SignatureClassLoader implements Reader {
      * Sigfile format version found in {@code this} signature file.
      */
     protected String signatureFileFormat = "";
+    /**
+     * Position and length in bytes of the last class read from the file.
+     */
+    private long classOffset;
+    private int classLength;
 
     protected SignatureClassLoader(Format format) {
         this.format = format;
@@ -96,7 +99,8 @@ public abstract class SignatureClassLoader implements Reader {
         List<String> definitions = new ArrayList<>();
 
         for (; ; ) {
-            in.mark(BUFSIZE);
+            in.mark();
+            long lineOffset = in.getPosition();
             if ((currentLine = in.readLine()) == null) {
                 break;
             }
@@ -111,6 +115,7 @@ public abstract class SignatureClassLoader implements Reader {
             if (type == MemberType.CLASS) {
                 if (classDescr == null) {
                     classDescr = currentLine;
+                    classOffset = lineOffset;
                 } else {
                     break;
                 }
@@ -129,6 +134,7 @@ public abstract class SignatureClassLoader implements Reader {
         if (classDescr == null && definitions.isEmpty()) {
             return null;
         }
+        classLength = (int) (in.getPosition() - classOffset);
 
         classDescr = convertClassDescr(classDescr);
         definitions = convertClassDefinitions(definitions);
@@ -136,6 +142,40 @@ public abstract class SignatureClassLoader implements Reader {
         return parser.parseClassDescription(classDescr, definitions);
     }
 
+    /**
+     * Returns position of the last class returned by {@link #readNextClass()}
+     * in the signature file.
+     */
+    public long getClassOffset() {
+        return classOffset;
+    }
+
+    /**
+     * Returns length in bytes of the last class returned by
+     * {@link #readNextClass()}.
+     */
+    public int getClassLength() {
+        return classLength;
+    }
+
+    /**
+     * Parses a class which was read from {@code this} signature file before.
+     * The text must be a part of the file found by {@link #getClassOffset()}
+     * and {@link #getClassLength()}.
+     */
+    public synchronized ClassDescription readClass(byte[] text) throws IOException {
+        LineReader fileReader = in;
+        int elemCount = elems.size();
+        in = new LineReader(new ByteArrayInputStream(text), text.length + 1);
+        try {
+            return readNextClass();
+        } finally {
+            in = fileReader;
+            // the module elements were already read
+            elems.subList(elemCount, elems.size()).clear();
+        }
+    }
+
     public List<Elem> getElems() {
         return elems;
     }
@@ -175,12 +215,11 @@ public abstract class SignatureClassLoader implements Reader {
      * fields
      */
     public boolean readSignatureFile(URL fileURL) throws IOException {
-        in = new BufferedReader(new InputStreamReader(fileURL.openStream(), StandardCharsets.UTF_8), BUFSIZE);
-        assert in.markSupported();
+        in = new LineReader(fileURL.openStream(), BUFSIZE);
         return readHeaders(in);
     }
 
-    protected boolean readHeaders(BufferedReader in) throws IOException {
+    protected boolean readHeaders(LineReader in) throws IOException {
 
         String currentLine;
 
@@ -206,7 +245,7 @@ public abstract class SignatureClassLoader implements Reader {
 
         apiVersion = currentLine.substring(Format.VERSION.length()).trim();
 
-        in.mark(BUFSIZE);
+        in.mark();
         while ((currentLine = in.readLine()) != null && currentLine.startsWith("#")) {
             removeMissingFeature(currentLine);
         }
@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2026, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.sun.tdk.signaturetest.sigfile.bin;
+
+import com.sun.tdk.signaturetest.sigfile.Reader;
+import com.sun.tdk.signaturetest.sigfile.Writer;
+import com.sun.tdk.signaturetest.sigfile.f43.F43Format;
+
+/**
+ * Binary signature file format. It keeps the same information as the
+ * {@link F43Format v4.3} text format, but class descriptions don't have to be
+ * parsed when they are read. All the names and types are stored once in a
+ * string pool, and the file starts with an index of classes, so any class can
+ * be read without reading the rest of the file.
+ * <p>
+ * The file layout is as follows. All numbers are unsigned variable-length
+ * integers (7 bits per byte, the least significant group first). Strings
+ * are referenced by their index in the pool plus one, zero means
+ * {@code null}.
+ * <pre>
+ * "#Signature file binary v1.0\n"
+ * pool size, pool strings (length in bytes + UTF-8)
+ * API version
+ * number of removed features, removed features
+ * number of modules, module descriptions (XML)
+ * number of classes, (class name, record offset) sorted by class name
+ * size of class records in bytes, class records
+ * </pre>
+ * The text format stays the primary one, binary files are created from the
+ * text ones by {@link com.sun.tdk.signaturetest.Converter}.
+ */
+public class BinaryFormat extends F43Format {
+
+    static final String MAGIC = "#Signature file binary v1.0";
+
+    // tags of the members in class records
+    static final int END = 0;
+    static final int CONSTRUCTOR = 1;
+    static final int METHOD = 2;
+    static final int FIELD = 3;
+    static final int SUPERCLASS = 4;
+    static final int SUPERINTERFACE = 5;
+    static final int PERMITTEDSUBCLASS = 6;
+    static final int INNER = 7;
+
+    public Reader getReader() {
+        return new BinaryReader(this);
+    }
+
+    /**
+     * Returns writer for the binary format. Note that the returned writer must
+     * be initialized by {@link BinaryWriter#init(java.io.OutputStream)}.
+     */
+    public Writer getWriter() {
+        return new BinaryWriter();
+    }
+
+    public String getVersion() {
+        return MAGIC;
+    }
+}
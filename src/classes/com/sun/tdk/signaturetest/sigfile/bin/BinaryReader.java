@@ -0,0 +1,443 @@
+/*
+ * Copyright (c) 2026, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.sun.tdk.signaturetest.sigfile.bin;
+
+import com.sun.tdk.signaturetest.core.ClassDescriptionLoader;
+import com.sun.tdk.signaturetest.model.*;
+import com.sun.tdk.signaturetest.sigfile.AnnotationParser;
+import com.sun.tdk.signaturetest.sigfile.FeaturesHolder;
+import com.sun.tdk.signaturetest.sigfile.FileManager;
+import com.sun.tdk.signaturetest.sigfile.Format;
+import com.sun.tdk.signaturetest.sigfile.Reader;
+import com.sun.tdk.signaturetest.toyxml.Elem;
+import com.sun.tdk.signaturetest.toyxml.ToyParser;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * Reads signature files in the {@link BinaryFormat binary format}. Local files
+ * are mapped to memory, only the string pool and the class index are read
+ * when the file is opened. Classes can be read sequentially like from the
+ * text files, or by name with {@link #load(String)}.
+ * <p>
+ * Class descriptions are created by the same calls as the v4.3 parser does,
+ * so they don't differ from the ones read from the text files.
+ */
+public class BinaryReader implements Reader, ClassDescriptionLoader {
+
+    private final Set<FeaturesHolder.Feature> features;
+    private final List<Elem> elems = new ArrayList<>();
+    private String apiVersion = "";
+    private String[] pool;
+    private String[] classNames = new String[0];
+    private int[] classOffsets;
+    private ByteBuffer records;
+    private int nextClass = 0;
+
+    public BinaryReader(Format format) {
+        features = new HashSet<>(format.getSupportedFeatures());
+    }
+
+    public boolean hasFeature(Format.Feature feature) {
+        return features.contains(feature);
+    }
+
+    public Set<FeaturesHolder.Feature> getAllSupportedFeatures() {
+        return features;
+    }
+
+    public boolean readSignatureFile(URL fileURL) throws IOException {
+        ByteBuffer file;
+        if ("file".equals(fileURL.getProtocol())) {
+            try (FileChannel channel = FileChannel.open(FileManager.toPath(fileURL), StandardOpenOption.READ)) {
+                file = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            }
+        } else {
+            try (InputStream is = fileURL.openStream()) {
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                byte[] buf = new byte[0x8000];
+                int n;
+                while ((n = is.read(buf)) > 0) {
+                    bytes.write(buf, 0, n);
+                }
+                file = ByteBuffer.wrap(bytes.toByteArray());
+            }
+        }
+
+        byte[] magic = (BinaryFormat.MAGIC + "\n").getBytes(StandardCharsets.US_ASCII);
+        if (file.remaining() < magic.length) {
+            return false;
+        }
+        for (byte b : magic) {
+            if (file.get() != b) {
+                return false;
+            }
+        }
+
+        try {
+            readHeader(file);
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException e) {
+            throw new IOException(fileURL.toString(), e);
+        }
+        return true;
+    }
+
+    private void readHeader(ByteBuffer in) {
+        pool = new String[readInt(in)];
+        for (int i = 0; i < pool.length; i++) {
+            byte[] bytes = new byte[readInt(in)];
+            in.get(bytes);
+            pool[i] = new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        apiVersion = readString(in);
+        for (int i = readInt(in); i > 0; i--) {
+            String pragma = readString(in);
+            for (Iterator<FeaturesHolder.Feature> it = features.iterator(); it.hasNext(); ) {
+                if (it.next().toString().equals(pragma)) {
+                    it.remove();
+                }
+            }
+        }
+
+        ToyParser xmlParser = new ToyParser();
+        for (int i = readInt(in); i > 0; i--) {
+            Elem d = xmlParser.parse(readString(in));
+            if (d != null) {
+                elems.add(d);
+            }
+        }
+
+        int count = readInt(in);
+        classNames = new String[count];
+        classOffsets = new int[count];
+        for (int i = 0; i < count; i++) {
+            classNames[i] = readString(in);
+            classOffsets[i] = readInt(in);
+        }
+
+        int size = readInt(in);
+        records = in.slice();
+        records.limit(size);
+    }
+
+    /**
+     * Returns the next class in the order of class names, or {@code null}.
+     */
+    public ClassDescription readNextClass() throws IOException {
+        if (nextClass >= classNames.length) {
+            return null;
+        }
+        return readClass(nextClass++);
+    }
+
+    public ClassDescription load(String className) throws ClassNotFoundException {
+        int i = Arrays.binarySearch(classNames, className);
+        if (i < 0) {
+            throw new ClassNotFoundException(className);
+        }
+        try {
+            return readClass(i);
+        } catch (IOException e) {
+            throw new ClassNotFoundException(className, e);
+        }
+    }
+
+    /**
+     * Returns names of all the classes in the file, sorted.
+     */
+    public List<String> getClassNames() {
+        return Collections.unmodifiableList(Arrays.asList(classNames));
+    }
+
+    /**
+     * Reads class with the given position in {@link #getClassNames()}. This
+     * method may be called from several threads at the same time.
+     */
+    public ClassDescription readClass(int index) throws IOException {
+        ByteBuffer in = records.duplicate();
+        try {
+            in.position(classOffsets[index]);
+            return readClass(in);
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException e) {
+            throw new IOException(classNames[index], e);
+        }
+    }
+
+    private ClassDescription readClass(ByteBuffer in) {
+
+        ClassDescription classDescription = new ClassDescription();
+        classDescription.setModifiers(readInt(in));
+        classDescription.setupGenericClassName(readString(in));
+        String className = classDescription.getQualifiedName();
+        classDescription.setupClassName(className, MemberDescription.NO_DECLARING_CLASS);
+
+        String outer = readString(in);
+        if (outer != null) {
+            classDescription.setDeclaringClass(outer);
+            classDescription.setupClassName(classDescription.getQualifiedName(),
+                    classDescription.getDeclaringClassName());
+        }
+        readAnnotations(in, classDescription);
+
+        List<MemberDescription> items = new ArrayList<>();
+        int method_count = 0, field_count = 0, constructor_count = 0,
+                inner_count = 0, interfaces_count = 0, permittedSubClasses_count = 0;
+
+        int tag;
+        while ((tag = readInt(in)) != BinaryFormat.END) {
+            MemberDescription m;
+            switch (tag) {
+                case BinaryFormat.CONSTRUCTOR:
+                    m = readConstructor(in);
+                    constructor_count++;
+                    break;
+                case BinaryFormat.METHOD:
+                    m = readMethod(in, className);
+                    method_count++;
+                    break;
+                case BinaryFormat.FIELD:
+                    m = readField(in, className);
+                    field_count++;
+                    break;
+                case BinaryFormat.SUPERCLASS:
+                    m = new SuperClass();
+                    m.setModifiers(0);
+                    m.setupGenericClassName(readString(in));
+                    break;
+                case BinaryFormat.SUPERINTERFACE:
+                    m = new SuperInterface();
+                    m.setModifiers(0);
+                    m.setupGenericClassName(readString(in));
+                    interfaces_count++;
+                    break;
+                case BinaryFormat.PERMITTEDSUBCLASS:
+                    m = new PermittedSubClass();
+                    m.setModifiers(0);
+                    m.setupGenericClassName(readString(in));
+                    permittedSubClasses_count++;
+                    break;
+                case BinaryFormat.INNER:
+                    m = new InnerDescr();
+                    m.setModifiers(readInt(in));
+                    m.setupInnerClassName(readString(in), className);
+                    inner_count++;
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown member tag " + tag);
+            }
+            items.add(m);
+        }
+
+        if (constructor_count > 0) {
+            classDescription.createConstructors(constructor_count);
+        }
+        if (method_count > 0) {
+            classDescription.createMethods(method_count);
+        }
+        if (field_count > 0) {
+            classDescription.createFields(field_count);
+        }
+        if (inner_count > 0) {
+            classDescription.createNested(inner_count);
+        }
+        if (interfaces_count > 0) {
+            classDescription.createInterfaces(interfaces_count);
+        }
+        if (permittedSubClasses_count > 0) {
+            classDescription.createPermittedSubclasses(permittedSubClasses_count);
+        }
+
+        constructor_count = 0;
+        method_count = 0;
+        field_count = 0;
+        inner_count = 0;
+        interfaces_count = 0;
+        permittedSubClasses_count = 0;
+
+        for (MemberDescription m : items) {
+            MemberType mt = m.getMemberType();
+
+            if (mt == MemberType.METHOD) {
+                classDescription.setMethod(method_count++, (MethodDescr) m);
+            } else if (mt == MemberType.FIELD) {
+                classDescription.setField(field_count++, (FieldDescr) m);
+            } else if (mt == MemberType.CONSTRUCTOR) {
+                classDescription.setConstructor(constructor_count++, (ConstructorDescr) m);
+                ((ConstructorDescr) m).setupConstuctorName(classDescription.getQualifiedName());
+            } else if (mt == MemberType.INNER) {
+                classDescription.setNested(inner_count++, (InnerDescr) m);
+            } else if (mt == MemberType.SUPERCLASS) {
+                classDescription.setSuperClass((SuperClass) m);
+            } else if (mt == MemberType.SUPERINTERFACE) {
+                SuperInterface si = (SuperInterface) m;
+                si.setDirect(true);
+                classDescription.setInterface(interfaces_count++, si);
+            } else if (mt == MemberType.PERMITTEDSUBCLASS) {
+                classDescription.setPermittedSubclass(permittedSubClasses_count++, (PermittedSubClass) m);
+            }
+        }
+
+        Set<String> names = readNames(in);
+        if (names != null) {
+            classDescription.setInternalFields(names);
+        }
+        names = readNames(in);
+        if (names != null) {
+            classDescription.setInternalClasses(names);
+        }
+        names = readNames(in);
+        if (names != null) {
+            classDescription.setXFields(names);
+        }
+        names = readNames(in);
+        if (names != null) {
+            classDescription.setXClasses(names);
+        }
+
+        return classDescription;
+    }
+
+    private ConstructorDescr readConstructor(ByteBuffer in) {
+        ConstructorDescr ctor = new ConstructorDescr();
+        ctor.setModifiers(readInt(in));
+        String typeParameters = readString(in);
+        if (typeParameters != null) {
+            ctor.setTypeParameters(typeParameters);
+        }
+        ctor.setupConstuctorName(readString(in));
+        readArgsAndThrows(in, ctor);
+        readAnnotations(in, ctor);
+        return ctor;
+    }
+
+    private MethodDescr readMethod(ByteBuffer in, String className) {
+        MethodDescr method = new MethodDescr();
+        method.setModifiers(readInt(in));
+        String typeParameters = readString(in);
+        if (typeParameters != null) {
+            method.setTypeParameters(typeParameters);
+        }
+        method.setType(readString(in));
+        method.setupMemberName(readString(in), className);
+        readArgsAndThrows(in, method);
+        String defaultValue = readString(in);
+        if (defaultValue != null) {
+            method.setDefaultValue(defaultValue);
+        }
+        readAnnotations(in, method);
+        return method;
+    }
+
+    private FieldDescr readField(ByteBuffer in, String className) {
+        FieldDescr field = new FieldDescr();
+        field.setModifiers(readInt(in));
+        field.setType(readString(in));
+        field.setupMemberName(readString(in), className);
+        String constantValue = readString(in);
+        if (constantValue != null) {
+            field.setConstantValue(constantValue);
+        }
+        readAnnotations(in, field);
+        return field;
+    }
+
+    private void readArgsAndThrows(ByteBuffer in, MemberDescription m) {
+        String args = readString(in);
+        if (!args.isEmpty()) {
+            m.setArgs(args);
+        }
+        String throwables = readString(in);
+        if (!throwables.isEmpty()) {
+            m.setThrowables(throwables);
+        }
+    }
+
+    private void readAnnotations(ByteBuffer in, MemberDescription m) {
+        int count = readInt(in);
+        if (count > 0) {
+            AnnotationItem[] annoList = new AnnotationItem[count];
+            AnnotationParser par = new AnnotationParser();
+            for (int i = 0; i < count; i++) {
+                annoList[i] = par.parse(readString(in));
+            }
+            m.setAnnoList(annoList);
+        }
+    }
+
+    private Set<String> readNames(ByteBuffer in) {
+        int count = readInt(in);
+        if (count == 0) {
+            return null;
+        }
+        Set<String> result = new HashSet<>();
+        for (int i = 0; i < count; i++) {
+            result.add(readString(in));
+        }
+        return result;
+    }
+
+    private String readString(ByteBuffer in) {
+        int ref = readInt(in);
+        return ref == 0 ? null : pool[ref - 1];
+    }
+
+    private static int readInt(ByteBuffer in) {
+        int result = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = in.get();
+            result |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return result;
+            }
+        }
+    }
+
+    public String getApiVersion() {
+        return apiVersion;
+    }
+
+    public List<Elem> getElems() {
+        return elems;
+    }
+
+    /**
+     * The file stays mapped after the reader is closed, so classes can still
+     * be loaded by name.
+     */
+    @Override
+    public void close() {
+        nextClass = classNames.length;
+    }
+}
@@ -0,0 +1,350 @@
+/*
+ * Copyright (c) 2026, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.sun.tdk.signaturetest.sigfile.bin;
+
+import com.sun.tdk.signaturetest.core.PrimitiveTypes;
+import com.sun.tdk.signaturetest.model.*;
+import com.sun.tdk.signaturetest.sigfile.FeaturesHolder;
+import com.sun.tdk.signaturetest.sigfile.f43.F43Writer;
+import com.sun.tdk.signaturetest.util.SwissKnife;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Writes signature file in the {@link BinaryFormat binary format}. Classes
+ * are collected in memory and the file is written when the writer is
+ * closed, because the string pool and the class index precede the class
+ * records in the file.
+ * <p>
+ * Members of a class are stored in the order they have in the v4.3 text
+ * format, so that a class read from the binary file is the same as the one
+ * read from the corresponding text file.
+ */
+public class BinaryWriter extends F43Writer {
+
+    private OutputStream os;
+    private String apiVersion = "";
+    private final Set<FeaturesHolder.Feature> features = new HashSet<>();
+    private final List<FeaturesHolder.Feature> removedFeatures = new ArrayList<>();
+    private boolean isConstantValuesSaved = true;
+    private final List<String> pool = new ArrayList<>();
+    private final Map<String, Integer> poolIndex = new HashMap<>();
+    private final List<String> modules = new ArrayList<>();
+    private final Map<String, Integer> classOffsets = new TreeMap<>();
+    private final ByteArrayOutputStream records = new ByteArrayOutputStream();
+    private final StringBuffer buf = new StringBuffer(512);
+
+    public BinaryWriter() {
+        setFormat(new BinaryFormat());
+    }
+
+    public void init(OutputStream out) {
+        this.os = out;
+        // text output is used for formatting only
+        super.init(new PrintWriter(new StringWriter()));
+    }
+
+    /**
+     * Binary signature file can't be written to a character stream, use
+     * {@link #init(OutputStream)}.
+     */
+    @Override
+    public void init(PrintWriter out) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setApiVersion(String apiVersion) {
+        super.setApiVersion(apiVersion);
+        this.apiVersion = apiVersion == null ? "" : apiVersion;
+    }
+
+    @Override
+    public void addFeature(FeaturesHolder.Feature feature) {
+        super.addFeature(feature);
+        features.add(feature);
+    }
+
+    /**
+     * Remembers the features which are missing in the file. The same features
+     * are reported by the v4.3 text files.
+     */
+    @Override
+    public void writeHeader() {
+        if (!features.contains(FeaturesHolder.ConstInfo)) {
+            removedFeatures.add(FeaturesHolder.ConstInfo);
+            isConstantValuesSaved = false;
+        }
+        if (!features.contains(FeaturesHolder.TigerInfo)) {
+            removedFeatures.add(FeaturesHolder.TigerInfo);
+        }
+        if (features.contains(FeaturesHolder.ModuleInfo)) {
+            removedFeatures.add(FeaturesHolder.ModuleInfo);
+        }
+        super.writeHeader();
+    }
+
+    @Override
+    public void write(ModuleDescription md) {
+        StringWriter sw = new StringWriter();
+        super.init(new PrintWriter(sw));
+        super.write(md);
+        super.init(new PrintWriter(new StringWriter()));
+
+        // the same as SignatureClassLoader reads XML fragments
+        StringBuilder xml = new StringBuilder();
+        for (String line : sw.toString().split("\\r?\\n")) {
+            line = line.trim();
+            if (!line.isEmpty() && !line.startsWith("#")) {
+                xml.append(line);
+            }
+        }
+        modules.add(xml.toString());
+    }
+
+    @Override
+    public void write(ClassDescription classDescription) {
+
+        String clsName = classDescription.getQualifiedName();
+        if (classOffsets.containsKey(clsName)) {
+            // only the first description is used by readers
+            return;
+        }
+        classOffsets.put(clsName, records.size());
+
+        // sort members as the text writer does
+        List<Map.Entry<String, MemberDescription>> members = new ArrayList<>();
+        for (Iterator<MemberDescription> e = classDescription.getMembersIterator(); e.hasNext(); ) {
+            MemberDescription mr = e.next();
+            if (!isMemberAccepted(mr, clsName)) {
+                continue;
+            }
+            buf.setLength(0);
+            write(buf, mr);
+            members.add(new AbstractMap.SimpleEntry<>(buf.toString(), mr));
+        }
+        Collections.sort(members, new Comparator<Map.Entry<String, MemberDescription>>() {
+            public int compare(Map.Entry<String, MemberDescription> o1, Map.Entry<String, MemberDescription> o2) {
+                return o1.getKey().compareTo(o2.getKey());
+            }
+        });
+
+        writeInt(getTrackedModifiers(classDescription));
+        writeString(clsName + nonNull(classDescription.getTypeParameters()));
+        String outer = classDescription.getOuterClass();
+        writeString(outer == null || outer.equals(MemberDescription.NO_DECLARING_CLASS) ? null : outer);
+        writeAnnotations(classDescription);
+
+        for (Map.Entry<String, MemberDescription> entry : members) {
+            writeMember(entry.getValue());
+        }
+        writeInt(BinaryFormat.END);
+
+        boolean hiders = getFormat().isFeatureSupported(FeaturesHolder.ListOfHiders);
+        writeNames(hiders ? classDescription.getInternalFields() : null);
+        writeNames(hiders ? classDescription.getInternalClasses() : null);
+        writeNames(hiders ? classDescription.getXFields() : null);
+        writeNames(hiders ? classDescription.getXClasses() : null);
+    }
+
+    private void writeMember(MemberDescription m) {
+        MemberType type = m.getMemberType();
+
+        if (type == MemberType.CONSTRUCTOR) {
+            writeInt(BinaryFormat.CONSTRUCTOR);
+            writeInt(getTrackedModifiers(m));
+            writeString(emptyToNull(m.getTypeParameters()));
+            writeString(m.getName());
+            writeString(m.getArgs());
+            writeString(m.getThrowables());
+            writeAnnotations(m);
+        } else if (type == MemberType.METHOD) {
+            MethodDescr md = (MethodDescr) m;
+            writeInt(BinaryFormat.METHOD);
+            writeInt(getTrackedModifiers(m));
+            writeString(emptyToNull(m.getTypeParameters()));
+            writeString(m.getType());
+            writeString(m.getName());
+            writeString(m.getArgs());
+            writeString(m.getThrowables());
+            String defaultValue = null;
+            if (md.hasModifier(Modifier.HASDEFAULT) && md.getAnnoDef() != null) {
+                defaultValue = trimTrailing(PrimitiveTypes.simpleObjectToString(md.getAnnoDef()));
+            }
+            writeString(defaultValue);
+            writeAnnotations(m);
+        } else if (type == MemberType.FIELD) {
+            String constantValue = ((FieldDescr) m).getConstantValue();
+            writeInt(BinaryFormat.FIELD);
+            writeInt(getTrackedModifiers(m));
+            writeString(m.getType());
+            writeString(m.getName() + nonNull(m.getTypeParameters()));
+            writeString(isConstantValuesSaved && constantValue != null ? constantValue.trim() : null);
+            writeAnnotations(m);
+        } else if (type == MemberType.SUPERCLASS) {
+            writeInt(BinaryFormat.SUPERCLASS);
+            writeString(m.getQualifiedName() + nonNull(m.getTypeParameters()));
+        } else if (type == MemberType.SUPERINTERFACE) {
+            writeInt(BinaryFormat.SUPERINTERFACE);
+            writeString(m.getQualifiedName() + nonNull(m.getTypeParameters()));
+        } else if (type == MemberType.PERMITTEDSUBCLASS) {
+            writeInt(BinaryFormat.PERMITTEDSUBCLASS);
+            writeString(m.getQualifiedName());
+        } else if (type == MemberType.INNER) {
+            writeInt(BinaryFormat.INNER);
+            writeInt(getTrackedModifiers(m));
+            writeString(m.getName());
+        } else {
+            assert false;  // unknown member type
+        }
+    }
+
+    private void writeAnnotations(MemberDescription m) {
+        AnnotationItem[] annoList = m.getAnnoList();
+        writeInt(annoList.length);
+        for (AnnotationItem annotationItem : annoList) {
+            writeString(annotationItem.toString().trim());
+        }
+    }
+
+    private void writeNames(Set<String> names) {
+        if (names == null) {
+            writeInt(0);
+            return;
+        }
+        List<String> sorted = new ArrayList<>(names);
+        Collections.sort(sorted);
+        writeInt(sorted.size());
+        for (String name : sorted) {
+            writeString(name);
+        }
+    }
+
+    /**
+     * Returns modifiers which are written to the text signature files.
+     */
+    private static int getTrackedModifiers(MemberDescription m) {
+        String modifiers = Modifier.toString(m.getMemberType(), m.getModifiers(), true);
+        if (modifiers.isEmpty()) {
+            return 0;
+        }
+        return Modifier.scanModifiers(new ArrayList<>(Arrays.asList(modifiers.split(" "))));
+    }
+
+    private static String nonNull(String s) {
+        return s == null ? "" : s;
+    }
+
+    private static String emptyToNull(String s) {
+        return s == null || s.isEmpty() ? null : s;
+    }
+
+    private static String trimTrailing(String s) {
+        int len = s.length();
+        while (len > 0 && s.charAt(len - 1) <= ' ') {
+            len--;
+        }
+        return s.substring(0, len);
+    }
+
+    private int getStringRef(String s) {
+        if (s == null) {
+            return 0;
+        }
+        Integer ref = poolIndex.get(s);
+        if (ref == null) {
+            pool.add(s);
+            ref = pool.size();
+            poolIndex.put(s, ref);
+        }
+        return ref;
+    }
+
+    private void writeString(String s) {
+        writeInt(records, getStringRef(s));
+    }
+
+    private void writeInt(int value) {
+        writeInt(records, value);
+    }
+
+    private static void writeInt(ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    @Override
+    public void close() {
+        if (os == null) {
+            return;
+        }
+        try {
+            ByteArrayOutputStream header = new ByteArrayOutputStream();
+            writeInt(header, getStringRef(apiVersion));
+            writeInt(header, removedFeatures.size());
+            for (FeaturesHolder.Feature f : removedFeatures) {
+                writeInt(header, getStringRef(f.toString()));
+            }
+            writeInt(header, modules.size());
+            for (String module : modules) {
+                writeInt(header, getStringRef(module));
+            }
+            writeInt(header, classOffsets.size());
+            for (Map.Entry<String, Integer> e : classOffsets.entrySet()) {
+                writeInt(header, getStringRef(e.getKey()));
+                writeInt(header, e.getValue());
+            }
+            writeInt(header, records.size());
+
+            ByteArrayOutputStream strings = new ByteArrayOutputStream();
+            writeInt(strings, pool.size());
+            for (String s : pool) {
+                byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+                writeInt(strings, bytes.length);
+                strings.write(bytes, 0, bytes.length);
+            }
+
+            os.write((BinaryFormat.MAGIC + "\n").getBytes(StandardCharsets.US_ASCII));
+            strings.writeTo(os);
+            header.writeTo(os);
+            records.writeTo(os);
+            os.close();
+        } catch (IOException e) {
+            SwissKnife.reportThrowable(e);
+        } finally {
+            os = null;
+            super.close();
+        }
+    }
+}
@@ -203,72 +203,102 @@ public class Updater extends DefaultHandler {
         }
     }
 
+    /**
+     * Lines of the signature file. Lines are kept in a linked list, so they
+     * are removed and inserted in constant time, and class definitions are
+     * indexed by class name, so commands don't scan the file from the top.
+     */
     class SigList {
 
-        private final List<String> sigList = new ArrayList<>();
-        private int startPos = -1;
+        private final Line head = new Line(null);   // sentinel, head.next is the first line
+        private Line tail = head;
+        /**
+         * "CLSS" lines by the last word of the line, in the file order.
+         */
+        private final Map<String, List<Line>> classesByName = new HashMap<>();
+        /**
+         * All "CLSS" lines in the file order.
+         */
+        private final List<Line> classes = new ArrayList<>();
+        /**
+         * Set when a "CLSS" line appears in the middle of the file, so the
+         * indexes are no longer in the file order.
+         */
+        private boolean reindex;
+        private Line current;
 
         public boolean findClass(String className) {
-            startPos = -1;
-            int i = 0;
-            while (i < sigList.size()) {
-                String l = sigList.get(i);
-                if (l.startsWith("CLSS ") && l.endsWith(" " + className)) {
-                    startPos = i;
-                    return true;
+            current = null;
+            if (className.indexOf(' ') >= 0) {
+                // can't be the last word of a line, look through all lines
+                for (Line l = head.next; l != null; l = l.next) {
+                    if (isClassLine(l.text) && l.text.endsWith(" " + className)) {
+                        current = l;
+                        return true;
+                    }
                 }
-                i++;
+                return false;
             }
-            return false;
-        }
-
-        public void removeCurrentClass() {
-            if (startPos >= 0) {
-                while (!sigList.get(startPos).trim().isEmpty()) {
-                    sigList.remove(startPos);
+            List<Line> lines = getClassesByName().get(className);
+            if (lines != null) {
+                for (Line l : lines) {
+                    if (!l.removed && isClassLine(l.text) && l.text.endsWith(" " + className)) {
+                        current = l;
+                        return true;
+                    }
                 }
             }
+            return false;
         }
 
-        public void addText(String body) {
-            StringTokenizer st = new StringTokenizer(body, "\n");
-            sigList.add("");
-            while (st.hasMoreTokens()) {
-                sigList.add(st.nextToken().trim());
+        public void removeCurrentClass() {
+            Line l = current;
+            while (l != null && !l.text.trim().isEmpty()) {
+                Line next = l.next;
+                unlink(l);
+                l = next;
             }
-            sigList.add("");
+            current = null;
         }
 
-        public boolean findPackageMember(String packageName) {
-            startPos = -1;
-            int i = 0;
+        /**
+         * Removes definitions of all the classes which belong to the given
+         * package or its subpackages.
+         */
+        public void removePackage(String packageName) {
             final String pSig = " " + packageName + ".";
-            while (i < sigList.size()) {
-                String l = sigList.get(i);
-                if (l.startsWith("CLSS ")) {
-                    int x = l.indexOf('<');
-                    int y = l.indexOf(pSig);
+            getClassesByName();
+            // removed classes are only marked in the list, so it's safe to iterate
+            for (Line l : classes) {
+                if (!l.removed && isClassLine(l.text)) {
+                    int x = l.text.indexOf('<');
+                    int y = l.text.indexOf(pSig);
                     if (y > 0 && ((y < x) || (x == -1))) {
-                        startPos = i;
-                        return true;
+                        current = l;
+                        removeCurrentClass();
                     }
                 }
-                i++;
             }
-            return false;
+        }
+
+        public void addText(String body) {
+            StringTokenizer st = new StringTokenizer(body, "\n");
+            add("");
+            while (st.hasMoreTokens()) {
+                add(st.nextToken().trim());
+            }
+            add("");
         }
 
         public boolean removeMember(String memberName) {
-            if (startPos >= 0) {
-                for (int i = startPos; i < sigList.size(); i++) {
-                    String l = sigList.get(i).trim();
-                    if (memberName.equals(l)) {
-                        sigList.remove(i);
-                        return true;
-                    } else {
-                        if (l.isEmpty()) {
-                            break;
-                        }
+            for (Line l = current; l != null; l = l.next) {
+                String t = l.text.trim();
+                if (memberName.equals(t)) {
+                    unlink(l);
+                    return true;
+                } else {
+                    if (t.isEmpty()) {
+                        break;
                     }
                 }
             }
@@ -276,16 +306,15 @@ public class Updater extends DefaultHandler {
         }
 
         public boolean changeMember(String oldMember, String newMember) {
-            if (startPos >= 0) {
-                for (int i = startPos; i < sigList.size(); i++) {
-                    String l = sigList.get(i).trim();
-                    if (oldMember.equals(l)) {
-                        sigList.set(i, newMember);
-                        return true;
-                    } else {
-                        if (l.isEmpty()) {
-                            break;
-                        }
+            for (Line l = current; l != null; l = l.next) {
+                String t = l.text.trim();
+                if (oldMember.equals(t)) {
+                    l.text = newMember;
+                    reindex |= isClassLine(newMember);
+                    return true;
+                } else {
+                    if (t.isEmpty()) {
+                        break;
                     }
                 }
             }
@@ -294,12 +323,10 @@ public class Updater extends DefaultHandler {
 
         public void pack() {
             boolean empty = false;
-            for (int i = 0; i < sigList.size(); i++) {
-                String l = sigList.get(i);
-                if (l.trim().isEmpty()) {
+            for (Line l = head.next; l != null; l = l.next) {
+                if (l.text.trim().isEmpty()) {
                     if (empty) {
-                        sigList.remove(i--);
-                        continue;
+                        unlink(l);
                     } else {
                         empty = true;
                     }
@@ -310,11 +337,12 @@ public class Updater extends DefaultHandler {
         }
 
         public boolean addMember(String memberName) {
-            if (startPos >= 0) {
-                for (int i = startPos + 1; i < sigList.size(); i++) {
-                    String l = sigList.get(i).trim();
-                    if (!l.startsWith(AnnotationItem.ANNOTATION_PREFIX)) {
-                        sigList.add(i, memberName);
+            if (current != null) {
+                for (Line l = current.next; l != null; l = l.next) {
+                    String t = l.text.trim();
+                    if (!t.startsWith(AnnotationItem.ANNOTATION_PREFIX)) {
+                        insertBefore(l, new Line(memberName));
+                        reindex |= isClassLine(memberName);
                         return true;
                     }
                 }
@@ -323,14 +351,77 @@ public class Updater extends DefaultHandler {
         }
 
         public boolean add(String s) {
-            return sigList.add(s);
+            Line l = new Line(s);
+            l.prev = tail;
+            tail.next = l;
+            tail = l;
+            index(l);
+            return true;
         }
 
         public void print(PrintWriter pw) {
-            for (String o : sigList) {
-                pw.write(o + '\n');
+            for (Line l = head.next; l != null; l = l.next) {
+                pw.write(l.text + '\n');
+            }
+        }
+
+        private Map<String, List<Line>> getClassesByName() {
+            if (reindex) {
+                classesByName.clear();
+                classes.clear();
+                for (Line l = head.next; l != null; l = l.next) {
+                    index(l);
+                }
+                reindex = false;
+            }
+            return classesByName;
+        }
+
+        private void index(Line l) {
+            if (isClassLine(l.text)) {
+                String name = l.text.substring(l.text.lastIndexOf(' ') + 1);
+                List<Line> lines = classesByName.get(name);
+                if (lines == null) {
+                    lines = new ArrayList<>(1);
+                    classesByName.put(name, lines);
+                }
+                lines.add(l);
+                classes.add(l);
             }
         }
+
+        private void insertBefore(Line l, Line newLine) {
+            newLine.prev = l.prev;
+            newLine.next = l;
+            l.prev.next = newLine;
+            l.prev = newLine;
+        }
+
+        private void unlink(Line l) {
+            l.prev.next = l.next;
+            if (l.next != null) {
+                l.next.prev = l.prev;
+            } else {
+                tail = l.prev;
+            }
+            l.removed = true;
+        }
+
+        private boolean isClassLine(String s) {
+            return s.startsWith("CLSS ");
+        }
+    }
+
+    private static class Line {
+
+        String text;
+        Line prev;
+        Line next;
+        boolean removed;
+
+        Line(String text) {
+            this.text = text;
+        }
     }
 
     // data bean
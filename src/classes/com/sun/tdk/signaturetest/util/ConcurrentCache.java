@@ -0,0 +1,282 @@
+/*
+ * Copyright (c) 2026, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.sun.tdk.signaturetest.util;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Thread-safe bounded cache. Entries are spread over several segments, each
+ * one guarded by its own lock, so threads working with different keys rarely
+ * wait for each other. The eviction policy is chosen when the cache is
+ * created, see {@link Policy}.
+ * <p>
+ * The cache counts hits, misses and evictions, which helps to choose
+ * a reasonable cache size.
+ */
+public class ConcurrentCache<K, V> {
+
+    public enum Policy {
+
+        /**
+         * The least recently used entry of a segment is evicted when the
+         * segment is full.
+         */
+        LRU,
+        /**
+         * Like {@link #LRU}, but a new entry replaces the least recently used
+         * one only if the new key was requested more often. This keeps
+         * frequently used entries from being washed out by one-time requests.
+         */
+        TINY_LFU,
+        /**
+         * Nothing is evicted.
+         */
+        UNBOUNDED
+    }
+
+    private static final int MAX_SEGMENTS = 16;
+
+    private final Policy policy;
+    private final Segment<K, V>[] segments;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * @param maxSize maximum number of entries, ignored by the
+     *                {@link Policy#UNBOUNDED} policy.
+     * @param policy  eviction policy.
+     */
+    public ConcurrentCache(int maxSize, Policy policy) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("Cache size must be positive: " + maxSize);
+        }
+        this.policy = policy;
+
+        int count = 1;
+        while (count < MAX_SEGMENTS && count * 2 <= maxSize / 16) {
+            count *= 2;
+        }
+        segments = newSegments(count);
+        int segmentSize = (maxSize + count - 1) / count;
+        for (int i = 0; i < count; i++) {
+            segments[i] = new Segment<>(policy == Policy.UNBOUNDED ? Integer.MAX_VALUE : segmentSize,
+                    policy == Policy.TINY_LFU ? new FrequencySketch(segmentSize) : null);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <K, V> Segment<K, V>[] newSegments(int count) {
+        return (Segment<K, V>[]) new Segment<?, ?>[count];
+    }
+
+    /**
+     * Returns the value cached for the given key, or {@code null}.
+     */
+    public V get(K key) {
+        int hash = spread(key.hashCode());
+        V value = segmentFor(hash).get(key, hash);
+        if (value != null) {
+            hits.incrementAndGet();
+        } else {
+            misses.incrementAndGet();
+        }
+        return value;
+    }
+
+    /**
+     * Caches the given value unless another value is already cached for the
+     * key.
+     *
+     * @return the value which is cached for the key now, or the given value
+     * if the cache policy refused to keep it.
+     */
+    public V putIfAbsent(K key, V value) {
+        int hash = spread(key.hashCode());
+        Segment<K, V> segment = segmentFor(hash);
+
+        synchronized (segment) {
+            V existing = segment.map.get(key);
+            if (existing != null) {
+                return existing;
+            }
+
+            if (segment.map.size() >= segment.capacity) {
+                Iterator<Map.Entry<K, V>> it = segment.map.entrySet().iterator();
+                Map.Entry<K, V> victim = it.next();
+                FrequencySketch sketch = segment.sketch;
+                if (sketch != null
+                        && sketch.frequency(hash) <= sketch.frequency(spread(victim.getKey().hashCode()))) {
+                    return value;
+                }
+                it.remove();
+                evictions.incrementAndGet();
+            }
+            segment.map.put(key, value);
+            return value;
+        }
+    }
+
+    public void remove(K key) {
+        Segment<K, V> segment = segmentFor(spread(key.hashCode()));
+        synchronized (segment) {
+            segment.map.remove(key);
+        }
+    }
+
+    public void clear() {
+        for (Segment<K, V> segment : segments) {
+            synchronized (segment) {
+                segment.map.clear();
+            }
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (Segment<K, V> segment : segments) {
+            synchronized (segment) {
+                size += segment.map.size();
+            }
+        }
+        return size;
+    }
+
+    public Policy getPolicy() {
+        return policy;
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+
+    public String toString() {
+        return "ConcurrentCache[" + policy + ", size=" + size() + ", hits=" + hits
+                + ", misses=" + misses + ", evictions=" + evictions + "]";
+    }
+
+    private Segment<K, V> segmentFor(int hash) {
+        // the high bits of the spread hash are not mixed, small keys get them
+        return segments[((hash * 0x9e3779b9) >>> 16) & (segments.length - 1)];
+    }
+
+    private static int spread(int h) {
+        h ^= (h >>> 20) ^ (h >>> 12);
+        return h ^ (h >>> 7) ^ (h >>> 4);
+    }
+
+    /**
+     * Part of the cache guarded by its own lock. With the
+     * {@link Policy#TINY_LFU} policy every segment counts requests for its
+     * keys in its own sketch, which is guarded by the same lock.
+     */
+    private static class Segment<K, V> {
+
+        final int capacity;
+        final LinkedHashMap<K, V> map = new LinkedHashMap<>(16, 0.75f, true);
+        final FrequencySketch sketch;
+
+        Segment(int capacity, FrequencySketch sketch) {
+            this.capacity = capacity;
+            this.sketch = sketch;
+        }
+
+        synchronized V get(K key, int hash) {
+            if (sketch != null) {
+                sketch.increment(hash);
+            }
+            return map.get(key);
+        }
+    }
+
+    /**
+     * Approximate request counter for keys. Four small counters are kept per
+     * key hash in a table of a fixed size, and the smallest of them is taken as
+     * the frequency. All the counters are halved periodically, so that the
+     * sketch follows changes of the workload. The sketch is not thread-safe,
+     * it is used under the lock of its segment.
+     */
+    private static class FrequencySketch {
+
+        private static final int MAX_COUNT = 15;
+        private static final int[] SEEDS = {0x97cb3127, 0xb2c9d07b, 0x7a3c5a5f, 0x3d4c8b6d};
+
+        private final byte[] table;
+        private final int mask;
+        private final int sampleSize;
+        private int additions;
+
+        FrequencySketch(int maxSize) {
+            int size = 64;
+            while (size < maxSize * 4 && size < (1 << 24)) {
+                size <<= 1;
+            }
+            table = new byte[size];
+            mask = size - 1;
+            sampleSize = size * 2;
+        }
+
+        void increment(int hash) {
+            boolean added = false;
+            for (int seed : SEEDS) {
+                int i = index(hash, seed);
+                if (table[i] < MAX_COUNT) {
+                    table[i]++;
+                    added = true;
+                }
+            }
+            if (added && ++additions >= sampleSize) {
+                for (int i = 0; i < table.length; i++) {
+                    table[i] >>= 1;
+                }
+                additions /= 2;
+            }
+        }
+
+        int frequency(int hash) {
+            int result = MAX_COUNT;
+            for (int seed : SEEDS) {
+                result = Math.min(result, table[index(hash, seed)]);
+            }
+            return result;
+        }
+
+        private int index(int hash, int seed) {
+            int h = (hash ^ seed) * 0x9e3779b9;
+            return (h ^ (h >>> 16)) & mask;
+        }
+    }
+}
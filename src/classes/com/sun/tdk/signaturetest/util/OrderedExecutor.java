@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) 2026, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.sun.tdk.signaturetest.util;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs tasks on a fixed pool of worker threads and hands their results to a
+ * {@link Sink} on the submitting thread in the order the tasks were submitted.
+ * The number of tasks in flight is bounded, so the submitting thread blocks
+ * on the oldest one when the workers fall behind.
+ * <p>
+ * All the methods must be called from the same thread.
+ */
+public class OrderedExecutor<T> {
+
+    /**
+     * Receives results of the tasks in submission order.
+     */
+    public interface Sink<T> {
+
+        void accept(T result) throws IOException;
+    }
+
+    private final ExecutorService pool;
+    private final Deque<Future<T>> pending = new ArrayDeque<>();
+    private final int window;
+    private final Sink<? super T> sink;
+
+    /**
+     * @param threads number of worker threads
+     * @param name    prefix for the names of worker threads
+     * @param sink    receiver of the task results
+     */
+    public OrderedExecutor(int threads, final String name, Sink<? super T> sink) {
+        this.sink = sink;
+        this.window = threads * 4;
+        this.pool = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, name + "-" + count.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            }
+        });
+    }
+
+    /**
+     * Schedules the given task. Results of the earlier tasks may be passed to
+     * the sink before this method returns.
+     */
+    public void submit(Callable<T> task) throws IOException {
+        while (pending.size() >= window) {
+            drain();
+        }
+        pending.addLast(pool.submit(task));
+    }
+
+    /**
+     * Waits for all the submitted tasks and passes their results to the sink.
+     */
+    public void finish() throws IOException {
+        while (!pending.isEmpty()) {
+            drain();
+        }
+    }
+
+    /**
+     * Cancels the tasks which are not finished yet and stops the workers.
+     */
+    public void shutdown() {
+        for (Future<T> f : pending) {
+            f.cancel(true);
+        }
+        pending.clear();
+        pool.shutdownNow();
+    }
+
+    private void drain() throws IOException {
+        Future<T> f = pending.removeFirst();
+        T result;
+        try {
+            result = f.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException(e.getMessage());
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException(cause);
+        }
+        sink.accept(result);
+    }
+}